@@ -25,6 +25,17 @@ import com.vaticle.typeql.grammar.TypeQLLexer;
 import com.vaticle.typeql.lang.common.TypeQLToken;
 import com.vaticle.typeql.lang.common.exception.TypeQLException;
 import com.vaticle.typeql.lang.parser.Parser;
+import com.vaticle.typeql.lang.parser.ParserBackend;
+import com.vaticle.typeql.lang.parser.ParseLimits;
+import com.vaticle.typeql.lang.parser.ParseResult;
+import com.vaticle.typeql.lang.parser.ParseSession;
+import com.vaticle.typeql.lang.parser.ParseStatistics;
+import com.vaticle.typeql.lang.parser.PredictionCache;
+import com.vaticle.typeql.lang.parser.PreparedQuery;
+import com.vaticle.typeql.lang.parser.QueryBoundaryScanner;
+import com.vaticle.typeql.lang.parser.QueryCache;
+import com.vaticle.typeql.lang.parser.QueryClassification;
+import com.vaticle.typeql.lang.parser.QueryPublisher;
 import com.vaticle.typeql.lang.pattern.Conjunction;
 import com.vaticle.typeql.lang.pattern.Definable;
 import com.vaticle.typeql.lang.pattern.Disjunction;
@@ -41,8 +52,23 @@ import com.vaticle.typeql.lang.query.TypeQLInsert;
 import com.vaticle.typeql.lang.query.TypeQLMatch;
 import com.vaticle.typeql.lang.query.TypeQLQuery;
 import com.vaticle.typeql.lang.query.TypeQLUndefine;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.lang.reflect.Method;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
 import java.util.stream.Stream;
 import static com.vaticle.typedb.common.collection.Collections.list;
 import static com.vaticle.typeql.lang.common.TypeQLToken.Predicate.Equality.EQ;
@@ -55,17 +81,281 @@ import static com.vaticle.typeql.lang.common.TypeQLToken.Predicate.SubString.CON
 import static com.vaticle.typeql.lang.common.TypeQLToken.Predicate.SubString.LIKE;
 import static com.vaticle.typeql.lang.common.exception.ErrorMessage.ILLEGAL_CHAR_IN_LABEL;
 import static com.vaticle.typeql.lang.pattern.variable.UnboundVariable.hidden;
+import static java.nio.charset.StandardCharsets.UTF_8;
 
 public class TypeQL {
 
     private static final Parser parser = new Parser();
+    private static volatile QueryCache queryCache;
+    private static volatile ParserBackend backend = parser;
 
     public static <T extends TypeQLQuery> T parseQuery(String queryString) {
-        return parser.parseQueryEOF(queryString);
+        return parseQuery(queryString, parser.limits());
+    }
+
+    /**
+     * Parses a query within the given limits, which replace the default limits set by {@link #setParseLimits}.
+     * A query already in the query cache is returned without being parsed again.
+     */
+    public static <T extends TypeQLQuery> T parseQuery(String queryString, ParseLimits limits) {
+        QueryCache cache = queryCache;
+        ParserBackend backend = TypeQL.backend;
+        if (cache != null) return cache.get(queryString, query -> backend.parseQueryEOF(query, limits));
+        return backend.parseQueryEOF(queryString, limits);
+    }
+
+    /**
+     * Checks that a query is syntactically valid, without building it. A query with syntax errors throws a
+     * TypeQLException that reports them as {@link #parseQuery(String)} would.
+     */
+    public static void validateSyntax(String queryString) {
+        parser.validateQueryEOF(queryString, false);
+    }
+
+    /**
+     * Checks that a query is syntactically valid and, if checkSemantics is true, that it is also a valid query,
+     * which requires building it.
+     */
+    public static void validateSyntax(String queryString, boolean checkSemantics) {
+        parser.validateQueryEOF(queryString, checkSemantics);
+    }
+
+    /**
+     * Parses a query asynchronously on the default executor, which runs each parse on a virtual thread where the
+     * runtime supports them, and on the common fork/join pool otherwise.
+     */
+    public static <T extends TypeQLQuery> CompletableFuture<T> parseQueryAsync(String queryString) {
+        return parseQueryAsync(queryString, AsyncExecutor.DEFAULT);
+    }
+
+    public static <T extends TypeQLQuery> CompletableFuture<T> parseQueryAsync(String queryString, Executor executor) {
+        ParseLimits limits = parser.limits();
+        return CompletableFuture.supplyAsync(() -> parseQuery(queryString, limits), executor);
+    }
+
+    /**
+     * Parses a batch of queries concurrently on the default executor. See {@link #parseAll(Collection, Executor)}.
+     */
+    public static <T extends TypeQLQuery> List<ParseResult<T>> parseAll(Collection<String> queryStrings) {
+        return parseAll(queryStrings, AsyncExecutor.DEFAULT);
+    }
+
+    /**
+     * Parses a batch of queries concurrently on the given executor, waiting for them all to be parsed.
+     * The results are in the order of the given queries, and a query that fails to parse fails only its own result.
+     */
+    public static <T extends TypeQLQuery> List<ParseResult<T>> parseAll(Collection<String> queryStrings,
+                                                                        Executor executor) {
+        ParseLimits limits = parser.limits();
+        List<CompletableFuture<ParseResult<T>>> parses = new ArrayList<>(queryStrings.size());
+        for (String queryString : queryStrings) {
+            parses.add(CompletableFuture.supplyAsync(
+                    () -> ParseResult.attempt(() -> parseQuery(queryString, limits)), executor
+            ));
+        }
+        List<ParseResult<T>> results = new ArrayList<>(parses.size());
+        for (CompletableFuture<ParseResult<T>> parse : parses) results.add(parse.join());
+        return results;
+    }
+
+    /**
+     * Sets the parser of the queries given to {@link #parseQuery(String)} and {@link #parseQueries(String)}, such as
+     * a {@link com.vaticle.typeql.lang.parser.RecursiveDescentParser}. Other inputs are always parsed by the default ANTLR parser.
+     */
+    public static void setParserBackend(ParserBackend backend) {
+        TypeQL.backend = backend;
+    }
+
+    /**
+     * Restores the default ANTLR parser as the parser of all queries.
+     */
+    public static void resetParserBackend() {
+        TypeQL.backend = parser;
+    }
+
+    /**
+     * Parses a query with {@code ?name} placeholders in place of its values, so that it can be built many times
+     * with different values without being parsed again, for example:
+     * {@code TypeQL.prepare("match $p isa person, has name ?name;").bind("Alice")}.
+     */
+    public static <T extends TypeQLQuery> PreparedQuery<T> prepare(String queryString) {
+        return parser.prepareQueryEOF(queryString);
+    }
+
+    /**
+     * Parses a script of many queries that will be edited, such as a schema file open in an editor. Each edit to
+     * the session re-parses only the queries and definables that it changes, for example:
+     * {@code TypeQL.parseSession(script).edit(offset, 0, "owns name, ")}.
+     */
+    public static ParseSession parseSession(String script) {
+        return parser.parseSession(script);
+    }
+
+    /**
+     * Finds whether a query reads or writes, the command it begins with, and whether it groups or aggregates,
+     * from the tokens of the query alone, much faster than parsing it. The query is not validated.
+     */
+    public static QueryClassification classifyQuery(String queryString) {
+        return parser.classifyQuery(queryString);
+    }
+
+    /**
+     * Classifies each query of a script, in their order in the script. See {@link #classifyQuery(String)}.
+     */
+    public static List<QueryClassification> classifyQueries(String queryString) {
+        return parser.classifyQueries(queryString);
+    }
+
+    /**
+     * Sets the limits on the resources used by each parse, for parses that are not given limits of their own.
+     * Parsing that exceeds them fails with a {@link com.vaticle.typeql.lang.common.exception.ParseLimitException}.
+     */
+    public static void setParseLimits(ParseLimits limits) {
+        parser.setLimits(limits);
+    }
+
+    /**
+     * Enables caching of {@link #parseQuery(String)} results, so that repeated query strings
+     * return a shared instance of the already-parsed query, whose variables are frozen against further constraints.
+     *
+     * @param maxEntries maximum number of cached queries
+     * @param maxBytes   approximate upper bound on the memory held by cached queries
+     * @return the newly installed cache, which exposes hit, miss and eviction counts
+     */
+    public static QueryCache enableQueryCache(long maxEntries, long maxBytes) {
+        QueryCache cache = new QueryCache(maxEntries, maxBytes);
+        queryCache = cache;
+        return cache;
+    }
+
+    public static void disableQueryCache() {
+        queryCache = null;
+    }
+
+    public static Optional<QueryCache> queryCache() {
+        return Optional.ofNullable(queryCache);
+    }
+
+    /**
+     * Parses input in a single pass, reporting syntax errors as it goes, for each kind of input that has recently
+     * had frequent syntax errors, rather than parsing it fast and then again to report an error.
+     */
+    public static void enableAdaptiveParsing() {
+        parser.setAdaptive(true);
+    }
+
+    public static void disableAdaptiveParsing() {
+        parser.setAdaptive(false);
+    }
+
+    public static ParseStatistics parseStatistics(ParseStatistics.EntryPoint entryPoint) {
+        return parser.statistics(entryPoint);
+    }
+
+    /**
+     * Warms up the parser with a corpus of representative queries, for use at start-up.
+     * See {@link PredictionCache} to monitor and bound what it builds.
+     */
+    public static int warmUp(Iterable<String> queries) {
+        return parser.warmUp(queries);
+    }
+
+    /**
+     * Parses a query from UTF-8 encoded bytes, such as a memory-mapped file, decoding them lazily
+     * rather than copying them into a String first. The buffer's position and limit are left unchanged.
+     */
+    public static <T extends TypeQLQuery> T parseQuery(ByteBuffer utf8Bytes) {
+        return parser.parseQueryEOF(utf8Bytes);
+    }
+
+    public static <T extends TypeQLQuery> T parseQuery(byte[] utf8Bytes) {
+        return parser.parseQueryEOF(utf8Bytes == null ? null : ByteBuffer.wrap(utf8Bytes));
     }
 
     public static <T extends TypeQLQuery> Stream<T> parseQueries(String queryString) {
-        return parser.parseQueriesEOF(queryString);
+        return backend.parseQueriesEOF(queryString, parser.limits());
+    }
+
+    public static <T extends TypeQLQuery> Stream<T> parseQueries(String queryString, ParseLimits limits) {
+        return backend.parseQueriesEOF(queryString, limits);
+    }
+
+    /**
+     * Parses a script of many queries in parallel on the given pool, returning them in script order.
+     */
+    public static <T extends TypeQLQuery> Stream<T> parseQueries(String queryString, ForkJoinPool pool) {
+        return parser.parseQueriesEOF(queryString, pool);
+    }
+
+    /**
+     * Parses queries from UTF-8 encoded bytes, such as a memory-mapped file, decoding them lazily
+     * rather than copying them into a String first. The buffer's position and limit are left unchanged.
+     */
+    public static <T extends TypeQLQuery> Stream<T> parseQueries(ByteBuffer utf8Bytes) {
+        return parser.parseQueriesEOF(utf8Bytes);
+    }
+
+    public static <T extends TypeQLQuery> Stream<T> parseQueries(byte[] utf8Bytes) {
+        return parser.parseQueriesEOF(utf8Bytes == null ? null : ByteBuffer.wrap(utf8Bytes));
+    }
+
+    /**
+     * Lazily parses queries from a reader, keeping memory flat regardless of the size of the input.
+     * The caller remains responsible for closing the reader.
+     */
+    public static <T extends TypeQLQuery> Stream<T> parseQueries(Reader reader) {
+        return parser.parseQueriesEOF(reader);
+    }
+
+    /**
+     * Publishes the queries read from a reader, parsing each only once the subscriber has requested it, on the thread
+     * that requests it. The caller remains responsible for closing the reader.
+     */
+    public static <T extends TypeQLQuery> QueryPublisher<T> publishQueries(Reader reader) {
+        return parser.publishQueries(reader, Runnable::run);
+    }
+
+    /**
+     * Publishes the queries read from a reader, parsing each only once the subscriber has requested it, on the given
+     * executor. The caller remains responsible for closing the reader.
+     */
+    public static <T extends TypeQLQuery> QueryPublisher<T> publishQueries(Reader reader, Executor executor) {
+        return parser.publishQueries(reader, executor);
+    }
+
+    /**
+     * Lazily parses queries from a UTF-8 encoded file. The file is closed when the returned stream is closed.
+     */
+    public static <T extends TypeQLQuery> Stream<T> parseQueries(Path path) {
+        BufferedReader reader;
+        try {
+            reader = Files.newBufferedReader(path, UTF_8);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return parser.<T>parseQueriesEOF(reader).onClose(() -> {
+            try {
+                reader.close();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+    }
+
+    /**
+     * Parses a script of many queries, yielding a result for every query, so that a malformed query fails only its
+     * own result and the rest of the script is still parsed. See {@link Parser#parseQueryResultsEOF(String)}.
+     */
+    public static <T extends TypeQLQuery> Stream<ParseResult<T>> parseQueryResults(String queryString) {
+        return parser.parseQueryResultsEOF(queryString);
+    }
+
+    /**
+     * Finds the offset at which each query of a script begins, without lexing or parsing the script, so that the
+     * queries can be parsed separately, for example by different threads. See {@link QueryBoundaryScanner}.
+     */
+    public static int[] queryBoundaries(CharSequence script) {
+        return QueryBoundaryScanner.boundaries(script);
     }
 
     public static Pattern parsePattern(String pattern) {
@@ -348,4 +638,18 @@ public class TypeQL {
         return new ThingConstraint.Value.String(LIKE, value);
     }
 
+    private static class AsyncExecutor {
+
+        // Executors.newVirtualThreadPerTaskExecutor() is looked up reflectively, as it is not in every supported runtime
+        private static final Executor DEFAULT = create();
+
+        private static Executor create() {
+            try {
+                Method virtual = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+                return (Executor) virtual.invoke(null);
+            } catch (ReflectiveOperationException e) {
+                return ForkJoinPool.commonPool();
+            }
+        }
+    }
 }
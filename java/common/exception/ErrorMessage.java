@@ -103,6 +103,32 @@ public class ErrorMessage extends com.vaticle.typedb.common.exception.ErrorMessa
             new ErrorMessage(40, "'%s' is not a valid Type label. Type labels must start with a letter, and may contain only letters, numbers, '-' and '_'.");
     public static final ErrorMessage INVALID_ANNOTATION =
             new ErrorMessage(41, "Invalid annotation '%s' on '%s' constraint");
+    public static final ErrorMessage PARSE_LENGTH_LIMIT_EXCEEDED =
+            new ErrorMessage(42, "The input of length %s exceeds the limit of %s for parsing.");
+    public static final ErrorMessage PARSE_TOKEN_LIMIT_EXCEEDED =
+            new ErrorMessage(43, "The input exceeds the limit of %s tokens for parsing.");
+    public static final ErrorMessage PARSE_DEPTH_LIMIT_EXCEEDED =
+            new ErrorMessage(44, "The input exceeds the limit of %s levels of nested patterns for parsing.");
+    public static final ErrorMessage PARSE_TIMEOUT =
+            new ErrorMessage(45, "Parsing did not complete within the time limit of %s.");
+    public static final ErrorMessage PARSE_CANCELLED =
+            new ErrorMessage(46, "Parsing was cancelled.");
+    public static final ErrorMessage PREPARED_PARAMETER_POSITION =
+            new ErrorMessage(47, "The parameter '%s' is not in the position of a value.");
+    public static final ErrorMessage PREPARED_PARAMETER_MISSING =
+            new ErrorMessage(48, "No value was bound to the parameter '%s'.");
+    public static final ErrorMessage PREPARED_PARAMETER_UNKNOWN =
+            new ErrorMessage(49, "The prepared query has no parameter '%s'.");
+    public static final ErrorMessage PREPARED_PARAMETER_COUNT =
+            new ErrorMessage(50, "The prepared query has %s parameters, but %s values were bound.");
+    public static final ErrorMessage PREPARED_PARAMETER_TYPE =
+            new ErrorMessage(51, "The value '%s' of type '%s' cannot be bound to the parameter '%s', which expects %s.");
+    public static final ErrorMessage UNCLASSIFIABLE_QUERY =
+            new ErrorMessage(52, "The query at line %s begins with '%s', which is not a query command.");
+    public static final ErrorMessage NORMALISED_SIZE_LIMIT_EXCEEDED =
+            new ErrorMessage(53, "The pattern normalises to %s conjunctions, which exceeds the limit of %s.");
+    public static final ErrorMessage FROZEN_PATTERN_MODIFICATION =
+            new ErrorMessage(54, "The pattern '%s' has been frozen to be shared, and cannot be changed.");
 
     private static final String codePrefix = "TQL";
     private static final String messagePrefix = "TypeQL Error";
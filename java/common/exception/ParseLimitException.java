@@ -0,0 +1,39 @@
+/*
+ * Copyright (C) 2022 Vaticle
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.vaticle.typeql.lang.common.exception;
+
+/**
+ * Thrown when parsing is abandoned because the input exceeds a limit on the resources it may use,
+ * or because parsing was cancelled, rather than because the input is invalid.
+ */
+public class ParseLimitException extends TypeQLException {
+
+    private static final long serialVersionUID = 1L;
+
+    protected ParseLimitException(String error) {
+        super(error);
+    }
+
+    public static ParseLimitException of(String error) {
+        return new ParseLimitException(error);
+    }
+}
@@ -0,0 +1,67 @@
+/*
+ * Copyright (C) 2022 Vaticle
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.vaticle.typeql.lang.common.util;
+
+import java.util.function.Function;
+
+/**
+ * A bounded, concurrent table of canonical instances of immutable objects, keyed on a string, so that objects
+ * that are equal share one instance, and are not validated again when they are looked up.
+ *
+ * The table is direct-mapped: each key has a single slot, and an object that misses replaces whatever the slot
+ * held. Its memory is bounded by its capacity, and lookups take no locks. Interning is best effort, so callers
+ * must still compare interned objects by equality rather than by identity.
+ */
+public class Interner<T> {
+
+    private final Function<T, String> keyOf;
+    private final T[] table;
+    private final int mask;
+
+    /**
+     * @param capacity the number of slots, rounded up to a power of two
+     * @param keyOf    the key of an interned object, which must be the key it was created from
+     */
+    @SuppressWarnings("unchecked")
+    public Interner(int capacity, Function<T, String> keyOf) {
+        if (capacity <= 0) throw new IllegalArgumentException("Interner capacity must be positive");
+        int size = Integer.highestOneBit(capacity);
+        if (size < capacity) size <<= 1;
+        this.keyOf = keyOf;
+        this.table = (T[]) new Object[size];
+        this.mask = size - 1;
+    }
+
+    /**
+     * @return the canonical instance for the key, which is created from the key if there is none
+     */
+    public T intern(String key, Function<String, T> create) {
+        int hash = key.hashCode();
+        int slot = (hash ^ (hash >>> 16)) & mask;
+        // Interned objects are immutable, and their final fields are safely published without synchronisation
+        T interned = table[slot];
+        if (interned != null && keyOf.apply(interned).equals(key)) return interned;
+        interned = create.apply(key);
+        table[slot] = interned;
+        return interned;
+    }
+}
@@ -0,0 +1,838 @@
+/*
+ * Copyright (C) 2022 Vaticle
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.vaticle.typeql.lang.parser;
+
+import com.vaticle.typedb.common.collection.Either;
+import com.vaticle.typedb.common.collection.Pair;
+import com.vaticle.typeql.grammar.TypeQLParser;
+import com.vaticle.typeql.lang.common.TypeQLArg;
+import com.vaticle.typeql.lang.common.TypeQLToken;
+import com.vaticle.typeql.lang.common.exception.ParseLimitException;
+import com.vaticle.typeql.lang.common.exception.TypeQLException;
+import com.vaticle.typeql.lang.pattern.Conjunction;
+import com.vaticle.typeql.lang.pattern.Definable;
+import com.vaticle.typeql.lang.pattern.Disjunction;
+import com.vaticle.typeql.lang.pattern.Negation;
+import com.vaticle.typeql.lang.pattern.Pattern;
+import com.vaticle.typeql.lang.pattern.constraint.ThingConstraint;
+import com.vaticle.typeql.lang.pattern.constraint.TypeConstraint;
+import com.vaticle.typeql.lang.pattern.schema.Rule;
+import com.vaticle.typeql.lang.pattern.variable.ThingVariable;
+import com.vaticle.typeql.lang.pattern.variable.TypeVariable;
+import com.vaticle.typeql.lang.pattern.variable.UnboundVariable;
+import com.vaticle.typeql.lang.query.TypeQLDefine;
+import com.vaticle.typeql.lang.query.TypeQLDelete;
+import com.vaticle.typeql.lang.query.TypeQLInsert;
+import com.vaticle.typeql.lang.query.TypeQLMatch;
+import com.vaticle.typeql.lang.query.TypeQLQuery;
+import com.vaticle.typeql.lang.query.TypeQLUndefine;
+import com.vaticle.typeql.lang.query.builder.Sortable;
+import org.antlr.v4.runtime.ANTLRErrorListener;
+import org.antlr.v4.runtime.BaseErrorListener;
+import org.antlr.v4.runtime.CommonToken;
+import org.antlr.v4.runtime.ParserRuleContext;
+import org.antlr.v4.runtime.RecognitionException;
+import org.antlr.v4.runtime.Recognizer;
+import org.antlr.v4.runtime.Token;
+import org.antlr.v4.runtime.TokenStream;
+
+import javax.annotation.Nullable;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+import static com.vaticle.typedb.common.collection.Collections.pair;
+import static com.vaticle.typeql.lang.common.exception.ErrorMessage.ILLEGAL_GRAMMAR;
+import static com.vaticle.typeql.lang.common.exception.ErrorMessage.ILLEGAL_STATE;
+import static com.vaticle.typeql.lang.common.exception.ErrorMessage.PREPARED_PARAMETER_POSITION;
+import static com.vaticle.typeql.lang.parser.Parser.getRegex;
+import static com.vaticle.typeql.lang.parser.Parser.getString;
+import static com.vaticle.typeql.lang.parser.Parser.getValue;
+import static com.vaticle.typeql.lang.parser.Parser.getVar;
+import static com.vaticle.typeql.lang.parser.Parser.getLong;
+import static com.vaticle.typeql.lang.pattern.variable.UnboundVariable.hidden;
+
+/**
+ * A TypeQL parser that builds queries as each grammar rule is exited, without materialising a parse tree.
+ *
+ * Rules that produce a TypeQL object push it onto a value stack, from which the enclosing rule takes it.
+ * Every other rule is transparent: its tokens are collected for the nearest enclosing rule that produces a value,
+ * which reads them in order. The queries built are identical to those built by visiting the parse tree with
+ * {@link Parser}, which remains the reference for the semantics of each rule.
+ */
+class DirectParser extends TypeQLParser {
+
+    private static final boolean[] BUILDS_VALUE = buildsValue(
+            RULE_query_define, RULE_query_undefine, RULE_query_insert, RULE_query_update, RULE_query_delete,
+            RULE_query_match, RULE_query_match_aggregate, RULE_query_match_group, RULE_query_match_group_agg,
+            RULE_definables, RULE_schema_rule, RULE_patterns, RULE_pattern_conjunction, RULE_pattern_disjunction,
+            RULE_pattern_negation, RULE_variable_concept, RULE_variable_type, RULE_variable_things,
+            RULE_variable_thing, RULE_variable_relation, RULE_variable_attribute, RULE_relation, RULE_role_player,
+            RULE_attributes, RULE_attribute, RULE_predicate
+    );
+    private static final int SEMICOLON = literalType(";");
+    // Recorded operations other than tokens, which are recorded by their index
+    private static final int ENTER = -1;
+    private static final int EXIT = -2;
+
+    private final List<Token> tokens;
+    private final List<Object> values;
+    private int[] tokenMarks;
+    private int[] valueMarks;
+    private int depth;
+    private boolean building;
+    private boolean failed;
+    private RuntimeException buildFailure;
+    private ParseLimits.Usage usage;
+    private Recording recording;
+    private Map<Integer, Integer> placeholders;
+    private Object[] bindings;
+
+    DirectParser(TokenStream input) {
+        super(input);
+        this.tokens = new ArrayList<>();
+        this.values = new ArrayList<>();
+        this.tokenMarks = new int[32];
+        this.valueMarks = new int[32];
+    }
+
+    private static boolean[] buildsValue(int... rules) {
+        boolean[] buildsValue = new boolean[ruleNames.length];
+        for (int rule : rules) buildsValue[rule] = true;
+        return buildsValue;
+    }
+
+    /**
+     * Sets the usage of the next parse, whose limits are checked by its token source, or none if it is null.
+     */
+    void limit(@Nullable ParseLimits.Usage usage) {
+        this.usage = usage;
+    }
+
+    static int literalType(String literal) {
+        for (int type = 1; type <= VOCABULARY.getMaxTokenType(); type++) {
+            if (("'" + literal + "'").equals(VOCABULARY.getLiteralName(type))) return type;
+        }
+        throw TypeQLException.of(ILLEGAL_STATE);
+    }
+
+    TypeQLQuery buildQuery() {
+        startBuilding();
+        eof_query();
+        throwBuildFailure();
+        return (TypeQLQuery) values.get(0);
+    }
+
+    @SuppressWarnings("unchecked")
+    <T extends TypeQLQuery> List<T> buildQueries() {
+        startBuilding();
+        eof_queries();
+        throwBuildFailure();
+        List<T> queries = new ArrayList<>(values.size());
+        for (Object value : values) queries.add((T) value);
+        return queries;
+    }
+
+    @SuppressWarnings("unchecked")
+    List<Definable> buildDefinables() {
+        startBuilding();
+        eof_definables();
+        throwBuildFailure();
+        return (List<Definable>) values.get(0);
+    }
+
+    /**
+     * Parses a query as a recogniser, which checks its syntax without building it.
+     *
+     * @return true, as a parse that fails throws or reports its errors to the error listeners
+     */
+    boolean recogniseQuery() {
+        setBuildParseTree(false);
+        building = false;
+        eof_query();
+        return true;
+    }
+
+    /**
+     * Builds a query, recording how it is built so that it can be built again without parsing, with other values
+     * in place of its placeholders. A placeholder is a token starting at one of the given offsets, which map it to
+     * its parameter. The query is built with the placeholders' own text as their values.
+     */
+    Recording recordQuery(Map<Integer, Integer> placeholders) {
+        this.placeholders = placeholders;
+        this.recording = new Recording();
+        try {
+            recording.query = buildQuery();
+            return recording;
+        } finally {
+            this.placeholders = null;
+            this.recording = null;
+        }
+    }
+
+    /**
+     * Builds a recorded query again, with the given values of its parameters, without reading any input.
+     */
+    TypeQLQuery replayQuery(Recording recording, Object[] bindings) {
+        startBuilding();
+        this.bindings = bindings;
+        try {
+            for (int i = 0; i < recording.size; i++) {
+                int operation = recording.operations[i];
+                if (operation >= 0) tokens.add(recording.tokens.get(operation));
+                else if (operation == ENTER) enterValueRule();
+                else exitValueRule(EXIT - operation, true);
+            }
+            throwBuildFailure();
+            return (TypeQLQuery) values.get(0);
+        } finally {
+            this.bindings = null;
+        }
+    }
+
+    /**
+     * Builds the next query in the input, for inputs that are consumed one query at a time.
+     */
+    TypeQLQuery buildNextQuery() {
+        startBuilding();
+        query();
+        throwBuildFailure();
+        return (TypeQLQuery) values.get(0);
+    }
+
+    /**
+     * Drops the tokens and values of the last build, so that a parser kept for reuse does not retain them,
+     * and restores parse tree construction for use as a plain parser.
+     */
+    void clearBuild() {
+        setBuildParseTree(true);
+        usage = null;
+        building = false;
+        buildFailure = null;
+        depth = 0;
+        tokens.clear();
+        values.clear();
+    }
+
+    void startBuilding() {
+        setBuildParseTree(false);
+        building = true;
+        failed = false;
+        buildFailure = null;
+        depth = 0;
+        tokens.clear();
+        values.clear();
+    }
+
+    @Override
+    public void enterRule(ParserRuleContext localctx, int state, int ruleIndex) {
+        super.enterRule(localctx, state, ruleIndex);
+        if (building && BUILDS_VALUE[ruleIndex]) {
+            if (recording != null) recording.add(ENTER);
+            enterValueRule();
+        }
+    }
+
+    /**
+     * Opens the frame of a rule that builds a value, which holds the tokens and values that follow until it exits.
+     */
+    void enterValueRule() {
+        if (depth == tokenMarks.length) {
+            tokenMarks = Arrays.copyOf(tokenMarks, depth * 2);
+            valueMarks = Arrays.copyOf(valueMarks, depth * 2);
+        }
+        tokenMarks[depth] = tokens.size();
+        valueMarks[depth] = values.size();
+        depth++;
+    }
+
+    @Override
+    public void exitRule() {
+        try {
+            if (building && BUILDS_VALUE[_ctx.getRuleIndex()]) {
+                if (recording != null) recording.add(EXIT - _ctx.getRuleIndex());
+                // A rule that failed to match, or was unwound by an exception, must not build from partial input.
+                // Exceeding a limit also unwinds rules, by an exception thrown from the token source.
+                exitValueRule(
+                        _ctx.getRuleIndex(),
+                        _ctx.exception == null && !failed && (usage == null || !usage.isExceeded())
+                );
+            }
+        } finally {
+            // The context is popped even if building fails, so that enclosing rules unwind their own frames
+            super.exitRule();
+        }
+    }
+
+    /**
+     * Opens a frame around the last value built, for a rule that is only known to enclose the previous one once
+     * the previous one has been built. It is equivalent to having opened the frame before the previous one.
+     */
+    void enterEnclosingValueRule() {
+        enterValueRule();
+        valueMarks[depth - 1]--;
+    }
+
+    /**
+     * Closes the innermost frame, replacing its tokens and values with the value built from them by the given rule.
+     * A value that fails to build stops the build, but not the parse, so that a syntax error later in the input is
+     * still reported ahead of the failure. The failure is thrown once the input has been parsed.
+     */
+    void exitValueRule(int rule, boolean buildable) {
+        Object value = null;
+        boolean built = false;
+        try {
+            if (buildable) {
+                value = build(rule);
+                built = true;
+            }
+        } catch (ParseLimitException e) {
+            failed = true;
+            throw e;
+        } catch (RuntimeException e) {
+            failed = true;
+            if (buildFailure == null) buildFailure = e;
+        } finally {
+            depth--;
+            truncate(tokens, tokenMarks[depth]);
+            truncate(values, valueMarks[depth]);
+        }
+        if (built) values.add(value);
+    }
+
+    @Override
+    public void notifyErrorListeners(Token offendingToken, String msg, RecognitionException e) {
+        // Listeners may throw, unwinding rules that must then not be built
+        failed = true;
+        super.notifyErrorListeners(offendingToken, msg, e);
+    }
+
+    /**
+     * @return an error listener that marks the parse as failed, to be registered on the lexer ahead of any
+     * listener that throws, so that rules unwound by a lexer error are not built
+     */
+    ANTLRErrorListener failureListener() {
+        return new BaseErrorListener() {
+            @Override
+            public void syntaxError(Recognizer<?, ?> recognizer, Object offendingSymbol, int line,
+                                    int charPositionInLine, String msg, RecognitionException e) {
+                failed = true;
+            }
+        };
+    }
+
+    @Override
+    public Token consume() {
+        Token token = super.consume();
+        if (building && token.getType() != Token.EOF) tokens.add(recording == null ? token : record(token));
+        return token;
+    }
+
+    void addToken(Token token) {
+        tokens.add(token);
+    }
+
+    /**
+     * Throws the first failure to build a value, if any, once the input has been parsed without a syntax error
+     * being thrown.
+     */
+    private void throwBuildFailure() {
+        if (buildFailure != null) throw buildFailure;
+    }
+
+    /**
+     * @return the values built outside any frame, which are the results of the build
+     */
+    @SuppressWarnings("unchecked")
+    <T> List<T> builtValues() {
+        throwBuildFailure();
+        List<T> built = new ArrayList<>(values.size());
+        for (Object value : values) built.add((T) value);
+        return built;
+    }
+
+    private Token record(Token token) {
+        Integer parameter = placeholders.get(token.getStartIndex());
+        if (parameter != null) {
+            boolean isString;
+            if (_ctx.getRuleIndex() == RULE_value) isString = false;
+            else if (_ctx.getRuleIndex() == RULE_predicate) isString = true;
+            else {
+                failed = true;
+                throw TypeQLException.of(PREPARED_PARAMETER_POSITION.message(getString(token)));
+            }
+            token = new Placeholder(token, parameter, isString);
+            recording.placeholders.add((Placeholder) token);
+        }
+        recording.add(recording.tokens.size());
+        recording.tokens.add(token);
+        return token;
+    }
+
+    private static void truncate(List<?> list, int size) {
+        for (int i = list.size() - 1; i >= size; i--) list.remove(i);
+    }
+
+    private int tokenCount() {
+        return tokens.size() - tokenMarks[depth - 1];
+    }
+
+    private Token token(int i) {
+        return tokens.get(tokenMarks[depth - 1] + i);
+    }
+
+    private int tokenType(int i) {
+        return i < tokenCount() ? token(i).getType() : Token.EOF;
+    }
+
+    private int valueCount() {
+        return values.size() - valueMarks[depth - 1];
+    }
+
+    @SuppressWarnings("unchecked")
+    private <T> T value(int i) {
+        return (T) values.get(valueMarks[depth - 1] + i);
+    }
+
+    private <T> List<T> valueList() {
+        List<T> list = new ArrayList<>(valueCount());
+        for (int i = 0; i < valueCount(); i++) list.add(value(i));
+        return list;
+    }
+
+    private Object build(int rule) {
+        switch (rule) {
+            case RULE_query_define:
+                return new TypeQLDefine(value(0));
+            case RULE_query_undefine:
+                return new TypeQLUndefine(value(0));
+            case RULE_query_insert:
+                if (tokenType(0) == MATCH) return new TypeQLMatch.Unfiltered(value(0)).insert(this.<List<ThingVariable<?>>>value(1));
+                else return new TypeQLInsert(value(0));
+            case RULE_query_update:
+                return this.<TypeQLDelete>value(0).insert(this.<List<ThingVariable<?>>>value(1));
+            case RULE_query_delete:
+                return new TypeQLMatch.Unfiltered(value(0)).delete(this.<List<ThingVariable<?>>>value(1));
+            case RULE_query_match:
+                return buildMatch();
+            case RULE_query_match_aggregate:
+                return this.<TypeQLMatch>value(0).aggregate(aggregateMethod(0), aggregateVar(1));
+            case RULE_query_match_group:
+                return this.<TypeQLMatch>value(0).group(getVar(token(1)));
+            case RULE_query_match_group_agg:
+                return this.<TypeQLMatch>value(0).group(getVar(token(1))).aggregate(aggregateMethod(3), aggregateVar(4));
+            case RULE_definables:
+                return this.<Definable>valueList();
+            case RULE_schema_rule:
+                return buildRule();
+            case RULE_patterns:
+                return this.<Pattern>valueList();
+            case RULE_pattern_conjunction:
+                return new Conjunction<>(this.<List<Pattern>>value(0));
+            case RULE_pattern_disjunction:
+                return buildDisjunction();
+            case RULE_pattern_negation:
+                return buildNegation();
+            case RULE_variable_concept:
+                return getVar(token(0)).is(getVar(token(2)));
+            case RULE_variable_type:
+                return buildTypeVariable();
+            case RULE_variable_things:
+                return this.<ThingVariable<?>>valueList();
+            case RULE_variable_thing:
+                return buildThingVariable();
+            case RULE_variable_relation:
+                return buildRelationVariable();
+            case RULE_variable_attribute:
+                return buildAttributeVariable();
+            case RULE_relation:
+                return new ThingConstraint.Relation(this.<ThingConstraint.Relation.RolePlayer>valueList());
+            case RULE_role_player:
+                if (tokenCount() == 1) return new ThingConstraint.Relation.RolePlayer(getVar(token(0)));
+                else return new ThingConstraint.Relation.RolePlayer(typeOf(token(0)), getVar(token(2)));
+            case RULE_attributes:
+                return this.<ThingConstraint.Has>valueList();
+            case RULE_attribute:
+                return buildHas();
+            case RULE_predicate:
+                return buildPredicate();
+            default:
+                throw TypeQLException.of(ILLEGAL_STATE);
+        }
+    }
+
+    // QUERIES =================================================================
+
+    private TypeQLMatch buildMatch() {
+        TypeQLMatch match = new TypeQLMatch.Unfiltered(value(0));
+        List<UnboundVariable> variables = new ArrayList<>();
+        Sortable.Sorting sorting = null;
+        Long offset = null, limit = null;
+
+        // The modifiers follow the 'match' keyword, each terminated by ';'
+        int i = 1;
+        while (i < tokenCount()) {
+            switch (tokenType(i)) {
+                case GET:
+                    for (i++; tokenType(i) != SEMICOLON; i++) {
+                        if (tokenType(i) == VAR_) variables.add(getVar(token(i)));
+                    }
+                    break;
+                case SORT:
+                    List<Pair<UnboundVariable, TypeQLArg.Order>> sortVars = new ArrayList<>();
+                    for (i++; tokenType(i) != SEMICOLON; i++) {
+                        if (tokenType(i) != VAR_) continue;
+                        UnboundVariable var = getVar(token(i));
+                        if (tokenType(i + 1) == ORDER_) sortVars.add(new Pair<>(var, TypeQLArg.Order.of(token(++i).getText())));
+                        else sortVars.add(new Pair<>(var, null));
+                    }
+                    sorting = Sortable.Sorting.create(sortVars);
+                    break;
+                case OFFSET:
+                    offset = getLong(token(++i));
+                    i++;
+                    break;
+                case LIMIT:
+                    limit = getLong(token(++i));
+                    i++;
+                    break;
+                default:
+                    throw TypeQLException.of(ILLEGAL_GRAMMAR.message(token(i).getText()));
+            }
+            i++;
+        }
+        return new TypeQLMatch(match.conjunction(), variables, sorting, offset, limit);
+    }
+
+    private TypeQLToken.Aggregate.Method aggregateMethod(int i) {
+        return TypeQLToken.Aggregate.Method.of(token(i).getText());
+    }
+
+    private UnboundVariable aggregateVar(int i) {
+        return tokenType(i) == VAR_ ? getVar(token(i)) : null;
+    }
+
+    private Rule buildRule() {
+        String label = token(1).getText();
+        if (valueCount() == 2) {
+            List<? extends Pattern> when = value(0);
+            ThingVariable<?> then = value(1);
+            return new Rule(label, new Conjunction<>(when), then);
+        } else {
+            return new Rule(label);
+        }
+    }
+
+    // PATTERNS ================================================================
+
+    private Disjunction<? extends Pattern> buildDisjunction() {
+        List<Pattern> patterns = new ArrayList<>(valueCount());
+        for (int i = 0; i < valueCount(); i++) {
+            List<Pattern> nested = value(i);
+            if (nested.size() > 1) patterns.add(new Conjunction<>(nested));
+            else patterns.add(nested.get(0));
+        }
+        assert patterns.size() > 1;
+        return new Disjunction<>(patterns);
+    }
+
+    private Negation<? extends Pattern> buildNegation() {
+        List<Pattern> patterns = value(0);
+        if (patterns.size() == 1) return new Negation<>(patterns.get(0));
+        else return new Negation<>(new Conjunction<>(patterns));
+    }
+
+    // TYPE VARIABLES ==========================================================
+
+    private TypeVariable buildTypeVariable() {
+        TypeVariable type = typeAnyOf(token(0)).apply(
+                scopedLabel -> hidden().constrain(new TypeConstraint.Label(scopedLabel.first(), scopedLabel.second())),
+                UnboundVariable::toType
+        );
+
+        // Each constraint starts with its keyword, and constraints are separated by ','
+        int i = 1;
+        while (i < tokenCount()) {
+            Token keyword = token(i);
+            switch (keyword.getType()) {
+                case ABSTRACT:
+                    type = type.isAbstract();
+                    i++;
+                    break;
+                case SUB_:
+                    TypeQLToken.Constraint sub = TypeQLToken.Constraint.of(keyword.getText());
+                    type = type.constrain(new TypeConstraint.Sub(typeAnyOf(token(i + 1)), sub == TypeQLToken.Constraint.SUBX));
+                    i += 2;
+                    break;
+                case OWNS: {
+                    Either<String, UnboundVariable> owned = typeOf(token(i + 1));
+                    i += 2;
+                    Either<String, UnboundVariable> overridden = null;
+                    if (tokenType(i) == AS) {
+                        overridden = typeOf(token(i + 1));
+                        i += 2;
+                    }
+                    int first = i;
+                    while (tokenType(i) == ANNOTATION_KEY || tokenType(i) == ANNOTATION_UNIQUE) i++;
+                    TypeQLToken.Annotation[] annotations = new TypeQLToken.Annotation[i - first];
+                    for (int j = first; j < i; j++) annotations[j - first] = Parser.parseAnnotation(token(j));
+                    type = type.constrain(new TypeConstraint.Owns(owned, overridden, annotations));
+                    break;
+                }
+                case PLAYS: {
+                    Either<Pair<String, String>, UnboundVariable> played = typeScopedOf(token(i + 1));
+                    i += 2;
+                    Either<String, UnboundVariable> overridden = null;
+                    if (tokenType(i) == AS) {
+                        overridden = typeOf(token(i + 1));
+                        i += 2;
+                    }
+                    type = type.constrain(new TypeConstraint.Plays(played, overridden));
+                    break;
+                }
+                case RELATES: {
+                    Either<String, UnboundVariable> related = typeOf(token(i + 1));
+                    i += 2;
+                    Either<String, UnboundVariable> overridden = null;
+                    if (tokenType(i) == AS) {
+                        overridden = typeOf(token(i + 1));
+                        i += 2;
+                    }
+                    type = type.constrain(new TypeConstraint.Relates(related, overridden));
+                    break;
+                }
+                case VALUE:
+                    type = type.value(TypeQLArg.ValueType.of(token(i + 1).getText()));
+                    i += 2;
+                    break;
+                case REGEX:
+                    type = type.regex(getRegex(token(i + 1)));
+                    i += 2;
+                    break;
+                case TYPE:
+                    Pair<String, String> scopedLabel = labelAnyOf(token(i + 1));
+                    type = type.constrain(new TypeConstraint.Label(scopedLabel.first(), scopedLabel.second()));
+                    i += 2;
+                    break;
+                default:
+                    throw TypeQLException.of(ILLEGAL_GRAMMAR.message(keyword.getText()));
+            }
+            // Skip the ',' separating this constraint from the next
+            i++;
+        }
+        return type;
+    }
+
+    // THING VARIABLES =========================================================
+
+    private ThingVariable.Thing buildThingVariable() {
+        UnboundVariable unbound = getVar(token(0));
+        ThingVariable.Thing thing = null;
+
+        if (tokenType(1) == ISA_) thing = unbound.constrain(isaOf(token(1), token(2)));
+        else if (tokenType(1) == IID) thing = unbound.iid(token(2).getText());
+
+        if (valueCount() == 1) {
+            for (ThingConstraint.Has hasAttribute : this.<List<ThingConstraint.Has>>value(0)) {
+                if (thing == null) thing = unbound.constrain(hasAttribute);
+                else thing = thing.constrain(hasAttribute);
+            }
+        }
+        return thing;
+    }
+
+    private ThingVariable.Relation buildRelationVariable() {
+        int i = 0;
+        UnboundVariable unbound = tokenType(i) == VAR_ ? getVar(token(i++)) : hidden();
+
+        ThingVariable.Relation relation = unbound.constrain(this.<ThingConstraint.Relation>value(0));
+        if (tokenType(i) == ISA_) relation = relation.constrain(isaOf(token(i), token(i + 1)));
+
+        if (valueCount() == 2) {
+            for (ThingConstraint.Has hasAttribute : this.<List<ThingConstraint.Has>>value(1)) {
+                relation = relation.constrain(hasAttribute);
+            }
+        }
+        return relation;
+    }
+
+    private ThingVariable.Attribute buildAttributeVariable() {
+        int i = 0;
+        UnboundVariable unbound = tokenType(i) == VAR_ ? getVar(token(i++)) : hidden();
+
+        ThingVariable.Attribute attribute = unbound.constrain(this.<ThingConstraint.Value<?>>value(0));
+        if (tokenType(i) == ISA_) attribute = attribute.constrain(isaOf(token(i), token(i + 1)));
+
+        if (valueCount() == 2) {
+            for (ThingConstraint.Has hasAttribute : this.<List<ThingConstraint.Has>>value(1)) {
+                attribute = attribute.constrain(hasAttribute);
+            }
+        }
+        return attribute;
+    }
+
+    private ThingConstraint.Isa isaOf(Token isaToken, Token typeToken) {
+        TypeQLToken.Constraint isa = TypeQLToken.Constraint.of(isaToken.getText());
+
+        if (isa != null && isa.equals(TypeQLToken.Constraint.ISA)) {
+            return new ThingConstraint.Isa(typeOf(typeToken), false);
+        } else if (isa != null && isa.equals(TypeQLToken.Constraint.ISAX)) {
+            return new ThingConstraint.Isa(typeOf(typeToken), true);
+        } else {
+            throw TypeQLException.of(ILLEGAL_GRAMMAR.message(typeToken.getText()));
+        }
+    }
+
+    private ThingConstraint.Has buildHas() {
+        // Either 'has' label (variable | predicate), or 'has' variable
+        if (tokenCount() == 3) return new ThingConstraint.Has(token(1).getText(), getVar(token(2)));
+        else if (valueCount() == 1) return new ThingConstraint.Has(token(1).getText(), this.<ThingConstraint.Value<?>>value(0));
+        else return new ThingConstraint.Has(getVar(token(1)));
+    }
+
+    private ThingConstraint.Value<?> buildPredicate() {
+        TypeQLToken.Predicate predicate;
+        Object value;
+
+        switch (tokenType(0)) {
+            case EQ:
+            case NEQ:
+            case GT:
+            case GTE:
+            case LT:
+            case LTE:
+                predicate = TypeQLToken.Predicate.Equality.of(token(0).getText());
+                value = tokenType(1) == VAR_ ? getVar(token(1)) : literal(token(1));
+                break;
+            case CONTAINS:
+            case LIKE:
+                predicate = TypeQLToken.Predicate.SubString.of(token(0).getText());
+                if (bindings != null && token(1) instanceof Placeholder) value = bound(token(1));
+                else value = tokenType(0) == LIKE ? getRegex(token(1)) : getString(token(1));
+                break;
+            default:
+                predicate = TypeQLToken.Predicate.Equality.EQ;
+                value = literal(token(0));
+        }
+
+        assert predicate != null;
+        ThingConstraint.Value<?> constraint = Parser.valueConstraint(predicate, value);
+        if (constraint == null) throw TypeQLException.of(ILLEGAL_GRAMMAR.message(token(0).getText()));
+        return constraint;
+    }
+
+    private Object literal(Token token) {
+        if (bindings != null && token instanceof Placeholder) return bound(token);
+        else return getValue(token);
+    }
+
+    private Object bound(Token placeholder) {
+        return bindings[((Placeholder) placeholder).parameter];
+    }
+
+    /**
+     * A token that holds the place of a value, which is bound when a recorded query is replayed.
+     */
+    static class Placeholder extends CommonToken {
+
+        private static final long serialVersionUID = 1L;
+
+        private final int parameter;
+        private final boolean isString;
+
+        private Placeholder(Token token, int parameter, boolean isString) {
+            super(token);
+            this.parameter = parameter;
+            this.isString = isString;
+        }
+
+        int parameter() {
+            return parameter;
+        }
+
+        /**
+         * @return true if the placeholder is the operand of a substring predicate, which must be bound to a string
+         */
+        boolean isString() {
+            return isString;
+        }
+    }
+
+    /**
+     * The tokens consumed by a parse, and the rules that built values from them, in the order they occurred.
+     */
+    static class Recording {
+
+        private final List<Token> tokens;
+        private final List<Placeholder> placeholders;
+        private int[] operations;
+        private int size;
+        private TypeQLQuery query;
+
+        private Recording() {
+            this.tokens = new ArrayList<>();
+            this.placeholders = new ArrayList<>();
+            this.operations = new int[64];
+            this.size = 0;
+        }
+
+        private void add(int operation) {
+            if (size == operations.length) operations = Arrays.copyOf(operations, size * 2);
+            operations[size++] = operation;
+        }
+
+        List<Placeholder> placeholders() {
+            return placeholders;
+        }
+
+        TypeQLQuery query() {
+            return query;
+        }
+    }
+
+    // TYPES AND LABELS ========================================================
+
+    private static Either<Pair<String, String>, UnboundVariable> typeAnyOf(Token token) {
+        if (token.getType() == VAR_) return Either.second(getVar(token));
+        else return Either.first(labelAnyOf(token));
+    }
+
+    private static Either<Pair<String, String>, UnboundVariable> typeScopedOf(Token token) {
+        if (token.getType() == VAR_) return Either.second(getVar(token));
+        else return Either.first(labelAnyOf(token));
+    }
+
+    private static Either<String, UnboundVariable> typeOf(Token token) {
+        if (token.getType() == VAR_) return Either.second(getVar(token));
+        else return Either.first(token.getText());
+    }
+
+    private static Pair<String, String> labelAnyOf(Token token) {
+        if (token.getType() == LABEL_SCOPED_) {
+            String[] scopedLabel = token.getText().split(":");
+            return pair(scopedLabel[0], scopedLabel[1]);
+        } else {
+            return pair(null, token.getText());
+        }
+    }
+}
@@ -21,6 +21,7 @@
 
 package com.vaticle.typeql.lang.parser;
 
+import com.vaticle.typeql.lang.common.exception.TypeQLException;
 import org.antlr.v4.runtime.BaseErrorListener;
 import org.antlr.v4.runtime.RecognitionException;
 import org.antlr.v4.runtime.Recognizer;
@@ -28,6 +29,8 @@ import org.antlr.v4.runtime.Recognizer;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Objects;
+import java.util.function.IntFunction;
+import java.util.function.IntUnaryOperator;
 import java.util.stream.Collectors;
 
 import static com.vaticle.typedb.common.collection.Collections.list;
@@ -40,16 +43,62 @@ import static com.vaticle.typeql.lang.common.exception.ErrorMessage.SYNTAX_ERROR
  */
 public class ErrorListener extends BaseErrorListener {
 
-    private final List<String> queryLines;
+    private final IntFunction<String> queryLine;
+    private final IntUnaryOperator queryLineColumn;
+    private final boolean failFast;
     private final List<SyntaxError> errors = new ArrayList<>();
 
-    private ErrorListener(List<String> queryLines) {
-        this.queryLines = queryLines;
+    private ErrorListener(IntFunction<String> queryLine, IntUnaryOperator queryLineColumn, boolean failFast) {
+        this.queryLine = queryLine;
+        this.queryLineColumn = queryLineColumn;
+        this.failFast = failFast;
+    }
+
+    private static ErrorListener of(List<String> queryLines, int firstLine) {
+        return new ErrorListener(line -> queryLines.get(line - firstLine), line -> 0, false);
     }
 
     public static ErrorListener of(String query) {
-        List<String> queryLines = list(query.split("\n"));
-        return new ErrorListener(queryLines);
+        return of(list(query.split("\n")), 1);
+    }
+
+    /**
+     * Creates an error listener for a range of a larger script, which reports errors by their line in the script.
+     * The lexer of the range must start counting from {@link #firstLine(String, int)} and
+     * {@link #firstCharPositionInLine(String, int)}.
+     */
+    public static ErrorListener of(String script, int start, int end) {
+        return of(script, start, end, firstLine(script, start));
+    }
+
+    /**
+     * Creates an error listener for a range of a larger script whose first line is already known.
+     */
+    public static ErrorListener of(String script, int start, int end, int firstLine) {
+        int lineStart = script.lastIndexOf('\n', start - 1) + 1;
+        // The range may end in an empty line, on which an error at its end is reported
+        return of(list(script.substring(lineStart, end).split("\n", -1)), firstLine);
+    }
+
+    public static int firstLine(String script, int start) {
+        int line = 1;
+        for (int i = 0; i < start; i++) {
+            if (script.charAt(i) == '\n') line++;
+        }
+        return line;
+    }
+
+    public static int firstCharPositionInLine(String script, int start) {
+        return start - (script.lastIndexOf('\n', start - 1) + 1);
+    }
+
+    /**
+     * Creates an error listener for input that is not held in memory, such as a stream, which throws on the first
+     * syntax error. The line of the error is quoted if the given function returns it, or else only its number is.
+     * A line may be quoted from part way through it, from the position that the second function gives.
+     */
+    public static ErrorListener failFast(IntFunction<String> queryLine, IntUnaryOperator queryLineColumn) {
+        return new ErrorListener(queryLine, queryLineColumn, true);
     }
 
     @Override
@@ -57,7 +106,15 @@ public class ErrorListener extends BaseErrorListener {
             Recognizer<?, ?> recognizer, Object offendingSymbol,
             int line, int charPositionInLine, String msg, RecognitionException e
     ) {
-        errors.add(new SyntaxError(queryLines.get(line - 1), line, charPositionInLine, msg));
+        String quoted = queryLine.apply(line);
+        int column = quoted == null ? 0 : queryLineColumn.applyAsInt(line);
+        SyntaxError error = new SyntaxError(quoted, line, charPositionInLine - column, msg);
+        if (failFast) throw TypeQLException.of(error.toString());
+        errors.add(error);
+    }
+
+    public boolean hasErrors() {
+        return !errors.isEmpty();
     }
 
     @Override
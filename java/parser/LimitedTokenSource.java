@@ -0,0 +1,86 @@
+/*
+ * Copyright (C) 2022 Vaticle
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.vaticle.typeql.lang.parser;
+
+import org.antlr.v4.runtime.CharStream;
+import org.antlr.v4.runtime.Token;
+import org.antlr.v4.runtime.TokenFactory;
+import org.antlr.v4.runtime.TokenSource;
+
+/**
+ * Checks the tokens read from a lexer against the limits of a parse, as the parser's token stream reads them.
+ * Whitespace and comments are not counted.
+ */
+class LimitedTokenSource implements TokenSource {
+
+    private final TokenSource source;
+    private ParseLimits.Usage usage;
+
+    LimitedTokenSource(TokenSource source, ParseLimits.Usage usage) {
+        this.source = source;
+        this.usage = usage;
+    }
+
+    /**
+     * Checks the tokens that follow against the limits of another parse, for a source that is read by many parses.
+     */
+    void limit(ParseLimits.Usage usage) {
+        this.usage = usage;
+    }
+
+    @Override
+    public Token nextToken() {
+        Token token = source.nextToken();
+        if (token.getChannel() == Token.DEFAULT_CHANNEL && token.getType() != Token.EOF) usage.token(token.getType());
+        return token;
+    }
+
+    @Override
+    public int getLine() {
+        return source.getLine();
+    }
+
+    @Override
+    public int getCharPositionInLine() {
+        return source.getCharPositionInLine();
+    }
+
+    @Override
+    public CharStream getInputStream() {
+        return source.getInputStream();
+    }
+
+    @Override
+    public String getSourceName() {
+        return source.getSourceName();
+    }
+
+    @Override
+    public void setTokenFactory(TokenFactory<?> factory) {
+        source.setTokenFactory(factory);
+    }
+
+    @Override
+    public TokenFactory<?> getTokenFactory() {
+        return source.getTokenFactory();
+    }
+}
@@ -0,0 +1,169 @@
+/*
+ * Copyright (C) 2022 Vaticle
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.vaticle.typeql.lang.parser;
+
+import javax.annotation.Nullable;
+import java.io.IOException;
+import java.io.Reader;
+
+/**
+ * A reader that records the text it reads, so that syntax errors in input that is not held in memory can quote the
+ * line they are on, as they do for a string. Only the text from the start of the current query onwards is kept, so
+ * that many queries on one line are not all kept, and the first line kept is quoted from the start of the query.
+ */
+class LineRecordingReader extends Reader {
+
+    private static final int READ_AHEAD_LENGTH = 1 << 10;
+    private static final int MAX_QUOTED_LENGTH = 1 << 16;
+
+    private final Reader reader;
+    // The text from the start of the current query, some of which may have been read ahead of the lexer
+    private final StringBuilder text;
+    private int firstLine;
+    // Characters are counted as code points, as the lexer's indices and positions in lines are
+    private int firstColumn;
+    private int dropped;
+    private int delivered;
+    private boolean isEnded;
+
+    LineRecordingReader(Reader reader) {
+        this.reader = reader;
+        this.text = new StringBuilder();
+        this.firstLine = 1;
+        this.firstColumn = 0;
+        this.dropped = 0;
+        this.delivered = 0;
+        this.isEnded = false;
+    }
+
+    @Override
+    public int read(char[] buffer, int offset, int length) throws IOException {
+        if (delivered < text.length()) {
+            int read = Math.min(length, text.length() - delivered);
+            text.getChars(delivered, delivered + read, buffer, offset);
+            delivered += read;
+            return read;
+        }
+        int read = reader.read(buffer, offset, length);
+        if (read > 0) {
+            text.append(buffer, offset, read);
+            delivered += read;
+        } else if (read < 0) {
+            isEnded = true;
+        }
+        return read;
+    }
+
+    /**
+     * Drops the text before the given character index of the input, which no syntax error can be reported in any more.
+     */
+    void dropBefore(int index) {
+        if (index <= dropped) return;
+        int end = text.offsetByCodePoints(0, index - dropped);
+        int lastLineEnd = text.lastIndexOf("\n", end - 1);
+        if (lastLineEnd < 0) {
+            firstColumn += index - dropped;
+        } else {
+            for (int i = 0; i <= lastLineEnd; i++) {
+                if (text.charAt(i) == '\n') firstLine++;
+            }
+            firstColumn = text.codePointCount(lastLineEnd + 1, end);
+        }
+        dropped = index;
+        text.delete(0, end);
+        delivered -= end;
+    }
+
+    /**
+     * @return the text of the given line, from {@link #column(int)}, reading ahead of the lexer to the end of the line,
+     * or null if the line has been dropped or has not been read
+     */
+    @Nullable
+    String line(int line) {
+        int start = lineStart(line);
+        if (start < 0) return null;
+        int end = text.indexOf("\n", start);
+        int searched = text.length();
+        while (end < 0 && searched - start < MAX_QUOTED_LENGTH && readAhead()) {
+            end = text.indexOf("\n", searched);
+            searched = text.length();
+        }
+        // The line that ends the input is quoted without trailing whitespace, as the input of a string is stripped
+        return end < 0 ? text.substring(start).stripTrailing() : text.substring(start, end);
+    }
+
+    /**
+     * @return the position in the given line from which it is kept, which is only after its start on the first line
+     */
+    int column(int line) {
+        return line == firstLine ? firstColumn : 0;
+    }
+
+    /**
+     * @return the text between the given character indices of the input, inclusive, or null if it has been dropped
+     * or has not been read
+     */
+    @Nullable
+    String text(int start, int stop) {
+        if (start < dropped || stop < start - 1) return null;
+        try {
+            int from = text.offsetByCodePoints(0, start - dropped);
+            int to = text.offsetByCodePoints(from, stop - start + 1);
+            return to > delivered ? null : text.substring(from, to);
+        } catch (IndexOutOfBoundsException e) {
+            return null;
+        }
+    }
+
+    private int lineStart(int line) {
+        if (line < firstLine) return -1;
+        int start = 0;
+        for (int i = firstLine; i < line; i++) {
+            start = text.indexOf("\n", start) + 1;
+            if (start == 0) return -1;
+        }
+        return start;
+    }
+
+    /**
+     * @return true if more text may follow what has been read
+     */
+    private boolean readAhead() {
+        if (isEnded) return false;
+        char[] buffer = new char[READ_AHEAD_LENGTH];
+        int read;
+        try {
+            read = reader.read(buffer, 0, buffer.length);
+        } catch (IOException e) {
+            // The line is quoted as far as it could be read, and the lexer meets the failure when it reads on
+            return false;
+        }
+        if (read < 0) isEnded = true;
+        else text.append(buffer, 0, read);
+        return !isEnded;
+    }
+
+    @Override
+    public void close() throws IOException {
+        reader.close();
+    }
+}
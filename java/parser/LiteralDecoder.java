@@ -0,0 +1,244 @@
+/*
+ * Copyright (C) 2022 Vaticle
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.vaticle.typeql.lang.parser;
+
+import com.vaticle.typeql.lang.common.TypeQLToken;
+import com.vaticle.typeql.lang.common.exception.TypeQLException;
+import org.antlr.v4.runtime.CharStream;
+import org.antlr.v4.runtime.CodePointCharStream;
+import org.antlr.v4.runtime.Token;
+import org.antlr.v4.runtime.misc.Interval;
+
+import javax.annotation.Nullable;
+import java.time.DateTimeException;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+
+import static com.vaticle.typeql.lang.common.exception.ErrorMessage.ILLEGAL_GRAMMAR;
+
+/**
+ * Decodes the values of literal tokens by reading their characters in place from the lexer's input, rather than
+ * first copying the text of each token into a String.
+ *
+ * Only inputs held in memory can be read in place, and only the common forms of each literal are decoded by hand:
+ * integers of up to 18 digits, decimals of up to 15 digits, and dates and times with 4-digit years. Anything else
+ * is decoded from the token's text by the standard library, and every literal decodes to exactly the value that
+ * the standard library would give.
+ */
+class LiteralDecoder {
+
+    private static final int MAX_EXACT_LONG_DIGITS = 18;
+    // Decimals of up to 15 digits are exact as doubles, and so is every power of ten up to 22, so that one
+    // correctly rounded division gives the correctly rounded value of the decimal
+    private static final int MAX_EXACT_DOUBLE_DIGITS = 15;
+    private static final double[] POWERS_OF_TEN = {
+            1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11, 1e12, 1e13, 1e14, 1e15
+    };
+    private static final int[] NANOS_PER_DIGIT = {0, 100_000_000, 10_000_000, 1_000_000};
+    private static final int DATE_LENGTH = "yyyy-MM-dd".length();
+    private static final int MINUTES_LENGTH = "yyyy-MM-ddTHH:mm".length();
+    private static final int SECONDS_LENGTH = "yyyy-MM-ddTHH:mm:ss".length();
+    private static final int MAX_FRACTION_DIGITS = 3;
+
+    /**
+     * @return the input of the token if its characters can be read at any offset, or null if they cannot
+     */
+    @Nullable
+    private static CharStream inPlace(Token token) {
+        CharStream input = token.getInputStream();
+        if (input instanceof CodePointCharStream || input instanceof Utf8CharStream) return input;
+        else return null;
+    }
+
+    /**
+     * Reads the character at an offset without moving the stream, which the lexer may still be reading from.
+     */
+    private static int charAt(CharStream input, int offset) {
+        int index = input.index();
+        return input.LA(offset >= index ? offset - index + 1 : offset - index);
+    }
+
+    /**
+     * @return the value of the digits at the offset, or -1 if any of them is not a digit
+     */
+    private static int digits(CharStream input, int offset, int count) {
+        int value = 0;
+        for (int i = offset; i < offset + count; i++) {
+            int c = charAt(input, i);
+            if (c < '0' || c > '9') return -1;
+            value = value * 10 + (c - '0');
+        }
+        return value;
+    }
+
+    private static TypeQLException illegal(Token token) {
+        return TypeQLException.of(ILLEGAL_GRAMMAR.message(token.getText()));
+    }
+
+    static String decodeString(Token string) {
+        CharStream input = inPlace(string);
+        if (input == null) return string.getText().substring(1, string.getText().length() - 1);
+        assert string.getStopIndex() > string.getStartIndex();
+        assert isQuote(charAt(input, string.getStartIndex())) && isQuote(charAt(input, string.getStopIndex()));
+        return input.getText(Interval.of(string.getStartIndex() + 1, string.getStopIndex() - 1));
+    }
+
+    private static boolean isQuote(int c) {
+        return c == TypeQLToken.Char.QUOTE_DOUBLE.toString().charAt(0) ||
+                c == TypeQLToken.Char.QUOTE_SINGLE.toString().charAt(0);
+    }
+
+    static long decodeLong(Token number) {
+        CharStream input = inPlace(number);
+        if (input != null) {
+            int i = number.getStartIndex();
+            int end = number.getStopIndex() + 1;
+            int sign = charAt(input, i);
+            if (sign == '-' || sign == '+') i++;
+            if (end - i <= MAX_EXACT_LONG_DIGITS) {
+                long value = 0;
+                for (; i < end; i++) value = value * 10 + (charAt(input, i) - '0');
+                return sign == '-' ? -value : value;
+            }
+        }
+        try {
+            return Long.parseLong(number.getText());
+        } catch (NumberFormatException e) {
+            throw illegal(number);
+        }
+    }
+
+    static double decodeDouble(Token real) {
+        CharStream input = inPlace(real);
+        if (input != null) {
+            int i = real.getStartIndex();
+            int end = real.getStopIndex() + 1;
+            int sign = charAt(input, i);
+            if (sign == '-' || sign == '+') i++;
+            // The lexer has matched digits, a point, and digits
+            if (end - i - 1 <= MAX_EXACT_DOUBLE_DIGITS) {
+                long mantissa = 0;
+                int fractionDigits = -1;
+                for (; i < end; i++) {
+                    int c = charAt(input, i);
+                    if (c == '.') {
+                        fractionDigits = 0;
+                    } else {
+                        mantissa = mantissa * 10 + (c - '0');
+                        if (fractionDigits >= 0) fractionDigits++;
+                    }
+                }
+                double value = mantissa / POWERS_OF_TEN[fractionDigits];
+                return sign == '-' ? -value : value;
+            }
+        }
+        try {
+            return Double.parseDouble(real.getText());
+        } catch (NumberFormatException e) {
+            throw illegal(real);
+        }
+    }
+
+    static boolean decodeBoolean(Token bool) {
+        CharStream input = inPlace(bool);
+        int first = input == null ? bool.getText().charAt(0) : charAt(input, bool.getStartIndex());
+        // The lexer only matches the literals 'true' and 'false'
+        if (first == TypeQLToken.Literal.TRUE.toString().charAt(0)) return true;
+        else if (first == TypeQLToken.Literal.FALSE.toString().charAt(0)) return false;
+        else throw illegal(bool);
+    }
+
+    static LocalDateTime decodeDate(Token date) {
+        CharStream input = inPlace(date);
+        if (input != null && length(date) == DATE_LENGTH) {
+            LocalDate value = decodeLocalDate(input, date);
+            if (value != null) return value.atStartOfDay();
+        }
+        try {
+            return LocalDate.parse(date.getText(), DateTimeFormatter.ISO_LOCAL_DATE).atStartOfDay();
+        } catch (DateTimeParseException e) {
+            throw illegal(date);
+        }
+    }
+
+    static LocalDateTime decodeDateTime(Token dateTime) {
+        CharStream input = inPlace(dateTime);
+        int length = length(dateTime);
+        if (input != null && length >= MINUTES_LENGTH) {
+            LocalDate date = decodeLocalDate(input, dateTime);
+            int start = dateTime.getStartIndex();
+            int hour = digits(input, start + DATE_LENGTH + 1, 2);
+            int minute = digits(input, start + DATE_LENGTH + 4, 2);
+            int second = 0;
+            int nanos = 0;
+            boolean decoded = date != null && hour >= 0 && minute >= 0;
+            if (decoded && length > MINUTES_LENGTH) {
+                second = digits(input, start + MINUTES_LENGTH + 1, 2);
+                int fractionDigits = length - SECONDS_LENGTH - 1;
+                if (length == SECONDS_LENGTH) {
+                    decoded = second >= 0;
+                } else if (fractionDigits >= 1 && fractionDigits <= MAX_FRACTION_DIGITS) {
+                    int fraction = digits(input, start + SECONDS_LENGTH + 1, fractionDigits);
+                    nanos = fraction * NANOS_PER_DIGIT[fractionDigits];
+                    decoded = second >= 0 && fraction >= 0;
+                } else {
+                    decoded = false;
+                }
+            }
+            if (decoded) {
+                try {
+                    return date.atTime(hour, minute, second, nanos);
+                } catch (DateTimeException e) {
+                    throw illegal(dateTime);
+                }
+            }
+        }
+        try {
+            return LocalDateTime.parse(dateTime.getText(), DateTimeFormatter.ISO_LOCAL_DATE_TIME);
+        } catch (DateTimeParseException e) {
+            throw illegal(dateTime);
+        }
+    }
+
+    private static int length(Token token) {
+        return token.getStopIndex() - token.getStartIndex() + 1;
+    }
+
+    /**
+     * @return the date at the start of the token, if it has a 4-digit year, or null if it must be decoded from text
+     */
+    @Nullable
+    private static LocalDate decodeLocalDate(CharStream input, Token token) {
+        int start = token.getStartIndex();
+        int year = digits(input, start, 4);
+        int month = digits(input, start + 5, 2);
+        int day = digits(input, start + 8, 2);
+        if (year < 0 || month < 0 || day < 0) return null;
+        try {
+            return LocalDate.of(year, month, day);
+        } catch (DateTimeException e) {
+            throw illegal(token);
+        }
+    }
+}
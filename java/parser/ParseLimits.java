@@ -0,0 +1,198 @@
+/*
+ * Copyright (C) 2022 Vaticle
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.vaticle.typeql.lang.parser;
+
+import com.vaticle.typeql.lang.common.exception.ParseLimitException;
+
+import javax.annotation.Nullable;
+import java.time.Duration;
+import java.util.function.BooleanSupplier;
+
+import static com.vaticle.typeql.lang.common.exception.ErrorMessage.PARSE_CANCELLED;
+import static com.vaticle.typeql.lang.common.exception.ErrorMessage.PARSE_DEPTH_LIMIT_EXCEEDED;
+import static com.vaticle.typeql.lang.common.exception.ErrorMessage.PARSE_LENGTH_LIMIT_EXCEEDED;
+import static com.vaticle.typeql.lang.common.exception.ErrorMessage.PARSE_TIMEOUT;
+import static com.vaticle.typeql.lang.common.exception.ErrorMessage.PARSE_TOKEN_LIMIT_EXCEEDED;
+
+/**
+ * Limits on the resources that parsing one input may use, to protect a parser shared by many clients from
+ * pathological input. Parsing that exceeds a limit is abandoned with a {@link ParseLimitException}.
+ *
+ * The input length is checked before parsing starts. The other limits are checked as tokens are read from the lexer,
+ * which includes the tokens that the parser looks ahead to, so nesting deep enough to make that look ahead slow
+ * is caught early. The time limit and cancellation are checked every {@link #CHECK_INTERVAL} tokens, so exceeding them
+ * is noticed promptly without reading the clock for every token.
+ * A syntax error is reported by parsing a second time, to which the same limits apply, with the time limit running
+ * from the start of the first parse.
+ */
+public class ParseLimits {
+
+    private static final int CHECK_INTERVAL = 64;
+    private static final int CURLY_OPEN = DirectParser.literalType("{");
+    private static final int CURLY_CLOSE = DirectParser.literalType("}");
+    private static final ParseLimits UNLIMITED = new ParseLimits(Long.MAX_VALUE, Long.MAX_VALUE, Integer.MAX_VALUE, null, null);
+
+    private final long maxLength;
+    private final long maxTokens;
+    private final int maxDepth;
+    private final Duration timeout;
+    private final BooleanSupplier cancelled;
+
+    private ParseLimits(long maxLength, long maxTokens, int maxDepth,
+                        @Nullable Duration timeout, @Nullable BooleanSupplier cancelled) {
+        this.maxLength = maxLength;
+        this.maxTokens = maxTokens;
+        this.maxDepth = maxDepth;
+        this.timeout = timeout;
+        this.cancelled = cancelled;
+    }
+
+    public static ParseLimits unlimited() {
+        return UNLIMITED;
+    }
+
+    /**
+     * @param maxLength the maximum length of the input, in characters, or in bytes for byte input
+     */
+    public ParseLimits maxLength(long maxLength) {
+        if (maxLength <= 0) throw new IllegalArgumentException("Maximum input length must be positive");
+        return new ParseLimits(maxLength, maxTokens, maxDepth, timeout, cancelled);
+    }
+
+    /**
+     * @param maxTokens the maximum number of tokens the parser may read, excluding whitespace and comments
+     */
+    public ParseLimits maxTokens(long maxTokens) {
+        if (maxTokens <= 0) throw new IllegalArgumentException("Maximum token count must be positive");
+        return new ParseLimits(maxLength, maxTokens, maxDepth, timeout, cancelled);
+    }
+
+    /**
+     * @param maxDepth the maximum depth to which braces may be nested, which bounds the nesting of conjunctions,
+     *                 disjunctions and negations
+     */
+    public ParseLimits maxDepth(int maxDepth) {
+        if (maxDepth <= 0) throw new IllegalArgumentException("Maximum nesting depth must be positive");
+        return new ParseLimits(maxLength, maxTokens, maxDepth, timeout, cancelled);
+    }
+
+    public ParseLimits timeout(Duration timeout) {
+        if (timeout.isNegative() || timeout.isZero()) throw new IllegalArgumentException("Timeout must be positive");
+        return new ParseLimits(maxLength, maxTokens, maxDepth, timeout, cancelled);
+    }
+
+    /**
+     * @param cancelled polled while parsing, which is abandoned once it returns true
+     */
+    public ParseLimits cancellation(BooleanSupplier cancelled) {
+        return new ParseLimits(maxLength, maxTokens, maxDepth, timeout, cancelled);
+    }
+
+    boolean isUnlimited() {
+        return this == UNLIMITED;
+    }
+
+    void checkLength(long length) {
+        if (length > maxLength) {
+            throw ParseLimitException.of(PARSE_LENGTH_LIMIT_EXCEEDED.message(length, maxLength));
+        }
+    }
+
+    /**
+     * @return the usage of a parse that starts now, checked against these limits
+     */
+    Usage start() {
+        return new Usage(timeout == null ? 0 : System.nanoTime() + timeout.toNanos());
+    }
+
+    /**
+     * The resources used by one parse, which may take several passes over the input.
+     */
+    class Usage {
+
+        private final long deadline;
+        private long tokens;
+        private int depth;
+        private boolean exceeded;
+        private boolean stopped;
+
+        private Usage(long deadline) {
+            this.deadline = deadline;
+            this.tokens = 0;
+            this.depth = 0;
+            this.exceeded = false;
+            this.stopped = false;
+        }
+
+        /**
+         * @return the usage of a part of this parse, such as one of the segments of a script, which counts its tokens
+         * and nesting afresh, but runs against the same deadline. Cancellation and the deadline are checked as the part
+         * starts, so that a parse of many parts too short to reach a check still stops.
+         */
+        Usage part() {
+            checkTime();
+            return new Usage(deadline);
+        }
+
+        /**
+         * Starts another pass over the input, which counts tokens and nesting afresh.
+         */
+        void restart() {
+            tokens = 0;
+            depth = 0;
+        }
+
+        void token(int type) {
+            if (++tokens > maxTokens) throw exceeded(PARSE_TOKEN_LIMIT_EXCEEDED.message(maxTokens));
+            if (type == CURLY_OPEN && ++depth > maxDepth) throw exceeded(PARSE_DEPTH_LIMIT_EXCEEDED.message(maxDepth));
+            else if (type == CURLY_CLOSE) depth--;
+            if (tokens % CHECK_INTERVAL == 0) checkTime();
+        }
+
+        private void checkTime() {
+            if (cancelled != null && cancelled.getAsBoolean()) throw stopped(PARSE_CANCELLED.message());
+            if (timeout != null && System.nanoTime() - deadline > 0) throw stopped(PARSE_TIMEOUT.message(timeout));
+        }
+
+        private ParseLimitException stopped(String error) {
+            stopped = true;
+            return exceeded(error);
+        }
+
+        private ParseLimitException exceeded(String error) {
+            exceeded = true;
+            return ParseLimitException.of(error);
+        }
+
+        boolean isExceeded() {
+            return exceeded;
+        }
+
+        /**
+         * @return true if the parse was cancelled or ran out of time, rather than exceeding a limit on its tokens or
+         * nesting, which the rest of the parse, of which this may be a part, would also do
+         */
+        boolean isStopped() {
+            return stopped;
+        }
+    }
+}
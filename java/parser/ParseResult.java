@@ -0,0 +1,83 @@
+/*
+ * Copyright (C) 2022 Vaticle
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.vaticle.typeql.lang.parser;
+
+import com.vaticle.typeql.lang.query.TypeQLQuery;
+
+import java.util.Optional;
+import java.util.function.Supplier;
+
+/**
+ * The outcome of parsing one query of a batch: either the query, or the error that its parse failed with.
+ * A failed query does not fail the rest of the batch.
+ */
+public class ParseResult<T extends TypeQLQuery> {
+
+    private final T query;
+    private final RuntimeException error;
+
+    private ParseResult(T query, RuntimeException error) {
+        this.query = query;
+        this.error = error;
+    }
+
+    public static <T extends TypeQLQuery> ParseResult<T> of(T query) {
+        return new ParseResult<>(query, null);
+    }
+
+    public static <T extends TypeQLQuery> ParseResult<T> failed(RuntimeException error) {
+        if (error == null) throw new NullPointerException("Null error");
+        return new ParseResult<>(null, error);
+    }
+
+    /**
+     * Runs a parse, capturing any exception it throws as a failed result.
+     */
+    public static <T extends TypeQLQuery> ParseResult<T> attempt(Supplier<T> parse) {
+        try {
+            return of(parse.get());
+        } catch (RuntimeException e) {
+            return failed(e);
+        }
+    }
+
+    public boolean isSuccess() {
+        return error == null;
+    }
+
+    /**
+     * @return the parsed query, or throws the error that its parse failed with
+     */
+    public T query() {
+        if (error != null) throw error;
+        return query;
+    }
+
+    public Optional<RuntimeException> error() {
+        return Optional.ofNullable(error);
+    }
+
+    @Override
+    public String toString() {
+        return error == null ? query.toString() : error.getMessage();
+    }
+}
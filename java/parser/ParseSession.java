@@ -0,0 +1,535 @@
+/*
+ * Copyright (C) 2022 Vaticle
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.vaticle.typeql.lang.parser;
+
+import com.vaticle.typeql.lang.common.TypeQLToken;
+import com.vaticle.typeql.lang.common.exception.TypeQLException;
+import com.vaticle.typeql.lang.pattern.Definable;
+import com.vaticle.typeql.lang.query.TypeQLDefine;
+import com.vaticle.typeql.lang.query.TypeQLQuery;
+import com.vaticle.typeql.lang.query.TypeQLUndefine;
+
+import javax.annotation.Nullable;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import static com.vaticle.typeql.lang.common.TypeQLToken.Command.DEFINE;
+import static com.vaticle.typeql.lang.common.TypeQLToken.Command.UNDEFINE;
+import static java.util.stream.Collectors.toList;
+
+/**
+ * A script of many queries that is parsed once, and then parsed again as it is edited, such as a schema file open
+ * in an editor. Each edit only re-parses the queries, and the definables of define and undefine queries, whose
+ * text it has changed: everything else keeps the objects it was parsed into before.
+ *
+ * The script is divided into segments at the query boundaries found by {@link QueryBoundaryScanner}, and the
+ * segment of a define or undefine query is divided again at the semicolons that end its definables. An edit is
+ * scanned from the last boundary that it cannot have moved, until the boundaries after the edit are found again,
+ * so the text scanned and parsed depends on the size of the edit and of the segments it touches, not of the script.
+ * A define or undefine query with an edited definable is rebuilt from the definables it already had.
+ *
+ * Syntax errors are kept with the segment or definable that has them, and are reported by {@link #queries()}
+ * until an edit corrects them. A syntax error that an edit before it has moved is parsed again when it is reported,
+ * so that it reports the line it is now on. A session is not safe for concurrent use.
+ */
+public class ParseSession {
+
+    private final Parser parser;
+    private final List<QuerySegment> segments;
+    private String script;
+    @Nullable
+    private List<TypeQLQuery> queries;
+    private long parsedChars;
+
+    ParseSession(Parser parser, String script) {
+        if (script == null) throw TypeQLException.of("Query String is NULL");
+        parser.limits().checkLength(script.length());
+        this.parser = parser;
+        this.script = script;
+        this.segments = new ArrayList<>();
+        int[] boundaries = QueryBoundaryScanner.boundaries(script);
+        int start = 0;
+        for (int boundary : boundaries) {
+            if (boundary == 0) continue;
+            segments.add(parseSegment(start, boundary));
+            start = boundary;
+        }
+        segments.add(parseSegment(start, script.length()));
+    }
+
+    public String script() {
+        return script;
+    }
+
+    /**
+     * @return the number of characters that have been parsed since the session began
+     */
+    public long parsedChars() {
+        return parsedChars;
+    }
+
+    /**
+     * @return the queries of the script, in order
+     * @throws TypeQLException the first syntax error in the script, if it has any
+     */
+    public List<TypeQLQuery> queries() {
+        if (queries == null) {
+            List<TypeQLQuery> all = new ArrayList<>();
+            for (int i = 0; i < segments.size(); i++) {
+                QuerySegment segment = segments.get(i);
+                if (segment.hasMovedError()) segments.set(i, segment = reparse(segment));
+                if (segment.error != null) throw segment.error;
+                all.addAll(segment.queries);
+            }
+            queries = Collections.unmodifiableList(all);
+        }
+        return queries;
+    }
+
+    /**
+     * Replaces a range of the script, and re-parses what the replacement has changed. The edit is applied to the
+     * script even if it leaves a syntax error, so that later edits can correct it.
+     *
+     * @return the queries of the edited script, in order
+     * @throws TypeQLException the first syntax error in the edited script, if it has any
+     */
+    public List<TypeQLQuery> edit(int offset, int length, String replacement) {
+        if (replacement == null) throw new IllegalArgumentException("Replacement text must not be null");
+        if (offset < 0 || length < 0 || offset + length > script.length()) {
+            throw new IllegalArgumentException(
+                    "Edit of " + length + " characters at " + offset + " lies outside the script"
+            );
+        }
+        String edited = script.substring(0, offset) + replacement + script.substring(offset + length);
+        parser.limits().checkLength(edited.length());
+        Edit edit = new Edit(offset, script.substring(offset, offset + length), replacement);
+        String previous = script;
+        script = edited;
+        queries = null;
+
+        int index = lastSegmentBefore(offset);
+        QuerySegment segment = segments.get(index);
+        QuerySegment updated = null;
+        // An edit within the definables of a query can be re-parsed without scanning the rest of the query
+        if (isWithinDefinables(segment, edit, previous.length())) updated = updateDefinables(segment, edit, true);
+        if (updated != null) {
+            segments.set(index, updated);
+            for (int i = index + 1; i < segments.size(); i++) shift(segments.get(i), edit);
+        } else {
+            rescan(index, previous, edit);
+        }
+        return queries();
+    }
+
+    private void rescan(int index, String previous, Edit edit) {
+        // Scanning resumes at the last boundary before the edit whose keyword the edit has left untouched
+        int first = index;
+        if (first > 0 && QueryBoundaryScanner.wordEnd(previous, segments.get(first).start) >= edit.offset) first--;
+
+        int from = segments.get(first).start;
+        List<Integer> starts = new ArrayList<>();
+        starts.add(from);
+        int resumed = segments.size();
+        int next = first + 1;
+        QueryBoundaryScanner scanner = new QueryBoundaryScanner(script, from);
+        for (int boundary = scanner.next(); boundary >= 0; boundary = scanner.next()) {
+            if (boundary == from) continue;
+            if (boundary >= edit.newEnd) {
+                // Once a boundary is found where there was one before, the boundaries after it are all unchanged
+                int previousBoundary = boundary - edit.delta;
+                while (next < segments.size() && segments.get(next).start < previousBoundary) next++;
+                if (next < segments.size() && segments.get(next).start == previousBoundary) {
+                    resumed = next;
+                    break;
+                }
+            }
+            starts.add(boundary);
+        }
+
+        List<QuerySegment> replaced = segments.subList(first, resumed);
+        List<QuerySegment> updated = new ArrayList<>(starts.size());
+        int end = resumed < segments.size() ? segments.get(resumed).start + edit.delta : script.length();
+        for (int i = 0; i < starts.size(); i++) {
+            updated.add(updateSegment(replaced, starts.get(i), i + 1 < starts.size() ? starts.get(i + 1) : end, edit));
+        }
+        replaced.clear();
+        segments.addAll(first, updated);
+        for (int i = first + updated.size(); i < segments.size(); i++) shift(segments.get(i), edit);
+    }
+
+    private void shift(QuerySegment segment, Edit edit) {
+        segment.shift(edit.delta);
+        if (segment.error != null && isMoved(segment.start, edit)) segment.move();
+    }
+
+    /**
+     * @return true if an edit before the given offset of the edited script has moved the text at the offset to
+     * another line, or along its line, which the syntax errors reported in the text give
+     */
+    private boolean isMoved(int offset, Edit edit) {
+        return edit.lineDelta != 0 || script.lastIndexOf('\n', offset - 1) < edit.newEnd;
+    }
+
+    /**
+     * Parses again the syntax errors of a segment that edits have moved, so that they report where they now are.
+     */
+    private QuerySegment reparse(QuerySegment segment) {
+        if (segment.command == null) return parseSegment(segment.start, segment.end);
+        List<DefinableSegment> definables = new ArrayList<>(segment.definables.size());
+        for (DefinableSegment definable : segment.definables) {
+            definables.add(definable.isMoved ? parseDefinables(
+                    segment.command, segment.start, Collections.singletonList(definable.start), definable.end
+            ).get(0) : definable);
+        }
+        // A query without definables is parsed whole again
+        return schemaSegment(segment.start, segment.end, segment.command, definables);
+    }
+
+    private int lastSegmentBefore(int offset) {
+        int low = 0, high = segments.size() - 1;
+        while (low < high) {
+            int middle = (low + high + 1) >>> 1;
+            if (segments.get(middle).start < offset) low = middle;
+            else high = middle - 1;
+        }
+        return low;
+    }
+
+    /**
+     * @return true if the edit lies between the keyword of a define or undefine query and the keyword of the
+     * query after it, without touching either
+     */
+    private static boolean isWithinDefinables(QuerySegment segment, Edit edit, int scriptLength) {
+        return segment.command != null && !segment.definables.isEmpty() &&
+                segment.start + segment.command.toString().length() < edit.offset &&
+                (edit.oldEnd < segment.end || segment.end == scriptLength);
+    }
+
+    /**
+     * @return the segment of the edited script between the given offsets, reusing a segment of the script before
+     * the edit if its text is unchanged, or its definables that are unchanged
+     */
+    private QuerySegment updateSegment(List<QuerySegment> previous, int start, int end, Edit edit) {
+        for (QuerySegment segment : previous) {
+            if (end <= edit.offset && segment.start == start && segment.end == end) {
+                return segment;
+            } else if (start >= edit.newEnd && segment.start + edit.delta == start && segment.end + edit.delta == end) {
+                shift(segment, edit);
+                return segment;
+            } else if (segment.start == start && segment.end + edit.delta == end &&
+                    isWithinDefinables(segment, edit, Integer.MAX_VALUE)) {
+                return updateDefinables(segment, edit, false);
+            }
+        }
+        return parseSegment(start, end);
+    }
+
+    /**
+     * Re-parses the definables of a query that an edit within its definables has changed. Unless the query
+     * boundaries have already been found again, it first checks that the edit has not moved any of them.
+     *
+     * @return the edited query, or null if the edit may have moved a query boundary
+     */
+    @Nullable
+    private QuerySegment updateDefinables(QuerySegment segment, Edit edit, boolean checkBoundaries) {
+        List<DefinableSegment> definables = segment.definables;
+        int offset = edit.offset - segment.start;
+        int first = 0, high = definables.size() - 1;
+        while (first < high) {
+            int middle = (first + high + 1) >>> 1;
+            if (definables.get(middle).start <= offset) first = middle;
+            else high = middle - 1;
+        }
+
+        // The definables are divided again from the first that the edit has changed, until a division is found
+        // where there was one before, after which the definables are all unchanged
+        int end = segment.end + edit.delta - segment.start;
+        int newEnd = edit.newEnd - segment.start;
+        int resumed = definables.size();
+        int next = first + 1;
+        List<Integer> starts = new ArrayList<>();
+        int start = definables.get(first).start;
+        while (start < end) {
+            if (start >= newEnd) {
+                int previousStart = start - edit.delta;
+                while (next < definables.size() && definables.get(next).start < previousStart) next++;
+                if (next < definables.size() && definables.get(next).start == previousStart) {
+                    resumed = next;
+                    break;
+                }
+            }
+            starts.add(start);
+            int definableEnd = QueryBoundaryScanner.definableEnd(script, segment.start + start, segment.start + end);
+            start = definableEnd - segment.start;
+        }
+        if (checkBoundaries && !QueryBoundaryScanner.isWithinQuery(
+                script, segment.start + definables.get(first).start, segment.start + start
+        )) {
+            return null;
+        }
+
+        List<DefinableSegment> updated = new ArrayList<>(definables.subList(0, first));
+        updated.addAll(parseDefinables(segment.command, segment.start, starts, start));
+        for (int i = resumed; i < definables.size(); i++) {
+            DefinableSegment definable = definables.get(i);
+            definable.shift(edit.delta);
+            if (definable.error != null && isMoved(segment.start + definable.start, edit)) definable.isMoved = true;
+            updated.add(definable);
+        }
+        return schemaSegment(segment.start, segment.end + edit.delta, segment.command, updated);
+    }
+
+    private QuerySegment parseSegment(int start, int end) {
+        TypeQLToken.Command command = schemaCommand(start);
+        if (command != null) {
+            List<Integer> starts = new ArrayList<>();
+            int definableStart = command.toString().length();
+            while (start + definableStart < end) {
+                starts.add(definableStart);
+                definableStart = QueryBoundaryScanner.definableEnd(script, start + definableStart, end) - start;
+            }
+            return schemaSegment(start, end, command, parseDefinables(command, start, starts, end - start));
+        } else if (isBlank(start, end)) {
+            return new QuerySegment(start, end, null, null, Collections.emptyList(), null);
+        }
+        parsedChars += end - start;
+        try {
+            return new QuerySegment(start, end, null, null, parser.parseQueriesEOF(script, start, end), null);
+        } catch (TypeQLException e) {
+            return new QuerySegment(start, end, null, null, null, e);
+        }
+    }
+
+    private QuerySegment schemaSegment(
+            int start, int end, TypeQLToken.Command command, List<DefinableSegment> definables
+    ) {
+        List<TypeQLQuery> queries = new ArrayList<>();
+        for (DefinableSegment definable : definables) {
+            if (definable.error != null) {
+                return new QuerySegment(start, end, command, definables, null, definable.error);
+            }
+            if (definable.query != null) queries.add(definable.query);
+        }
+        if (queries.isEmpty()) {
+            // A query without definables is a syntax error, which is reported by parsing it whole
+            parsedChars += end - start;
+            try {
+                List<TypeQLQuery> parsed = parser.parseQueriesEOF(script, start, end);
+                return new QuerySegment(start, end, command, definables, parsed, null);
+            } catch (TypeQLException e) {
+                return new QuerySegment(start, end, command, definables, null, e);
+            }
+        }
+        // Each definable was validated as a query of its own, so the query of them all need not be validated again
+        TypeQLQuery query = command == DEFINE
+                ? TypeQLDefine.merge(queries.stream().map(TypeQLQuery::asDefine).collect(toList()))
+                : TypeQLUndefine.merge(queries.stream().map(TypeQLQuery::asUndefine).collect(toList()));
+        return new QuerySegment(start, end, command, definables, Collections.singletonList(query), null);
+    }
+
+    /**
+     * Parses the definables of a query that start at the given offsets, relative to the start of the query, each
+     * with the whitespace and comments before it, into queries of each definable alone. They are parsed together,
+     * and only parsed one by one to find those with syntax errors.
+     */
+    private List<DefinableSegment> parseDefinables(
+            TypeQLToken.Command command, int queryStart, List<Integer> starts, int end
+    ) {
+        List<Definable> parsed = null;
+        int count = 0;
+        boolean[] isBlank = new boolean[starts.size()];
+        for (int i = 0; i < starts.size(); i++) {
+            int definableEnd = i + 1 < starts.size() ? starts.get(i + 1) : end;
+            isBlank[i] = isBlank(queryStart + starts.get(i), queryStart + definableEnd);
+            if (!isBlank[i]) count++;
+        }
+        if (count > 1) {
+            parsedChars += end - starts.get(0);
+            try {
+                parsed = parser.parseDefinablesEOF(script, queryStart + starts.get(0), queryStart + end);
+                if (parsed.size() != count) parsed = null;
+            } catch (TypeQLException e) {
+                parsed = null;
+            }
+        }
+
+        List<DefinableSegment> definables = new ArrayList<>(starts.size());
+        int next = 0;
+        for (int i = 0; i < starts.size(); i++) {
+            int start = starts.get(i);
+            int definableEnd = i + 1 < starts.size() ? starts.get(i + 1) : end;
+            if (isBlank[i]) {
+                definables.add(new DefinableSegment(start, definableEnd, null, null));
+                continue;
+            }
+            try {
+                List<Definable> definable;
+                if (parsed != null) {
+                    definable = Collections.singletonList(parsed.get(next++));
+                } else {
+                    parsedChars += definableEnd - start;
+                    definable = parser.parseDefinablesEOF(script, queryStart + start, queryStart + definableEnd);
+                }
+                TypeQLQuery query = command == DEFINE ? new TypeQLDefine(definable) : new TypeQLUndefine(definable);
+                definables.add(new DefinableSegment(start, definableEnd, query, null));
+            } catch (TypeQLException e) {
+                definables.add(new DefinableSegment(start, definableEnd, null, e));
+            }
+        }
+        return definables;
+    }
+
+    @Nullable
+    private TypeQLToken.Command schemaCommand(int start) {
+        int keywordEnd = QueryBoundaryScanner.wordEnd(script, start);
+        for (TypeQLToken.Command command : new TypeQLToken.Command[]{DEFINE, UNDEFINE}) {
+            String keyword = command.toString();
+            if (keywordEnd - start == keyword.length() && script.startsWith(keyword, start)) return command;
+        }
+        return null;
+    }
+
+    /**
+     * @return true if the range holds nothing but whitespace and comments
+     */
+    private boolean isBlank(int start, int end) {
+        for (int i = start; i < end; i++) {
+            char c = script.charAt(i);
+            if (c == '#') {
+                while (i < end && script.charAt(i) != '\n') i++;
+            } else if (c != ' ' && c != '\t' && c != '\r' && c != '\n') {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static class Edit {
+
+        private final int offset;
+        private final int oldEnd;
+        private final int newEnd;
+        private final int delta;
+        private final int lineDelta;
+
+        private Edit(int offset, String removed, String replacement) {
+            this.offset = offset;
+            this.oldEnd = offset + removed.length();
+            this.newEnd = offset + replacement.length();
+            this.delta = replacement.length() - removed.length();
+            this.lineDelta = lines(replacement) - lines(removed);
+        }
+
+        private static int lines(String text) {
+            int lines = 0;
+            for (int i = 0; i < text.length(); i++) {
+                if (text.charAt(i) == '\n') lines++;
+            }
+            return lines;
+        }
+    }
+
+    /**
+     * The text of one or more queries, between two query boundaries.
+     */
+    private static class QuerySegment {
+
+        private int start;
+        private int end;
+        // Define and undefine queries also keep their definables, at offsets relative to the start of the query
+        @Nullable
+        private final TypeQLToken.Command command;
+        @Nullable
+        private final List<DefinableSegment> definables;
+        @Nullable
+        private final List<TypeQLQuery> queries;
+        @Nullable
+        private final TypeQLException error;
+        private boolean isMoved;
+
+        private QuerySegment(
+                int start, int end, @Nullable TypeQLToken.Command command, @Nullable List<DefinableSegment> definables,
+                @Nullable List<TypeQLQuery> queries, @Nullable TypeQLException error
+        ) {
+            this.start = start;
+            this.end = end;
+            this.command = command;
+            this.definables = definables;
+            this.queries = queries;
+            this.error = error;
+            this.isMoved = false;
+        }
+
+        private void shift(int delta) {
+            start += delta;
+            end += delta;
+        }
+
+        /**
+         * Records that an edit has moved this segment, and so the syntax errors of it and of its definables.
+         */
+        private void move() {
+            isMoved = true;
+            if (definables == null) return;
+            for (DefinableSegment definable : definables) {
+                if (definable.error != null) definable.isMoved = true;
+            }
+        }
+
+        private boolean hasMovedError() {
+            if (isMoved) return true;
+            if (definables == null) return false;
+            for (DefinableSegment definable : definables) {
+                if (definable.isMoved) return true;
+            }
+            return false;
+        }
+    }
+
+    /**
+     * The text of a definable, with the whitespace and comments before it, or of the blank text after the last one.
+     */
+    private static class DefinableSegment {
+
+        private int start;
+        private int end;
+        @Nullable
+        private final TypeQLQuery query;
+        @Nullable
+        private final TypeQLException error;
+        private boolean isMoved;
+
+        private DefinableSegment(int start, int end, @Nullable TypeQLQuery query, @Nullable TypeQLException error) {
+            this.start = start;
+            this.end = end;
+            this.query = query;
+            this.error = error;
+            this.isMoved = false;
+        }
+
+        private void shift(int delta) {
+            start += delta;
+            end += delta;
+        }
+    }
+}
@@ -0,0 +1,128 @@
+/*
+ * Copyright (C) 2022 Vaticle
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.vaticle.typeql.lang.parser;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Counts the parses of one entry point of the {@link Parser}, and tracks the recent ratio of them that fail
+ * with a syntax error, from which the parser chooses its strategy when adaptive parsing is enabled.
+ *
+ * Input is first parsed with a fast strategy that gives up at the first syntax error, and then parsed again
+ * with a strict strategy to report the error in detail, so a syntax error costs two parses. While syntax errors
+ * are common, an adaptive parser instead parses once with the strict strategy, which is slower for correct input.
+ *
+ * The failure ratio is an exponentially weighted moving average over roughly the last {@link #WINDOW} parses.
+ * It is updated without synchronisation, so concurrent updates may occasionally be lost.
+ */
+public class ParseStatistics {
+
+    public enum EntryPoint {
+        QUERY, QUERIES, PATTERN, PATTERNS, DEFINABLES, VARIABLE, LABEL, SCHEMA_RULE
+    }
+
+    private static final int WINDOW = 64;
+    // Separate thresholds to switch in each direction, so that a ratio near either does not flip the strategy back and forth
+    private static final double SINGLE_PASS_ABOVE = 0.25;
+    private static final double TWO_PASS_BELOW = 0.1;
+
+    private final EntryPoint entryPoint;
+    private final LongAdder parses;
+    private final LongAdder failures;
+    private final LongAdder fallbacks;
+    private final LongAdder singlePassParses;
+    private volatile double failureRatio;
+    private volatile boolean singlePass;
+
+    ParseStatistics(EntryPoint entryPoint) {
+        this.entryPoint = entryPoint;
+        this.parses = new LongAdder();
+        this.failures = new LongAdder();
+        this.fallbacks = new LongAdder();
+        this.singlePassParses = new LongAdder();
+        this.failureRatio = 0;
+        this.singlePass = false;
+    }
+
+    void record(boolean failed) {
+        parses.increment();
+        if (failed) failures.increment();
+        double ratio = failureRatio + ((failed ? 1 : 0) - failureRatio) / WINDOW;
+        failureRatio = ratio;
+        if (!singlePass && ratio > SINGLE_PASS_ABOVE) singlePass = true;
+        else if (singlePass && ratio < TWO_PASS_BELOW) singlePass = false;
+    }
+
+    void recordFallback() {
+        fallbacks.increment();
+    }
+
+    void recordSinglePass() {
+        singlePassParses.increment();
+    }
+
+    public EntryPoint entryPoint() {
+        return entryPoint;
+    }
+
+    public long parses() {
+        return parses.sum();
+    }
+
+    /**
+     * @return the number of parses that failed with a syntax error
+     */
+    public long failures() {
+        return failures.sum();
+    }
+
+    /**
+     * @return the number of parses that failed with the fast strategy, and were parsed again with the strict strategy
+     */
+    public long fallbacks() {
+        return fallbacks.sum();
+    }
+
+    /**
+     * @return the number of parses made once with the strict strategy, without trying the fast strategy first
+     */
+    public long singlePassParses() {
+        return singlePassParses.sum();
+    }
+
+    public double failureRatio() {
+        return failureRatio;
+    }
+
+    /**
+     * @return true if syntax errors have been common enough recently for an adaptive parser to parse in a single pass
+     */
+    public boolean isSinglePass() {
+        return singlePass;
+    }
+
+    @Override
+    public String toString() {
+        return entryPoint + "{parses=" + parses() + ", failures=" + failures() + ", fallbacks=" + fallbacks() +
+                ", singlePassParses=" + singlePassParses() + ", failureRatio=" + failureRatio + "}";
+    }
+}
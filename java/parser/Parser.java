@@ -28,7 +28,9 @@ import com.vaticle.typeql.grammar.TypeQLLexer;
 import com.vaticle.typeql.grammar.TypeQLParser;
 import com.vaticle.typeql.lang.common.TypeQLArg;
 import com.vaticle.typeql.lang.common.TypeQLToken;
+import com.vaticle.typeql.lang.common.exception.ParseLimitException;
 import com.vaticle.typeql.lang.common.exception.TypeQLException;
+import com.vaticle.typeql.lang.parser.ParseStatistics.EntryPoint;
 import com.vaticle.typeql.lang.pattern.Conjunction;
 import com.vaticle.typeql.lang.pattern.Definable;
 import com.vaticle.typeql.lang.pattern.Disjunction;
@@ -51,43 +53,83 @@ import com.vaticle.typeql.lang.query.TypeQLUndefine;
 import com.vaticle.typeql.lang.query.TypeQLUpdate;
 import com.vaticle.typeql.lang.query.builder.Sortable;
 import org.antlr.v4.runtime.ANTLRErrorStrategy;
-import org.antlr.v4.runtime.BailErrorStrategy;
+import org.antlr.v4.runtime.CharStream;
 import org.antlr.v4.runtime.CharStreams;
+import org.antlr.v4.runtime.CommonTokenFactory;
 import org.antlr.v4.runtime.CommonTokenStream;
 import org.antlr.v4.runtime.DefaultErrorStrategy;
 import org.antlr.v4.runtime.ParserRuleContext;
+import org.antlr.v4.runtime.Token;
+import org.antlr.v4.runtime.TokenFactory;
+import org.antlr.v4.runtime.TokenSource;
+import org.antlr.v4.runtime.TokenStream;
+import org.antlr.v4.runtime.UnbufferedCharStream;
+import org.antlr.v4.runtime.UnbufferedTokenStream;
 import org.antlr.v4.runtime.atn.PredictionMode;
 import org.antlr.v4.runtime.misc.ParseCancellationException;
 import org.antlr.v4.runtime.tree.TerminalNode;
 
 import javax.annotation.Nullable;
-import java.time.LocalDate;
+import java.io.Reader;
+import java.nio.ByteBuffer;
 import java.time.LocalDateTime;
-import java.time.format.DateTimeFormatter;
-import java.time.format.DateTimeParseException;
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.EnumMap;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.function.Consumer;
 import java.util.function.Function;
+import java.util.function.IntSupplier;
+import java.util.function.Supplier;
+import java.util.stream.IntStream;
 import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 import static com.vaticle.typedb.common.collection.Collections.pair;
 import static com.vaticle.typeql.lang.common.exception.ErrorMessage.ILLEGAL_GRAMMAR;
 import static com.vaticle.typeql.lang.common.exception.ErrorMessage.ILLEGAL_STATE;
 import static com.vaticle.typeql.lang.common.util.Strings.unescapeRegex;
 import static com.vaticle.typeql.lang.pattern.variable.UnboundVariable.hidden;
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.util.Spliterator.NONNULL;
+import static java.util.Spliterator.ORDERED;
 import static java.util.stream.Collectors.toList;
+import static org.antlr.v4.runtime.atn.PredictionMode.LL;
 import static org.antlr.v4.runtime.atn.PredictionMode.LL_EXACT_AMBIG_DETECTION;
-import static org.antlr.v4.runtime.atn.PredictionMode.SLL;
 
 /**
  * TypeQL query string parser to produce TypeQL Java objects
  */
-public class Parser extends TypeQLBaseVisitor {
+public class Parser extends TypeQLBaseVisitor implements ParserBackend {
 
     private static final Set<String> TYPEQL_KEYWORDS = getKeywords();
+    private static final int SEGMENTS_PER_THREAD = 4;
+    private static final int MIN_SEGMENT_LENGTH = 1 << 16;
+    private static final int RESULT_CHUNK_LENGTH = 1 << 14;
+    private static final int POOLED_PARSERS_PER_PROCESSOR = 2;
+
+    private final ParserPool pool = new ParserPool(
+            Runtime.getRuntime().availableProcessors() * POOLED_PARSERS_PER_PROCESSOR
+    );
+    private final Map<EntryPoint, ParseStatistics> statistics = createStatistics();
+    private volatile boolean adaptive = false;
+    private volatile ParseLimits limits = ParseLimits.unlimited();
+
+    private static Map<EntryPoint, ParseStatistics> createStatistics() {
+        Map<EntryPoint, ParseStatistics> statistics = new EnumMap<>(EntryPoint.class);
+        for (EntryPoint entryPoint : EntryPoint.values()) statistics.put(entryPoint, new ParseStatistics(entryPoint));
+        return Collections.unmodifiableMap(statistics);
+    }
 
     private static Set<String> getKeywords() {
         HashSet<String> keywords = new HashSet<>();
@@ -106,85 +148,683 @@ public class Parser extends TypeQLBaseVisitor {
         return new TypeQLLexer(CharStreams.fromString(string));
     }
 
+    /**
+     * Enables choosing the parsing strategy for each entry point from its recent rate of syntax errors,
+     * as described by {@link ParseStatistics}.
+     */
+    public void setAdaptive(boolean adaptive) {
+        this.adaptive = adaptive;
+    }
+
+    public ParseStatistics statistics(EntryPoint entryPoint) {
+        return statistics.get(entryPoint);
+    }
+
+    /**
+     * Sets the limits that apply to every parse that is not given limits of its own.
+     */
+    public void setLimits(ParseLimits limits) {
+        this.limits = limits;
+    }
+
+    public ParseLimits limits() {
+        return limits;
+    }
+
     private <CONTEXT extends ParserRuleContext, RETURN> RETURN parse(
-            String rawTypeQLString, Function<TypeQLParser, CONTEXT> rule, Function<CONTEXT, RETURN> visitor
+            EntryPoint entryPoint, String rawTypeQLString, Function<TypeQLParser, CONTEXT> rule,
+            Function<CONTEXT, RETURN> visitor
+    ) {
+        return build(entryPoint, rawTypeQLString, limits, parser -> visitor.apply(rule.apply(parser)));
+    }
+
+    private <RETURN> RETURN build(
+            EntryPoint entryPoint, String rawTypeQLString, ParseLimits limits, Function<DirectParser, RETURN> builder
     ) {
         if (rawTypeQLString == null) throw TypeQLException.of("Query String is NULL");
+        limits.checkLength(rawTypeQLString.length());
         String typeQLString = rawTypeQLString.stripTrailing();
         if (typeQLString.isEmpty()) throw TypeQLException.of("Query String is empty or blank");
+        return build(entryPoint, new Source(
+                () -> CharStreams.fromString(typeQLString), () -> lexer(typeQLString), () -> ErrorListener.of(typeQLString)
+        ), limits, builder);
+    }
+
+    private <RETURN> RETURN build(
+            EntryPoint entryPoint, ByteBuffer utf8Bytes, ParseLimits limits, Function<DirectParser, RETURN> builder
+    ) {
+        if (utf8Bytes == null) throw TypeQLException.of("Query Buffer is NULL");
+        limits.checkLength(utf8Bytes.remaining());
+        if (Utf8CharStream.isBlank(utf8Bytes)) throw TypeQLException.of("Query String is empty or blank");
+        // The input is only decoded into a String if it needs to be reported in a syntax error
+        return build(entryPoint, new Source(
+                () -> new Utf8CharStream(utf8Bytes), () -> new TypeQLLexer(new Utf8CharStream(utf8Bytes)),
+                () -> ErrorListener.of(UTF_8.decode(utf8Bytes.duplicate()).toString().stripTrailing())
+        ), limits, builder);
+    }
+
+    private <RETURN> RETURN build(
+            EntryPoint entryPoint, Source source, ParseLimits limits, Function<DirectParser, RETURN> builder
+    ) {
+        return build(entryPoint, source, limits.isUnlimited() ? null : limits.start(), builder);
+    }
+
+    private <RETURN> RETURN build(
+            EntryPoint entryPoint, Source source, @Nullable ParseLimits.Usage usage,
+            Function<DirectParser, RETURN> builder
+    ) {
+        ParseStatistics statistics = this.statistics.get(entryPoint);
+        if (adaptive && statistics.isSinglePass()) {
+            statistics.recordSinglePass();
+            return buildStrict(statistics, source, usage, builder);
+        }
+
+        RETURN result = buildFast(statistics, source, usage, builder);
+        if (result != null) return result;
+        if (usage != null) usage.restart();
+        return buildStrict(statistics, source, usage, builder);
+    }
 
+    /**
+     * @return the result of parsing the source quickly, or null if the fast parse failed and must be retried strictly
+     */
+    @Nullable
+    private <RETURN> RETURN buildFast(
+            ParseStatistics statistics, Source source, @Nullable ParseLimits.Usage usage, Function<DirectParser, RETURN> builder
+    ) {
+        // BailErrorStrategy + SLL is a very fast parsing strategy for queries
+        // that are expected to be correct. However, it may not be able to
+        // provide detailed/useful error message, if at all.
+        // Parsers for this strategy are reused from the pool, as their setup is significant for short queries.
+        ParserPool.Instance instance = pool.acquire(source.input(), usage);
         try {
-            // BailErrorStrategy + SLL is a very fast parsing strategy for queries
-            // that are expected to be correct. However, it may not be able to
-            // provide detailed/useful error message, if at all.
-            return visitor.apply(parseContext(rule, typeQLString, new BailErrorStrategy(), SLL, null));
+            RETURN result = builder.apply(instance.parser());
+            statistics.record(false);
+            return result;
         } catch (ParseCancellationException e) {
-            // We parse the query one more time, with "strict strategy" :
-            // DefaultErrorStrategy + LL_EXACT_AMBIG_DETECTION
-            // This was not set to default parsing strategy, but it is useful
-            // to produce detailed/useful error message
-            ErrorListener errorListener = ErrorListener.of(typeQLString);
-            parseContext(rule, typeQLString, new DefaultErrorStrategy(), LL_EXACT_AMBIG_DETECTION, errorListener);
-            throw TypeQLException.of(errorListener.toString());
+            statistics.recordFallback();
+            return null;
+        } finally {
+            pool.release(instance);
+            PredictionCache.afterParse();
+        }
+    }
+
+    private <RETURN> RETURN buildStrict(
+            ParseStatistics statistics, Source source, @Nullable ParseLimits.Usage usage, Function<DirectParser, RETURN> builder
+    ) {
+        // We parse the query with "strict strategy" :
+        // DefaultErrorStrategy + LL_EXACT_AMBIG_DETECTION
+        // This was not set to default parsing strategy, but it is useful
+        // to produce detailed/useful error message
+        ErrorListener errorListener = source.errorListener();
+        DirectParser parser = parser(
+                source.lexer(), new DefaultErrorStrategy(), LL_EXACT_AMBIG_DETECTION, errorListener, usage
+        );
+        RETURN result = null;
+        try {
+            result = builder.apply(parser);
+        } catch (ParseLimitException e) {
+            throw e;
+        } catch (RuntimeException e) {
+            // Input that has been recovered from a syntax error may fail to build, but the syntax error is the cause
+            if (!errorListener.hasErrors()) throw e;
         }
+        // A fast parse can also fail on correct input that needs full context to predict, which this parse accepts
+        statistics.record(errorListener.hasErrors());
+        if (errorListener.hasErrors()) throw TypeQLException.of(errorListener.toString());
+        return result;
     }
 
-    private <CONTEXT extends ParserRuleContext> CONTEXT parseContext(
-            Function<TypeQLParser, CONTEXT> rule,
-            String typeQLString, ANTLRErrorStrategy errorHandlingStrategy, PredictionMode prediction,
-            @Nullable ErrorListener errorListener
+    private DirectParser parser(
+            TypeQLLexer lexer, ANTLRErrorStrategy errorHandlingStrategy, PredictionMode prediction,
+            @Nullable ErrorListener errorListener, @Nullable ParseLimits.Usage usage
     ) {
-        TypeQLLexer lexer = lexer(typeQLString);
         lexer.removeErrorListeners();
         if (errorListener != null) lexer.addErrorListener(errorListener);
-        CommonTokenStream tokens = new CommonTokenStream(lexer);
-        TypeQLParser parser = new TypeQLParser(tokens);
+        CommonTokenStream tokens = new CommonTokenStream(usage == null ? lexer : new LimitedTokenSource(lexer, usage));
+        DirectParser parser = new DirectParser(tokens);
+        parser.limit(usage);
+        lexer.addErrorListener(parser.failureListener());
         parser.removeErrorListeners();
         if (errorListener != null) parser.addErrorListener(errorListener);
         parser.setErrorHandler(errorHandlingStrategy);
         parser.getInterpreter().setPredictionMode(prediction);
-        return rule.apply(parser);
+        return parser;
     }
 
-    @SuppressWarnings("unchecked")
     public <T extends TypeQLQuery> T parseQueryEOF(String queryString) {
-        return (T) parse(queryString, TypeQLParser::eof_query, this::visitEof_query);
+        return parseQueryEOF(queryString, limits);
     }
 
+    @Override
     @SuppressWarnings("unchecked")
+    public <T extends TypeQLQuery> T parseQueryEOF(String queryString, ParseLimits limits) {
+        return (T) build(EntryPoint.QUERY, queryString, limits, DirectParser::buildQuery);
+    }
+
+    /**
+     * Parses a query with placeholders for its values, written {@code ?name}, that can be built many times
+     * with values bound to them. See {@link PreparedQuery}.
+     */
+    public <T extends TypeQLQuery> PreparedQuery<T> prepareQueryEOF(String queryString) {
+        if (queryString == null) throw TypeQLException.of("Query String is NULL");
+        List<String> parameters = new ArrayList<>();
+        Map<Integer, Integer> placeholders = new HashMap<>();
+        String template = PreparedQuery.template(queryString, parameters, placeholders);
+        DirectParser.Recording recording = build(
+                EntryPoint.QUERY, template, limits, parser -> parser.recordQuery(placeholders)
+        );
+        return new PreparedQuery<>(this, recording, parameters);
+    }
+
+    TypeQLQuery replayQuery(DirectParser.Recording recording, Object[] bindings) {
+        // Replaying reads no input, but reuses a pooled parser's buffers
+        ParserPool.Instance instance = pool.acquire(null, null);
+        try {
+            return instance.parser().replayQuery(recording, bindings);
+        } finally {
+            pool.release(instance);
+        }
+    }
+
     public <T extends TypeQLQuery> Stream<T> parseQueriesEOF(String queryString) {
-        return (Stream<T>) parse(queryString, TypeQLParser::eof_queries, this::visitEof_queries);
+        return parseQueriesEOF(queryString, limits);
+    }
+
+    @Override
+    public <T extends TypeQLQuery> Stream<T> parseQueriesEOF(String queryString, ParseLimits limits) {
+        return build(EntryPoint.QUERIES, queryString, limits, DirectParser::<T>buildQueries).stream();
+    }
+
+    /**
+     * Checks the syntax of a query without building it, throwing the syntax errors that parsing it would throw.
+     * A query that is syntactically valid may still be invalid, such as by getting a variable that it does not match,
+     * which is only checked if the semantics are also checked, by building the query.
+     */
+    public void validateQueryEOF(String queryString, boolean checkSemantics) {
+        if (checkSemantics) parseQueryEOF(queryString, limits);
+        else build(EntryPoint.QUERY, queryString, limits, DirectParser::recogniseQuery);
+    }
+
+    /**
+     * Parses a script of many queries on the given pool. The script is divided into segments at top-level query
+     * boundaries, found by {@link QueryBoundaryScanner}, and the segments are parsed independently.
+     * The queries are returned in their order in the script, and syntax errors report their line in the script.
+     * The parser's limits on the length of input and the time taken apply to the whole script, and its other limits
+     * apply to each segment.
+     */
+    public <T extends TypeQLQuery> Stream<T> parseQueriesEOF(String queryString, ForkJoinPool pool) {
+        if (queryString == null) throw TypeQLException.of("Query String is NULL");
+        ParseLimits limits = this.limits;
+        limits.checkLength(queryString.length());
+        String typeQLString = queryString.stripTrailing();
+        if (typeQLString.isEmpty()) throw TypeQLException.of("Query String is empty or blank");
+
+        List<Integer> segments = segments(typeQLString, pool.getParallelism() * SEGMENTS_PER_THREAD);
+        if (segments.size() == 1) return parseQueriesEOF(typeQLString, limits);
+        // The segments count their own tokens and nesting, but share the deadline of the whole script
+        ParseLimits.Usage usage = limits.isUnlimited() ? null : limits.start();
+        List<ForkJoinTask<List<T>>> tasks = new ArrayList<>(segments.size());
+        for (int i = 0; i < segments.size(); i++) {
+            int start = segments.get(i);
+            int end = i + 1 < segments.size() ? segments.get(i + 1) : typeQLString.length();
+            tasks.add(pool.submit(() -> parseSegment(typeQLString, start, end, usage == null ? null : usage.part())));
+        }
+
+        List<T> queries = new ArrayList<>();
+        try {
+            // Segments are joined in order, so the error reported is the first in the script
+            for (ForkJoinTask<List<T>> task : tasks) queries.addAll(task.get());
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException) throw (RuntimeException) e.getCause();
+            if (e.getCause() instanceof Error) throw (Error) e.getCause();
+            throw TypeQLException.of(ILLEGAL_STATE);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw TypeQLException.of(ILLEGAL_STATE);
+        } finally {
+            tasks.forEach(task -> task.cancel(false));
+        }
+        return queries.stream();
+    }
+
+    private static List<Integer> segments(String script, int maxSegments) {
+        int segmentLength = Math.max(MIN_SEGMENT_LENGTH, script.length() / maxSegments);
+        List<Integer> segments = new ArrayList<>();
+        segments.add(0);
+        QueryBoundaryScanner scanner = new QueryBoundaryScanner(script);
+        int last = 0;
+        for (int boundary = scanner.next(); boundary >= 0; boundary = scanner.next()) {
+            if (boundary - last >= segmentLength) {
+                segments.add(boundary);
+                last = boundary;
+            }
+        }
+        return segments;
+    }
+
+    private <T extends TypeQLQuery> List<T> parseSegment(
+            String script, int start, int end, @Nullable ParseLimits.Usage usage
+    ) {
+        return build(EntryPoint.QUERIES, segment(script, start, end), usage, DirectParser::<T>buildQueries);
+    }
+
+    /**
+     * Parses the queries in a range of a larger script, reporting syntax errors by their line in the script.
+     */
+    <T extends TypeQLQuery> List<T> parseQueriesEOF(String script, int start, int end) {
+        return parseSegment(script, start, end, limits.isUnlimited() ? null : limits.start());
+    }
+
+    /**
+     * Parses the definables in a range of a larger script, reporting syntax errors by their line in the script.
+     */
+    List<Definable> parseDefinablesEOF(String script, int start, int end) {
+        return build(EntryPoint.DEFINABLES, segment(script, start, end), limits, DirectParser::buildDefinables);
+    }
+
+    private Source segment(String script, int start, int end) {
+        return segment(script, start, end, () -> ErrorListener.firstLine(script, start));
+    }
+
+    private Source segment(String script, int start, int end, IntSupplier firstLine) {
+        String segment = script.substring(start, end);
+        return new Source(() -> CharStreams.fromString(segment), () -> {
+            TypeQLLexer lexer = lexer(segment);
+            lexer.setLine(firstLine.getAsInt());
+            lexer.setCharPositionInLine(ErrorListener.firstCharPositionInLine(script, start));
+            return lexer;
+        }, () -> ErrorListener.of(script, start, end, firstLine.getAsInt()));
+    }
+
+    /**
+     * Parses a script of many queries, yielding a result for every query in it, so that a query that fails to parse
+     * does not stop the rest of the script from being parsed. After an error, parsing resumes at the next top-level
+     * query keyword found by {@link QueryBoundaryScanner}, and any text before the first query keyword fails as a
+     * query of its own.
+     * The script is parsed quickly in chunks of many queries, and only the queries of a chunk that fails are parsed
+     * again one at a time, so that only a failing query is parsed strictly to report its syntax errors, by their line
+     * in the script. Chunks are parsed as the stream is consumed. The parser's limits on the length of input and the
+     * time taken apply to the whole stream, which throws once it is cancelled or out of time, and its other limits
+     * apply to each chunk and each query parsed again.
+     */
+    public <T extends TypeQLQuery> Stream<ParseResult<T>> parseQueryResultsEOF(String queryString) {
+        if (queryString == null) throw TypeQLException.of("Query String is NULL");
+        ParseLimits limits = this.limits;
+        limits.checkLength(queryString.length());
+        String typeQLString = queryString.stripTrailing();
+        if (typeQLString.isEmpty()) throw TypeQLException.of("Query String is empty or blank");
+
+        int[] starts = queryStarts(typeQLString);
+        List<Integer> chunks = new ArrayList<>();
+        for (int i = 0; i < starts.length; i++) {
+            if (chunks.isEmpty() || starts[i] - starts[chunks.get(chunks.size() - 1)] >= RESULT_CHUNK_LENGTH) {
+                chunks.add(i);
+            }
+        }
+        chunks.add(starts.length);
+        LineCounter lines = new LineCounter(typeQLString);
+        ParseLimits.Usage usage = limits.isUnlimited() ? null : limits.start();
+        return IntStream.range(0, chunks.size() - 1).mapToObj(
+                c -> this.<T>parseChunk(typeQLString, starts, chunks.get(c), chunks.get(c + 1), usage, lines)
+        ).flatMap(List::stream);
+    }
+
+    /**
+     * @return the offsets of the queries in a script, the first of which includes any text before the first query
+     */
+    private static int[] queryStarts(String script) {
+        int[] boundaries = QueryBoundaryScanner.boundaries(script);
+        if (boundaries.length > 0 && isBlank(script, boundaries[0])) {
+            boundaries[0] = 0;
+            return boundaries;
+        }
+        int[] starts = new int[boundaries.length + 1];
+        System.arraycopy(boundaries, 0, starts, 1, boundaries.length);
+        return starts;
+    }
+
+    private static boolean isBlank(String script, int end) {
+        for (int i = 0; i < end; i++) {
+            char c = script.charAt(i);
+            if (c == '#') {
+                int lineEnd = script.indexOf('\n', i);
+                if (lineEnd < 0 || lineEnd >= end) return true;
+                i = lineEnd;
+            } else if (!Character.isWhitespace(c)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private <T extends TypeQLQuery> List<ParseResult<T>> parseChunk(
+            String script, int[] starts, int first, int last, @Nullable ParseLimits.Usage usage, LineCounter lines
+    ) {
+        int start = starts[first];
+        int end = last < starts.length ? starts[last] : script.length();
+        ParseLimits.Usage chunkUsage = usage == null ? null : usage.part();
+        List<T> queries;
+        try {
+            queries = buildFast(
+                    statistics.get(EntryPoint.QUERIES), segment(script, start, end, () -> lines.lineAt(start)),
+                    chunkUsage, DirectParser::<T>buildQueries
+            );
+        } catch (ParseLimitException e) {
+            // A chunk may exceed the limits on tokens and nesting that its queries are each within
+            if (chunkUsage.isStopped()) throw e;
+            queries = null;
+        } catch (RuntimeException e) {
+            // Correct syntax may still fail to build a query, which is reported when the query is parsed alone
+            queries = null;
+        }
+        List<ParseResult<T>> results = new ArrayList<>(last - first);
+        if (queries != null) {
+            queries.forEach(query -> results.add(ParseResult.of(query)));
+            return results;
+        }
+        for (int i = first; i < last; i++) {
+            int queryStart = starts[i];
+            int queryEnd = i + 1 < starts.length ? starts[i + 1] : script.length();
+            ParseLimits.Usage queryUsage = usage == null ? null : usage.part();
+            try {
+                List<T> parsed = build(
+                        EntryPoint.QUERIES, segment(script, queryStart, queryEnd, () -> lines.lineAt(queryStart)),
+                        queryUsage, DirectParser::<T>buildQueries
+                );
+                parsed.forEach(query -> results.add(ParseResult.of(query)));
+            } catch (ParseLimitException e) {
+                if (queryUsage.isStopped()) throw e;
+                results.add(ParseResult.failed(e));
+            } catch (RuntimeException e) {
+                results.add(ParseResult.failed(e));
+            }
+        }
+        return results;
+    }
+
+    /**
+     * Classifies the first query of a script from its tokens, without parsing it. See {@link QueryClassification}.
+     */
+    public QueryClassification classifyQuery(String queryString) {
+        return new QueryClassifier(nonBlank(queryString)).next(false);
+    }
+
+    /**
+     * Classifies each query of a script from its tokens, without parsing them, in their order in the script.
+     */
+    public List<QueryClassification> classifyQueries(String queryString) {
+        QueryClassifier classifier = new QueryClassifier(nonBlank(queryString));
+        List<QueryClassification> classifications = new ArrayList<>();
+        while (classifier.hasNext()) classifications.add(classifier.next(true));
+        return classifications;
+    }
+
+    private static String nonBlank(String queryString) {
+        if (queryString == null) throw TypeQLException.of("Query String is NULL");
+        if (queryString.isBlank()) throw TypeQLException.of("Query String is empty or blank");
+        return queryString;
+    }
+
+    /**
+     * Parses a script of many queries into a session that re-parses only what each edit to the script changes.
+     * See {@link ParseSession}.
+     */
+    public ParseSession parseSession(String script) {
+        return new ParseSession(this, script);
+    }
+
+    @SuppressWarnings("unchecked")
+    public <T extends TypeQLQuery> T parseQueryEOF(ByteBuffer utf8Bytes) {
+        return (T) build(EntryPoint.QUERY, utf8Bytes, limits, DirectParser::buildQuery);
+    }
+
+    public <T extends TypeQLQuery> Stream<T> parseQueriesEOF(ByteBuffer utf8Bytes) {
+        return build(EntryPoint.QUERIES, utf8Bytes, limits, DirectParser::<T>buildQueries).stream();
+    }
+
+    /**
+     * Lazily parses a sequence of queries from a reader, lexing incrementally and emitting each query
+     * as soon as it has been parsed. Neither the tokens nor the parse tree of a query are retained once
+     * it has been emitted, so memory use does not grow with the size of the input.
+     * The parser's limits apply to each query, except for the length of input, which is not known in advance.
+     * The reader is not closed by this method.
+     */
+    public <T extends TypeQLQuery> Stream<T> parseQueriesEOF(Reader reader) {
+        if (reader == null) throw TypeQLException.of("Query Reader is NULL");
+        return StreamSupport.stream(this.<T>querySpliterator(reader, limits), false);
+    }
+
+    /**
+     * Publishes the queries read from a reader to a single subscriber, parsing each only once the subscriber has
+     * requested it. Parsing runs on the given executor. See {@link QueryPublisher}.
+     * The reader is not closed by this method.
+     */
+    public <T extends TypeQLQuery> QueryPublisher<T> publishQueries(Reader reader, Executor executor) {
+        if (reader == null) throw TypeQLException.of("Query Reader is NULL");
+        if (executor == null) throw new NullPointerException("Null executor");
+        ParseLimits limits = this.limits;
+        // The lexer reads ahead as soon as it is created, so it is not created until the first request
+        return new QueryPublisher<>(() -> querySpliterator(reader, limits), executor);
+    }
+
+    private <T extends TypeQLQuery> Spliterator<T> querySpliterator(Reader reader, ParseLimits limits) {
+        LineRecordingReader lines = new LineRecordingReader(reader);
+        ErrorListener errorListener = ErrorListener.failFast(lines::line, lines::column);
+        TypeQLLexer lexer = new TypeQLLexer(new UnbufferedCharStream(lines));
+        lexer.setTokenFactory(new CommonTokenFactory(true));
+        lexer.removeErrorListeners();
+        lexer.addErrorListener(errorListener);
+        // Tokens read ahead of a query count towards its limits, though they may belong to the next query
+        LimitedTokenSource limited = limits.isUnlimited()
+                ? null : new LimitedTokenSource(new DefaultChannelTokenSource(lexer), limits.start());
+        TokenStream tokens = new UnbufferedTokenStream<>(
+                limited == null ? new DefaultChannelTokenSource(lexer) : limited
+        ) {
+            // Syntax errors quote the input between tokens, including the hidden tokens that the stream drops
+            @Override
+            public String getText(Token start, Token stop) {
+                if (start == null || stop == null) return super.getText(start, stop);
+                String text = lines.text(start.getStartIndex(), stop.getStopIndex());
+                return text != null ? text : super.getText(start, stop);
+            }
+        };
+        DirectParser parser = new DirectParser(tokens);
+        parser.removeErrorListeners();
+        parser.addErrorListener(errorListener);
+        // The token stream reads its first token before the parser exists, so the parser's listener is added after
+        lexer.removeErrorListeners();
+        lexer.addErrorListener(parser.failureListener());
+        lexer.addErrorListener(errorListener);
+        // Without the whole input in memory there is no second pass, so use full LL prediction from the start
+        parser.getInterpreter().setPredictionMode(LL);
+
+        return new Spliterators.AbstractSpliterator<T>(Long.MAX_VALUE, ORDERED | NONNULL) {
+
+            private boolean isEmpty = true;
+
+            @Override
+            @SuppressWarnings("unchecked")
+            public boolean tryAdvance(Consumer<? super T> action) {
+                if (tokens.LA(1) == Token.EOF) {
+                    if (isEmpty) throw TypeQLException.of("Query String is empty or blank");
+                    return false;
+                }
+                isEmpty = false;
+                lines.dropBefore(tokens.LT(1).getStartIndex());
+                if (limited != null) {
+                    ParseLimits.Usage usage = limits.start();
+                    limited.limit(usage);
+                    parser.limit(usage);
+                }
+                action.accept((T) parser.buildNextQuery());
+                return true;
+            }
+        };
+    }
+
+    /**
+     * Fills the shared prediction DFA by parsing a corpus of representative queries, so that the parses that
+     * follow do not pay to build it. Queries that fail to parse still contribute the DFA built before the failure.
+     *
+     * @return the number of queries that parsed successfully
+     */
+    public int warmUp(Iterable<String> queries) {
+        int parsed = 0;
+        for (String query : queries) {
+            try {
+                parseQueriesEOF(query).forEach(q -> {});
+                parsed++;
+            } catch (TypeQLException e) {
+                // The corpus is only used for its effect on the DFA
+            }
+        }
+        return parsed;
     }
 
     public Pattern parsePatternEOF(String patternString) {
-        return parse(patternString, TypeQLParser::eof_pattern, this::visitEof_pattern);
+        return parse(EntryPoint.PATTERN, patternString, TypeQLParser::eof_pattern, this::visitEof_pattern);
     }
 
     public List<? extends Pattern> parsePatternsEOF(String patternsString) {
-        return parse(patternsString, TypeQLParser::eof_patterns, this::visitEof_patterns);
+        return parse(EntryPoint.PATTERNS, patternsString, TypeQLParser::eof_patterns, this::visitEof_patterns);
     }
 
     public List<Definable> parseDefinablesEOF(String definablesString) {
-        return parse(definablesString, TypeQLParser::eof_definables, this::visitEof_definables);
+        return parse(EntryPoint.DEFINABLES, definablesString, TypeQLParser::eof_definables, this::visitEof_definables);
     }
 
     public BoundVariable parseVariableEOF(String variableString) {
-        return parse(variableString, TypeQLParser::eof_variable, this::visitEof_variable);
+        return parse(EntryPoint.VARIABLE, variableString, TypeQLParser::eof_variable, this::visitEof_variable);
     }
 
     public String parseLabelEOF(String labelString) {
-        return parse(labelString, TypeQLParser::eof_label, this::visitEof_label);
+        return parse(EntryPoint.LABEL, labelString, TypeQLParser::eof_label, this::visitEof_label);
     }
 
     public Definable parseSchemaRuleEOF(String ruleString) {
-        return parse(ruleString, TypeQLParser::eof_schema_rule, this::visitEof_schema_rule);
+        return parse(EntryPoint.SCHEMA_RULE, ruleString, TypeQLParser::eof_schema_rule, this::visitEof_schema_rule);
     }
 
     // GLOBAL HELPER METHODS ===================================================
 
+    /**
+     * Input held in memory, which can be read again by each parsing strategy.
+     */
+    private static class Source {
+
+        private final Supplier<CharStream> input;
+        private final Supplier<TypeQLLexer> lexer;
+        private final Supplier<ErrorListener> errorListener;
+
+        private Source(Supplier<CharStream> input, Supplier<TypeQLLexer> lexer, Supplier<ErrorListener> errorListener) {
+            this.input = input;
+            this.lexer = lexer;
+            this.errorListener = errorListener;
+        }
+
+        private CharStream input() {
+            return input.get();
+        }
+
+        /**
+         * @return a lexer that positions its tokens where the input lies in the text reported by the error listener
+         */
+        private TypeQLLexer lexer() {
+            return lexer.get();
+        }
+
+        private ErrorListener errorListener() {
+            return errorListener.get();
+        }
+    }
+
+    /**
+     * Numbers the lines of a script, counting on from the offset last asked for, so that numbering the lines of
+     * ranges in the order they appear reads the script only once.
+     */
+    private static class LineCounter {
+
+        private final String script;
+        private int offset;
+        private int line;
+
+        private LineCounter(String script) {
+            this.script = script;
+            this.offset = 0;
+            this.line = 1;
+        }
+
+        private synchronized int lineAt(int target) {
+            if (target < offset) {
+                offset = 0;
+                line = 1;
+            }
+            for (; offset < target; offset++) {
+                if (script.charAt(offset) == '\n') line++;
+            }
+            return line;
+        }
+    }
+
+    /**
+     * Unbuffered token streams do not filter by channel, so hidden tokens (whitespace, comments)
+     * are dropped here before they reach the parser.
+     */
+    private static class DefaultChannelTokenSource implements TokenSource {
+
+        private final TokenSource source;
+
+        private DefaultChannelTokenSource(TokenSource source) {
+            this.source = source;
+        }
+
+        @Override
+        public Token nextToken() {
+            Token token = source.nextToken();
+            while (token.getChannel() != Token.DEFAULT_CHANNEL) token = source.nextToken();
+            return token;
+        }
+
+        @Override
+        public int getLine() {
+            return source.getLine();
+        }
+
+        @Override
+        public int getCharPositionInLine() {
+            return source.getCharPositionInLine();
+        }
+
+        @Override
+        public CharStream getInputStream() {
+            return source.getInputStream();
+        }
+
+        @Override
+        public String getSourceName() {
+            return source.getSourceName();
+        }
+
+        @Override
+        public void setTokenFactory(TokenFactory<?> factory) {
+            source.setTokenFactory(factory);
+        }
+
+        @Override
+        public TokenFactory<?> getTokenFactory() {
+            return source.getTokenFactory();
+        }
+    }
+
     private UnboundVariable getVar(TerminalNode variable) {
+        return getVar(variable.getSymbol());
+    }
+
+    static UnboundVariable getVar(Token variable) {
         // Remove '$' prefix
-        String name = variable.getSymbol().getText().substring(1);
+        String name = variable.getText().substring(1);
 
         if (name.equals(TypeQLToken.Char.UNDERSCORE.toString())) {
             return UnboundVariable.anonymous();
@@ -533,8 +1173,12 @@ public class Parser extends TypeQLBaseVisitor {
     }
 
     private TypeQLToken.Annotation parseAnnotation(TerminalNode terminalNode) {
-        assert !terminalNode.getText().isEmpty() && terminalNode.getText().startsWith(TypeQLToken.Char.AT.toString());
-        return TypeQLToken.Annotation.of(terminalNode.getText().substring(1));
+        return parseAnnotation(terminalNode.getSymbol());
+    }
+
+    static TypeQLToken.Annotation parseAnnotation(Token token) {
+        assert !token.getText().isEmpty() && token.getText().startsWith(TypeQLToken.Char.AT.toString());
+        return TypeQLToken.Annotation.of(token.getText().substring(1));
     }
 
     // THING VARIABLES =========================================================
@@ -719,6 +1363,13 @@ public class Parser extends TypeQLBaseVisitor {
 
         assert predicate != null;
 
+        ThingConstraint.Value<?> constraint = valueConstraint(predicate, value);
+        if (constraint == null) throw TypeQLException.of(ILLEGAL_GRAMMAR.message(ctx.getText()));
+        return constraint;
+    }
+
+    @Nullable
+    static ThingConstraint.Value<?> valueConstraint(TypeQLToken.Predicate predicate, Object value) {
         if (value instanceof Long) {
             return new ThingConstraint.Value.Long(predicate.asEquality(), (Long) value);
         } else if (value instanceof Double) {
@@ -732,14 +1383,18 @@ public class Parser extends TypeQLBaseVisitor {
         } else if (value instanceof UnboundVariable) {
             return new ThingConstraint.Value.Variable(predicate.asEquality(), (UnboundVariable) value);
         } else {
-            throw TypeQLException.of(ILLEGAL_GRAMMAR.message(ctx.getText()));
+            return null;
         }
     }
 
     // LITERAL INPUT VALUES ====================================================
 
     public String getRegex(TerminalNode string) {
-        return unescapeRegex(unquoteString(string));
+        return getRegex(string.getSymbol());
+    }
+
+    static String getRegex(Token string) {
+        return unescapeRegex(getString(string));
     }
 
     @Override
@@ -761,89 +1416,57 @@ public class Parser extends TypeQLBaseVisitor {
 
     @Override
     public Object visitValue(TypeQLParser.ValueContext ctx) {
-        if (ctx.STRING_() != null) {
-            return getString(ctx.STRING_());
-
-        } else if (ctx.LONG_() != null) {
-            return getLong(ctx.LONG_());
-
-        } else if (ctx.DOUBLE_() != null) {
-            return getDouble(ctx.DOUBLE_());
-
-        } else if (ctx.BOOLEAN_() != null) {
-            return getBoolean(ctx.BOOLEAN_());
-
-        } else if (ctx.DATE_() != null) {
-            return getDate(ctx.DATE_());
-
-        } else if (ctx.DATETIME_() != null) {
-            return getDateTime(ctx.DATETIME_());
-
-        } else {
-            throw TypeQLException.of(ILLEGAL_GRAMMAR.message(ctx.getText()));
+        return getValue(ctx.start);
+    }
+
+    static Object getValue(Token value) {
+        switch (value.getType()) {
+            case TypeQLParser.STRING_:
+                return getString(value);
+            case TypeQLParser.LONG_:
+                return getLong(value);
+            case TypeQLParser.DOUBLE_:
+                return getDouble(value);
+            case TypeQLParser.BOOLEAN_:
+                return getBoolean(value);
+            case TypeQLParser.DATE_:
+                return getDate(value);
+            case TypeQLParser.DATETIME_:
+                return getDateTime(value);
+            default:
+                throw TypeQLException.of(ILLEGAL_GRAMMAR.message(value.getText()));
         }
     }
 
     private String getString(TerminalNode string) {
-        String str = string.getText();
-        assert str.length() >= 2;
-        TypeQLToken.Char start = TypeQLToken.Char.of(str.substring(0, 1));
-        TypeQLToken.Char end = TypeQLToken.Char.of(str.substring(str.length() - 1));
-        assert start != null && end != null;
-        assert start.equals(TypeQLToken.Char.QUOTE_DOUBLE) || start.equals(TypeQLToken.Char.QUOTE_SINGLE);
-        assert end.equals(TypeQLToken.Char.QUOTE_DOUBLE) || end.equals(TypeQLToken.Char.QUOTE_SINGLE);
-
-        // Remove surrounding quotes
-        return unquoteString(string);
-    }
-
-    private String unquoteString(TerminalNode string) {
-        return string.getText().substring(1, string.getText().length() - 1);
+        return getString(string.getSymbol());
     }
 
     private long getLong(TerminalNode number) {
-        try {
-            return Long.parseLong(number.getText());
-        } catch (NumberFormatException e) {
-            throw TypeQLException.of(ILLEGAL_GRAMMAR.message(number.getText()));
-        }
+        return getLong(number.getSymbol());
     }
 
-    private double getDouble(TerminalNode real) {
-        try {
-            return Double.parseDouble(real.getText());
-        } catch (NumberFormatException e) {
-            throw TypeQLException.of(ILLEGAL_GRAMMAR.message(real.getText()));
-        }
+    static String getString(Token string) {
+        return LiteralDecoder.decodeString(string);
     }
 
-    private boolean getBoolean(TerminalNode bool) {
-        TypeQLToken.Literal literal = TypeQLToken.Literal.of(bool.getText());
-
-        if (literal != null && literal.equals(TypeQLToken.Literal.TRUE)) {
-            return true;
+    static long getLong(Token number) {
+        return LiteralDecoder.decodeLong(number);
+    }
 
-        } else if (literal != null && literal.equals(TypeQLToken.Literal.FALSE)) {
-            return false;
+    static double getDouble(Token real) {
+        return LiteralDecoder.decodeDouble(real);
+    }
 
-        } else {
-            throw TypeQLException.of(ILLEGAL_GRAMMAR.message(bool.getText()));
-        }
+    static boolean getBoolean(Token bool) {
+        return LiteralDecoder.decodeBoolean(bool);
     }
 
-    private LocalDateTime getDate(TerminalNode date) {
-        try {
-            return LocalDate.parse(date.getText(), DateTimeFormatter.ISO_LOCAL_DATE).atStartOfDay();
-        } catch (DateTimeParseException e) {
-            throw TypeQLException.of(ILLEGAL_GRAMMAR.message(date.getText()));
-        }
+    static LocalDateTime getDate(Token date) {
+        return LiteralDecoder.decodeDate(date);
     }
 
-    private LocalDateTime getDateTime(TerminalNode dateTime) {
-        try {
-            return LocalDateTime.parse(dateTime.getText(), DateTimeFormatter.ISO_LOCAL_DATE_TIME);
-        } catch (DateTimeParseException e) {
-            throw TypeQLException.of(ILLEGAL_GRAMMAR.message(dateTime.getText()));
-        }
+    static LocalDateTime getDateTime(Token dateTime) {
+        return LiteralDecoder.decodeDateTime(dateTime);
     }
 }
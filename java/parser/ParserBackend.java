@@ -0,0 +1,37 @@
+/*
+ * Copyright (C) 2022 Vaticle
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.vaticle.typeql.lang.parser;
+
+import com.vaticle.typeql.lang.query.TypeQLQuery;
+
+import java.util.stream.Stream;
+
+/**
+ * A parser of TypeQL queries, which {@link com.vaticle.typeql.lang.TypeQL} can be set to parse queries with.
+ * Every backend must produce the same queries, and fail on the same inputs, as {@link Parser}.
+ */
+public interface ParserBackend {
+
+    <T extends TypeQLQuery> T parseQueryEOF(String queryString, ParseLimits limits);
+
+    <T extends TypeQLQuery> Stream<T> parseQueriesEOF(String queryString, ParseLimits limits);
+}
@@ -0,0 +1,147 @@
+/*
+ * Copyright (C) 2022 Vaticle
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.vaticle.typeql.lang.parser;
+
+import com.vaticle.typeql.grammar.TypeQLLexer;
+import org.antlr.v4.runtime.BailErrorStrategy;
+import org.antlr.v4.runtime.BaseErrorListener;
+import org.antlr.v4.runtime.CharStream;
+import org.antlr.v4.runtime.CommonTokenStream;
+import org.antlr.v4.runtime.RecognitionException;
+import org.antlr.v4.runtime.Recognizer;
+
+import javax.annotation.Nullable;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.antlr.v4.runtime.atn.PredictionMode.SLL;
+
+/**
+ * A bounded pool of lexers and parsers set up for the fast parsing strategy, which are reset onto new input
+ * rather than constructed for every parse.
+ *
+ * Instances are held by the pool rather than by threads, so the number kept alive is bounded however many
+ * threads parse. When the pool is empty a new instance is created, and when it is full a returned instance
+ * is dropped. Instances that have buffered an unusually large input are also dropped, so that the pool does
+ * not hold on to the memory it took.
+ */
+class ParserPool {
+
+    private static final int MAX_RETAINED_TOKENS = 1 << 16;
+
+    private final int capacity;
+    private final ConcurrentLinkedQueue<Instance> idle;
+    private final AtomicInteger idleCount;
+
+    ParserPool(int capacity) {
+        if (capacity < 0) throw new IllegalArgumentException("Parser pool capacity must not be negative");
+        this.capacity = capacity;
+        this.idle = new ConcurrentLinkedQueue<>();
+        this.idleCount = new AtomicInteger();
+    }
+
+    /**
+     * @param input the input to parse, or null if the instance only builds from recorded tokens
+     * @param usage the usage of the parse, whose limits the instance checks, or null if the parse is unlimited
+     */
+    Instance acquire(@Nullable CharStream input, @Nullable ParseLimits.Usage usage) {
+        Instance instance = idle.poll();
+        if (instance == null) instance = new Instance();
+        else idleCount.decrementAndGet();
+        try {
+            instance.reset(input, usage);
+        } catch (RuntimeException e) {
+            release(instance);
+            throw e;
+        }
+        return instance;
+    }
+
+    void release(Instance instance) {
+        int retainedTokens = instance.tokens.size();
+        instance.reset(null, null);
+        if (retainedTokens > MAX_RETAINED_TOKENS) return;
+        // The count may briefly overshoot under contention, but never by more than the number of releasing threads
+        if (idleCount.incrementAndGet() <= capacity) idle.offer(instance);
+        else idleCount.decrementAndGet();
+    }
+
+    int idle() {
+        return idleCount.get();
+    }
+
+    static class Instance {
+
+        private final TypeQLLexer lexer;
+        private final CommonTokenStream tokens;
+        private final DirectParser parser;
+        private boolean hasLexerErrors;
+
+        private Instance() {
+            lexer = new TypeQLLexer(null);
+            lexer.removeErrorListeners();
+            lexer.addErrorListener(new BaseErrorListener() {
+                @Override
+                public void syntaxError(Recognizer<?, ?> recognizer, Object offendingSymbol, int line,
+                                        int charPositionInLine, String msg, RecognitionException e) {
+                    hasLexerErrors = true;
+                }
+            });
+            tokens = new CommonTokenStream(lexer);
+            parser = new DirectParser(tokens);
+            parser.removeErrorListeners();
+            // BailErrorStrategy holds no state, so it is kept for the instance's lifetime
+            parser.setErrorHandler(new BailErrorStrategy());
+            parser.getInterpreter().setPredictionMode(SLL);
+        }
+
+        /**
+         * Points the lexer at new input, or at none, discarding the buffered tokens and any parser state.
+         */
+        private void reset(@Nullable CharStream input, @Nullable ParseLimits.Usage usage) {
+            lexer.setInputStream(input);
+            hasLexerErrors = false;
+            tokens.setTokenSource(usage == null ? lexer : new LimitedTokenSource(lexer, usage));
+            parser.setTokenStream(tokens);
+            parser.clearBuild();
+            parser.limit(usage);
+        }
+
+        /**
+         * @return the stream of tokens lexed from the input, which the parser reads from
+         */
+        CommonTokenStream tokens() {
+            return tokens;
+        }
+
+        DirectParser parser() {
+            return parser;
+        }
+
+        /**
+         * @return true if the lexer has skipped input that forms no token, since the instance was last reset
+         */
+        boolean hasLexerErrors() {
+            return hasLexerErrors;
+        }
+    }
+}
@@ -0,0 +1,114 @@
+/*
+ * Copyright (C) 2022 Vaticle
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.vaticle.typeql.lang.parser;
+
+import com.vaticle.typeql.grammar.TypeQLLexer;
+import com.vaticle.typeql.grammar.TypeQLParser;
+import org.antlr.v4.runtime.atn.LexerATNSimulator;
+import org.antlr.v4.runtime.atn.ParserATNSimulator;
+import org.antlr.v4.runtime.dfa.DFA;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Monitors and bounds the prediction DFA that ANTLR builds up for the TypeQL lexer and parser.
+ *
+ * The DFA is shared by every lexer and parser in the JVM, and grows as new input shapes are seen, which makes
+ * the first parses after start-up slow and lets a stream of very varied queries grow it without limit.
+ * It can be filled ahead of traffic with {@link Parser#warmUp(Iterable)}, and bounded with {@link #limit(long)},
+ * which clears it once it has grown past the limit. After a clear, the DFA is rebuilt by the parses that follow.
+ *
+ * ANTLR also interns the prediction contexts of DFA states in a shared cache, which it provides no means to clear.
+ * Its size is reported by {@link #contexts()}.
+ */
+public class PredictionCache {
+
+    // The size is checked after one parse in every CHECK_INTERVAL, chosen at random so that threads need not share a counter
+    private static final int CHECK_INTERVAL = 256;
+    // The generated DFA arrays are protected, so they are reached through the simulators of a lexer and parser
+    private static final LexerATNSimulator LEXER = new TypeQLLexer(null).getInterpreter();
+    private static final ParserATNSimulator PARSER = new TypeQLParser(null).getInterpreter();
+    private static final LongAdder clears = new LongAdder();
+    private static volatile long maxStates = 0;
+
+    private PredictionCache() {}
+
+    /**
+     * @return the number of DFA states cached for the TypeQL lexer and parser, which may miss states being added
+     * by parses running at the same time
+     */
+    public static long states() {
+        return states(LEXER.decisionToDFA) + states(PARSER.decisionToDFA);
+    }
+
+    private static long states(DFA[] dfas) {
+        long states = 0;
+        for (DFA dfa : dfas) {
+            // ANTLR adds states under the monitor of the map, but an approximate count needs no lock, and taking it
+            // would pin a virtual thread to its carrier while parses add states
+            states += dfa.states.size();
+        }
+        return states;
+    }
+
+    /**
+     * @return the number of prediction contexts interned by the TypeQL parser
+     */
+    public static int contexts() {
+        return PARSER.getSharedContextCache().size();
+    }
+
+    /**
+     * Discards the DFA of the TypeQL lexer and parser. Parses already running carry on with the DFA they started with.
+     */
+    public static void clear() {
+        LEXER.clearDFA();
+        PARSER.clearDFA();
+        clears.increment();
+    }
+
+    /**
+     * Clears the DFA whenever it is found to have grown past the given number of states.
+     * The size is sampled after parses rather than checked on every parse, so it may briefly exceed the limit.
+     */
+    public static void limit(long maxStates) {
+        if (maxStates <= 0) throw new IllegalArgumentException("Maximum DFA states must be positive");
+        PredictionCache.maxStates = maxStates;
+    }
+
+    public static void unlimit() {
+        maxStates = 0;
+    }
+
+    /**
+     * @return the number of times the DFA has been cleared, whether explicitly or by the limit
+     */
+    public static long clears() {
+        return clears.sum();
+    }
+
+    static void afterParse() {
+        long max = maxStates;
+        if (max > 0 && ThreadLocalRandom.current().nextInt(CHECK_INTERVAL) == 0 && states() > max) clear();
+    }
+}
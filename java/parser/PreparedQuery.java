@@ -0,0 +1,185 @@
+/*
+ * Copyright (C) 2022 Vaticle
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.vaticle.typeql.lang.parser;
+
+import com.vaticle.typeql.lang.common.exception.TypeQLException;
+import com.vaticle.typeql.lang.query.TypeQLQuery;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+import static com.vaticle.typeql.lang.common.exception.ErrorMessage.PREPARED_PARAMETER_COUNT;
+import static com.vaticle.typeql.lang.common.exception.ErrorMessage.PREPARED_PARAMETER_MISSING;
+import static com.vaticle.typeql.lang.common.exception.ErrorMessage.PREPARED_PARAMETER_TYPE;
+import static com.vaticle.typeql.lang.common.exception.ErrorMessage.PREPARED_PARAMETER_UNKNOWN;
+
+/**
+ * A query that is parsed once, and built many times with different values bound to its parameters.
+ *
+ * A parameter is written {@code ?name} in place of a value, and may appear more than once. Binding values builds
+ * the query again from the tokens recorded when it was parsed, without lexing or parsing it again.
+ * Values may be strings, booleans, integral or floating point numbers, {@link LocalDate}s and
+ * {@link LocalDateTime}s. A parameter that is the operand of {@code contains} or {@code like} must be a string.
+ *
+ * Binding saves the lexing and parsing of the query, but not the building of it: each query bound is a new query
+ * that its caller may constrain further, so none of its variables or constraints can be shared with the template or
+ * with other bindings, and every one of them is built again and validated as it is built. Binding is therefore
+ * about twice as fast as parsing the query with its values written in, and only a little slower than building the
+ * same query with the builders of {@link com.vaticle.typeql.lang.TypeQL}, which is as fast as a bound query can be
+ * built while it remains the caller's own.
+ */
+public class PreparedQuery<T extends TypeQLQuery> {
+
+    private final Parser parser;
+    private final DirectParser.Recording recording;
+    private final List<String> parameters;
+    private final boolean[] isString;
+
+    PreparedQuery(Parser parser, DirectParser.Recording recording, List<String> parameters) {
+        this.parser = parser;
+        this.recording = recording;
+        this.parameters = Collections.unmodifiableList(parameters);
+        this.isString = new boolean[parameters.size()];
+        for (DirectParser.Placeholder placeholder : recording.placeholders()) {
+            if (placeholder.isString()) isString[placeholder.parameter()] = true;
+        }
+    }
+
+    /**
+     * Replaces every placeholder in a query with a string literal of its own text, so that the query can be parsed
+     * by the TypeQL grammar. Placeholders inside strings and comments are left as they are.
+     *
+     * @param parameters   receives the names of the parameters, in the order they first appear
+     * @param placeholders receives the start of each placeholder in the returned query, in code points,
+     *                     mapped to the index of its parameter
+     */
+    static String template(String query, List<String> parameters, Map<Integer, Integer> placeholders) {
+        StringBuilder template = new StringBuilder(query.length() + 16);
+        int surrogatePairs = 0;
+        int i = 0;
+        while (i < query.length()) {
+            char c = query.charAt(i);
+            if (c == '"' || c == '\'') {
+                int end = i + 1;
+                while (end < query.length() && query.charAt(end) != c) {
+                    if (query.charAt(end) == '\\') end++;
+                    end++;
+                }
+                end = Math.min(end + 1, query.length());
+                surrogatePairs += appendCounting(template, query, i, end);
+                i = end;
+            } else if (c == '#') {
+                int end = query.indexOf('\n', i);
+                if (end < 0) end = query.length();
+                surrogatePairs += appendCounting(template, query, i, end);
+                i = end;
+            } else if (c == '?' && i + 1 < query.length() && isNameChar(query.charAt(i + 1))) {
+                int end = i + 1;
+                while (end < query.length() && isNameChar(query.charAt(end))) end++;
+                String name = query.substring(i + 1, end);
+                int parameter = parameters.indexOf(name);
+                if (parameter < 0) {
+                    parameter = parameters.size();
+                    parameters.add(name);
+                }
+                placeholders.put(template.length() - surrogatePairs, parameter);
+                template.append('"').append(query, i, end).append('"');
+                i = end;
+            } else {
+                if (Character.isLowSurrogate(c)) surrogatePairs++;
+                template.append(c);
+                i++;
+            }
+        }
+        return template.toString();
+    }
+
+    private static int appendCounting(StringBuilder template, String query, int start, int end) {
+        int surrogatePairs = 0;
+        for (int i = start; i < end; i++) {
+            if (Character.isLowSurrogate(query.charAt(i))) surrogatePairs++;
+        }
+        template.append(query, start, end);
+        return surrogatePairs;
+    }
+
+    private static boolean isNameChar(char c) {
+        return (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z') || (c >= '0' && c <= '9') || c == '_' || c == '-';
+    }
+
+    /**
+     * @return the names of the parameters, in the order they first appear in the query
+     */
+    public List<String> parameters() {
+        return parameters;
+    }
+
+    /**
+     * Builds the query with the given values bound to its parameters, in the order of {@link #parameters()}.
+     */
+    @SuppressWarnings("unchecked")
+    public T bind(Object... values) {
+        if (values.length != parameters.size()) {
+            throw TypeQLException.of(PREPARED_PARAMETER_COUNT.message(parameters.size(), values.length));
+        }
+        Object[] bindings = new Object[values.length];
+        for (int i = 0; i < values.length; i++) bindings[i] = binding(i, values[i]);
+        return (T) parser.replayQuery(recording, bindings);
+    }
+
+    /**
+     * Builds the query with the given values bound to its parameters by name.
+     */
+    @SuppressWarnings("unchecked")
+    public T bind(Map<String, ?> values) {
+        for (String name : values.keySet()) {
+            if (!parameters.contains(name)) throw TypeQLException.of(PREPARED_PARAMETER_UNKNOWN.message(name));
+        }
+        Object[] bindings = new Object[parameters.size()];
+        for (int i = 0; i < bindings.length; i++) bindings[i] = binding(i, values.get(parameters.get(i)));
+        return (T) parser.replayQuery(recording, bindings);
+    }
+
+    /**
+     * @return the value as the parser would have read it from a literal
+     */
+    private Object binding(int parameter, Object value) {
+        if (value == null) throw TypeQLException.of(PREPARED_PARAMETER_MISSING.message(parameters.get(parameter)));
+        else if (value instanceof String) return value;
+        else if (isString[parameter]) throw invalidType(parameter, value, "a string");
+        else if (value instanceof Long || value instanceof Integer || value instanceof Short || value instanceof Byte) {
+            return ((Number) value).longValue();
+        } else if (value instanceof Double || value instanceof Float) return ((Number) value).doubleValue();
+        else if (value instanceof Boolean || value instanceof LocalDateTime) return value;
+        else if (value instanceof LocalDate) return ((LocalDate) value).atStartOfDay();
+        else throw invalidType(parameter, value, "a string, number, boolean, date or datetime");
+    }
+
+    private TypeQLException invalidType(int parameter, Object value, String expected) {
+        return TypeQLException.of(PREPARED_PARAMETER_TYPE.message(
+                value, value.getClass().getSimpleName(), parameters.get(parameter), expected
+        ));
+    }
+}
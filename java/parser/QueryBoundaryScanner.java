@@ -0,0 +1,293 @@
+/*
+ * Copyright (C) 2022 Vaticle
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.vaticle.typeql.lang.parser;
+
+import java.util.Arrays;
+
+/**
+ * Finds the offsets at which top-level queries begin in a script of many queries, without lexing it.
+ *
+ * Every query ends with a semicolon, so queries can only begin at the start of the script or at the start of a
+ * statement, after a semicolon. The scan only looks for semicolons, and for the strings and comments in which
+ * semicolons and keywords do not count, which it skips as the grammar defines them. Only the first word of each
+ * statement is compared with the query keywords.
+ *
+ * A match query followed by an insert or delete is read as one query, as the grammar does, unless its patterns have
+ * been followed by modifiers, a group or an aggregate, which are told apart from labels of the same name by the
+ * character that follows them. Every range between two boundaries of a valid script therefore holds exactly one
+ * query, and can be parsed independently of the rest of the script.
+ */
+public class QueryBoundaryScanner {
+
+    private enum Command {NONE, MATCH, MATCH_MODIFIED, INSERT, DELETE, OTHER}
+
+    // The characters that the scan stops at: semicolons, and the starts of comments and strings
+    private static final boolean[] SPECIAL_CHARS = new boolean[0x80];
+
+    static {
+        SPECIAL_CHARS[';'] = true;
+        SPECIAL_CHARS['#'] = true;
+        SPECIAL_CHARS['"'] = true;
+        SPECIAL_CHARS['\''] = true;
+    }
+
+    private final CharSequence script;
+    private final int length;
+    private int position;
+    private Command command;
+    private boolean isStatementStart;
+    private boolean unterminated;
+
+    public QueryBoundaryScanner(CharSequence script) {
+        this(script, 0);
+    }
+
+    /**
+     * Creates a scanner that resumes at an offset of the script, which must be its start or a boundary found by
+     * an earlier scan. The text before a boundary does not affect which boundaries follow it.
+     */
+    public QueryBoundaryScanner(CharSequence script, int from) {
+        this(script, from, script.length());
+    }
+
+    private QueryBoundaryScanner(CharSequence script, int from, int to) {
+        this.script = script;
+        this.length = to;
+        this.position = from;
+        this.command = Command.NONE;
+        this.isStatementStart = true;
+        this.unterminated = false;
+    }
+
+    public static int[] boundaries(CharSequence script) {
+        QueryBoundaryScanner scanner = new QueryBoundaryScanner(script);
+        int[] boundaries = new int[16];
+        int count = 0;
+        for (int boundary = scanner.next(); boundary >= 0; boundary = scanner.next()) {
+            if (count == boundaries.length) boundaries = Arrays.copyOf(boundaries, count * 2);
+            boundaries[count++] = boundary;
+        }
+        return Arrays.copyOf(boundaries, count);
+    }
+
+    /**
+     * @return the offset of the next top-level query, or -1 if the end of the script has been reached
+     */
+    public int next() {
+        CharSequence script = this.script;
+        int length = this.length;
+        while (position < length) {
+            if (isStatementStart) {
+                isStatementStart = false;
+                int start = significantIndex(position);
+                int end = wordEnd(start);
+                if (end > start) {
+                    position = end;
+                    if (isQueryStart(start, end)) return start;
+                    if (command == Command.MATCH && isModifier(start, end)) command = Command.MATCH_MODIFIED;
+                }
+            }
+            // Most characters are none of the special characters, so they are passed over in a loop of their own
+            int i = position;
+            char c = 0;
+            while (i < length && ((c = script.charAt(i)) >= 0x80 || !SPECIAL_CHARS[c])) i++;
+            position = i;
+            if (i == length) break;
+            if (c == ';') {
+                isStatementStart = true;
+                position++;
+            } else if (c == '#') {
+                skipComment();
+            } else {
+                skipString(c);
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Finds the end of a definable in a define or undefine query, from the end of the query's keyword or of the
+     * definable before it. Semicolons within the braces of a rule, strings and comments do not end a definable.
+     *
+     * @return the offset after the semicolon that ends the definable, or the given end if there is none before it
+     */
+    public static int definableEnd(CharSequence script, int from, int end) {
+        QueryBoundaryScanner scanner = new QueryBoundaryScanner(script, from, end);
+        int depth = 0;
+        while (scanner.position < end) {
+            char c = script.charAt(scanner.position);
+            if (c == '#') {
+                scanner.skipComment();
+            } else if (c == '"' || c == '\'') {
+                scanner.skipString(c);
+            } else {
+                scanner.position++;
+                if (c == '{') depth++;
+                else if (c == '}' && depth > 0) depth--;
+                else if (c == ';' && depth == 0) return scanner.position;
+            }
+        }
+        return end;
+    }
+
+    /**
+     * Checks that a range of a define or undefine query, from the end of its keyword or of one of its definables,
+     * holds no query boundary and does not end within a string or comment. The query boundaries of a script are
+     * not moved by an edit that leaves every such range around it true.
+     */
+    static boolean isWithinQuery(CharSequence script, int from, int to) {
+        QueryBoundaryScanner scanner = new QueryBoundaryScanner(script, from, to);
+        if (scanner.next() >= 0) return false;
+        return to == script.length() || (scanner.position == to && !scanner.unterminated);
+    }
+
+    /**
+     * @return the offset at which the word starting at the given offset ends
+     */
+    static int wordEnd(CharSequence script, int start) {
+        int end = start;
+        while (end < script.length() && isWordChar(script.charAt(end))) end++;
+        return end;
+    }
+
+    private int wordEnd(int start) {
+        int end = start;
+        while (end < length && isWordChar(script.charAt(end))) end++;
+        return end;
+    }
+
+    private void skipComment() {
+        while (position < length && script.charAt(position) != '\n') position++;
+        if (position == length) unterminated = true;
+    }
+
+    private void skipString(char quote) {
+        position++;
+        while (position < length) {
+            char c = script.charAt(position);
+            if (c == '\\') position += 2;
+            else if (c == quote) {
+                position++;
+                return;
+            } else position++;
+        }
+        unterminated = true;
+    }
+
+    private static boolean isWordChar(char c) {
+        // Deliberately broader than a label, so a keyword is never matched within a longer token
+        return (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z') || (c >= '0' && c <= '9') ||
+                c == '_' || c == '-' || c == ':' || c == '$' || c == '@' || c == '!' || c >= 0x80;
+    }
+
+    private boolean isQueryStart(int start, int end) {
+        switch (end - start) {
+            case 5:
+                if (!matches(start, "match")) return false;
+                command = Command.MATCH;
+                return true;
+            case 6:
+                if (matches(start, "define")) {
+                    command = Command.OTHER;
+                    return true;
+                } else if (matches(start, "insert")) {
+                    boolean isQueryStart = command != Command.MATCH && command != Command.DELETE;
+                    command = Command.INSERT;
+                    return isQueryStart;
+                } else if (matches(start, "delete")) {
+                    boolean isQueryStart = command != Command.MATCH;
+                    command = Command.DELETE;
+                    return isQueryStart;
+                }
+                return false;
+            case 8:
+                if (!matches(start, "undefine")) return false;
+                command = Command.OTHER;
+                return true;
+            default:
+                return false;
+        }
+    }
+
+    /**
+     * @return true if the first word of a statement of a match query is a modifier, group or aggregate, rather than
+     * a label that begins a pattern, which is never followed by a variable, semicolon or number
+     */
+    private boolean isModifier(int start, int end) {
+        boolean isFollowedByVariable, isAggregate, isFollowedByNumber;
+        switch (end - start) {
+            case 3:
+                isFollowedByVariable = matches(start, "get");
+                isAggregate = matches(start, "max") || matches(start, "min") || matches(start, "std") ||
+                        matches(start, "sum");
+                isFollowedByNumber = false;
+                break;
+            case 4:
+                isFollowedByVariable = matches(start, "sort");
+                isAggregate = matches(start, "mean");
+                isFollowedByNumber = false;
+                break;
+            case 5:
+                isFollowedByVariable = matches(start, "group");
+                isAggregate = matches(start, "count");
+                isFollowedByNumber = matches(start, "limit");
+                break;
+            case 6:
+                isFollowedByVariable = false;
+                isAggregate = matches(start, "median");
+                isFollowedByNumber = matches(start, "offset");
+                break;
+            default:
+                return false;
+        }
+        if (!isFollowedByVariable && !isAggregate && !isFollowedByNumber) return false;
+        int afterIndex = significantIndex(end);
+        char after = afterIndex < length ? script.charAt(afterIndex) : 0;
+        if (isFollowedByNumber) return after >= '0' && after <= '9';
+        return after == '$' || (isAggregate && after == ';');
+    }
+
+    /**
+     * @return the offset of the first character from the given offset that is not whitespace or in a comment
+     */
+    private int significantIndex(int from) {
+        int i = from;
+        while (i < length) {
+            char c = script.charAt(i);
+            if (c == '#') {
+                while (i < length && script.charAt(i) != '\n') i++;
+            } else if (c == ' ' || c == '\t' || c == '\r' || c == '\n') {
+                i++;
+            } else {
+                return i;
+            }
+        }
+        return length;
+    }
+
+    private boolean matches(int start, String keyword) {
+        for (int i = 0; i < keyword.length(); i++) {
+            if (script.charAt(start + i) != keyword.charAt(i)) return false;
+        }
+        return true;
+    }
+}
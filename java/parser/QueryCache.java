@@ -0,0 +1,246 @@
+/*
+ * Copyright (C) 2022 Vaticle
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.vaticle.typeql.lang.parser;
+
+import com.vaticle.typeql.lang.pattern.Pattern;
+import com.vaticle.typeql.lang.pattern.schema.Rule;
+import com.vaticle.typeql.lang.pattern.variable.BoundVariable;
+import com.vaticle.typeql.lang.query.TypeQLDefine;
+import com.vaticle.typeql.lang.query.TypeQLDelete;
+import com.vaticle.typeql.lang.query.TypeQLInsert;
+import com.vaticle.typeql.lang.query.TypeQLMatch;
+import com.vaticle.typeql.lang.query.TypeQLQuery;
+import com.vaticle.typeql.lang.query.TypeQLUndefine;
+import com.vaticle.typeql.lang.query.TypeQLUpdate;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * A bounded, concurrent cache of parsed queries, keyed on the raw query string.
+ * Cached queries are shared between callers, so their variables are frozen as they
+ * are cached, and cannot be constrained any further.
+ *
+ * Reads are lock-free. Eviction is frequency-aware: every hit bumps a small
+ * saturating counter on the entry, and the evicting sweep (a generalised CLOCK)
+ * decrements the counter of each entry it passes, only evicting entries that
+ * have not been used since the last sweep.
+ */
+public class QueryCache {
+
+    private static final int MAX_FREQUENCY = 7;
+    // Rough footprint of a cached query: the key string plus the AST built from it
+    private static final long BYTES_PER_QUERY_CHAR = 32;
+    private static final long BYTES_PER_ENTRY = 128;
+
+    private final long maxEntries;
+    private final long maxBytes;
+    private final ConcurrentHashMap<String, Entry> entries;
+    private final ConcurrentLinkedQueue<Entry> clock;
+    private final ReentrantLock evictionLock;
+    private final AtomicLong bytes;
+    private final LongAdder hits;
+    private final LongAdder misses;
+    private final LongAdder evictions;
+
+    public QueryCache(long maxEntries, long maxBytes) {
+        if (maxEntries <= 0) throw new IllegalArgumentException("Maximum cache entries must be positive");
+        if (maxBytes <= 0) throw new IllegalArgumentException("Maximum cache bytes must be positive");
+        this.maxEntries = maxEntries;
+        this.maxBytes = maxBytes;
+        this.entries = new ConcurrentHashMap<>();
+        this.clock = new ConcurrentLinkedQueue<>();
+        this.evictionLock = new ReentrantLock();
+        this.bytes = new AtomicLong();
+        this.hits = new LongAdder();
+        this.misses = new LongAdder();
+        this.evictions = new LongAdder();
+    }
+
+    @SuppressWarnings("unchecked")
+    public <T extends TypeQLQuery> T get(String queryString, Function<String, T> parser) {
+        if (queryString == null) return parser.apply(null);
+        Entry entry = entries.get(queryString);
+        if (entry != null) {
+            entry.touch();
+            hits.increment();
+            return (T) entry.query;
+        }
+
+        misses.increment();
+        T query = parser.apply(queryString);
+        long weight = weigh(queryString);
+        if (weight > maxBytes) return query;
+
+        freeze(query);
+        Entry created = new Entry(queryString, query, weight);
+        Entry existing = entries.putIfAbsent(queryString, created);
+        if (existing != null) return (T) existing.query;
+        clock.add(created);
+        bytes.addAndGet(weight);
+        if (isOverCapacity()) evict();
+        return query;
+    }
+
+    private static void freeze(TypeQLQuery query) {
+        if (query instanceof TypeQLMatch) {
+            freeze(query.asMatch().conjunction());
+        } else if (query instanceof TypeQLMatch.Aggregate) {
+            freeze(query.asMatchAggregate().match());
+        } else if (query instanceof TypeQLMatch.Group) {
+            freeze(query.asMatchGroup().match());
+        } else if (query instanceof TypeQLMatch.Group.Aggregate) {
+            freeze(query.asMatchGroupAggregate().group().match());
+        } else if (query instanceof TypeQLInsert) {
+            query.asInsert().match().ifPresent(QueryCache::freeze);
+            freeze(query.asInsert().variables());
+        } else if (query instanceof TypeQLDelete) {
+            freeze(query.asDelete().match());
+            freeze(query.asDelete().variables());
+        } else if (query instanceof TypeQLUpdate) {
+            freeze(query.asUpdate().match());
+            freeze(query.asUpdate().deleteVariables());
+            freeze(query.asUpdate().insertVariables());
+        } else if (query instanceof TypeQLDefine) {
+            freeze(query.asDefine().variables());
+            query.asDefine().rules().forEach(QueryCache::freeze);
+        } else if (query instanceof TypeQLUndefine) {
+            freeze(query.asUndefine().variables());
+            query.asUndefine().rules().forEach(QueryCache::freeze);
+        }
+    }
+
+    private static void freeze(Rule rule) {
+        if (rule.when() != null) freeze(rule.when());
+        if (rule.then() != null) rule.then().freeze();
+    }
+
+    private static void freeze(List<? extends BoundVariable> variables) {
+        variables.forEach(BoundVariable::freeze);
+    }
+
+    private static void freeze(Pattern pattern) {
+        if (pattern.isVariable()) pattern.asVariable().freeze();
+        else if (pattern.isNegation()) freeze(pattern.asNegation().pattern());
+        else pattern.patterns().forEach(QueryCache::freeze);
+    }
+
+    private static long weigh(String queryString) {
+        return BYTES_PER_ENTRY + BYTES_PER_QUERY_CHAR * queryString.length();
+    }
+
+    private boolean isOverCapacity() {
+        return entries.size() > maxEntries || bytes.get() > maxBytes;
+    }
+
+    private void evict() {
+        // Only one thread sweeps at a time; others carry on without waiting
+        if (!evictionLock.tryLock()) return;
+        try {
+            while (isOverCapacity()) {
+                Entry candidate = clock.poll();
+                if (candidate == null) break;
+                if (candidate.age()) {
+                    clock.add(candidate);
+                } else if (entries.remove(candidate.queryString, candidate)) {
+                    bytes.addAndGet(-candidate.weight);
+                    evictions.increment();
+                }
+            }
+        } finally {
+            evictionLock.unlock();
+        }
+    }
+
+    public void clear() {
+        evictionLock.lock();
+        try {
+            // Entries cached concurrently add their weight after they are inserted, so rather than resetting the
+            // weight, only the weight of the entries removed is subtracted
+            for (Entry entry : entries.values()) {
+                if (entries.remove(entry.queryString, entry)) bytes.addAndGet(-entry.weight);
+            }
+            clock.removeIf(entry -> entries.get(entry.queryString) != entry);
+        } finally {
+            evictionLock.unlock();
+        }
+    }
+
+    public long size() {
+        return entries.size();
+    }
+
+    public long bytes() {
+        return bytes.get();
+    }
+
+    public long hits() {
+        return hits.sum();
+    }
+
+    public long misses() {
+        return misses.sum();
+    }
+
+    public long evictions() {
+        return evictions.sum();
+    }
+
+    private static class Entry {
+
+        private final String queryString;
+        private final TypeQLQuery query;
+        private final long weight;
+        private final AtomicInteger frequency;
+
+        private Entry(String queryString, TypeQLQuery query, long weight) {
+            this.queryString = queryString;
+            this.query = query;
+            this.weight = weight;
+            this.frequency = new AtomicInteger(0);
+        }
+
+        private void touch() {
+            // Avoid contending on the counter once it has saturated
+            int current = frequency.get();
+            if (current < MAX_FREQUENCY) frequency.compareAndSet(current, current + 1);
+        }
+
+        /**
+         * @return true if the entry has been used since it was last aged, and should be retained
+         */
+        private boolean age() {
+            int current;
+            do {
+                current = frequency.get();
+                if (current == 0) return false;
+            } while (!frequency.compareAndSet(current, current - 1));
+            return true;
+        }
+    }
+}
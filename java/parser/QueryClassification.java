@@ -0,0 +1,93 @@
+/*
+ * Copyright (C) 2022 Vaticle
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.vaticle.typeql.lang.parser;
+
+import com.vaticle.typeql.lang.common.TypeQLArg;
+import com.vaticle.typeql.lang.common.TypeQLToken;
+
+import java.util.Objects;
+
+/**
+ * What a query does, as found from its tokens without parsing it: the command it begins with, whether it reads or
+ * writes, and whether it groups or aggregates its answers.
+ *
+ * A classification does not validate the query, so a query that is classified may still fail to parse.
+ */
+public class QueryClassification {
+
+    private final TypeQLToken.Command command;
+    private final TypeQLArg.QueryType type;
+    private final boolean isGroup;
+    private final boolean isAggregate;
+    private final int hash;
+
+    public QueryClassification(TypeQLToken.Command command, TypeQLArg.QueryType type,
+                               boolean isGroup, boolean isAggregate) {
+        this.command = command;
+        this.type = type;
+        this.isGroup = isGroup;
+        this.isAggregate = isAggregate;
+        this.hash = Objects.hash(command, type, isGroup, isAggregate);
+    }
+
+    /**
+     * @return the command the query begins with, which is {@code match} for a match-insert, match-delete or
+     * match-delete-insert query
+     */
+    public TypeQLToken.Command command() {
+        return command;
+    }
+
+    public TypeQLArg.QueryType type() {
+        return type;
+    }
+
+    public boolean isGroup() {
+        return isGroup;
+    }
+
+    public boolean isAggregate() {
+        return isAggregate;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        QueryClassification that = (QueryClassification) o;
+        return this.command == that.command && this.type == that.type &&
+                this.isGroup == that.isGroup && this.isAggregate == that.isAggregate;
+    }
+
+    @Override
+    public int hashCode() {
+        return hash;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder string = new StringBuilder().append(command).append(' ').append(type);
+        if (isGroup) string.append(' ').append(TypeQLToken.Command.GROUP);
+        if (isAggregate) string.append(' ').append(TypeQLToken.Command.AGGREGATE);
+        return string.toString();
+    }
+}
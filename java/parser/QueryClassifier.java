@@ -0,0 +1,225 @@
+/*
+ * Copyright (C) 2022 Vaticle
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.vaticle.typeql.lang.parser;
+
+import com.vaticle.typeql.grammar.TypeQLLexer;
+import com.vaticle.typeql.lang.common.TypeQLArg;
+import com.vaticle.typeql.lang.common.TypeQLToken;
+import com.vaticle.typeql.lang.common.exception.TypeQLException;
+import org.antlr.v4.runtime.CharStream;
+import org.antlr.v4.runtime.CharStreams;
+import org.antlr.v4.runtime.Token;
+
+import static com.vaticle.typeql.grammar.TypeQLLexer.COUNT;
+import static com.vaticle.typeql.grammar.TypeQLLexer.DEFINE;
+import static com.vaticle.typeql.grammar.TypeQLLexer.DELETE;
+import static com.vaticle.typeql.grammar.TypeQLLexer.GET;
+import static com.vaticle.typeql.grammar.TypeQLLexer.GROUP;
+import static com.vaticle.typeql.grammar.TypeQLLexer.INSERT;
+import static com.vaticle.typeql.grammar.TypeQLLexer.LIMIT;
+import static com.vaticle.typeql.grammar.TypeQLLexer.LONG_;
+import static com.vaticle.typeql.grammar.TypeQLLexer.MATCH;
+import static com.vaticle.typeql.grammar.TypeQLLexer.MAX;
+import static com.vaticle.typeql.grammar.TypeQLLexer.MEAN;
+import static com.vaticle.typeql.grammar.TypeQLLexer.MEDIAN;
+import static com.vaticle.typeql.grammar.TypeQLLexer.MIN;
+import static com.vaticle.typeql.grammar.TypeQLLexer.OFFSET;
+import static com.vaticle.typeql.grammar.TypeQLLexer.SORT;
+import static com.vaticle.typeql.grammar.TypeQLLexer.STD;
+import static com.vaticle.typeql.grammar.TypeQLLexer.SUM;
+import static com.vaticle.typeql.grammar.TypeQLLexer.UNDEFINE;
+import static com.vaticle.typeql.grammar.TypeQLLexer.VAR_;
+import static com.vaticle.typeql.lang.common.exception.ErrorMessage.UNCLASSIFIABLE_QUERY;
+import static com.vaticle.typeql.lang.parser.DirectParser.literalType;
+import static org.antlr.v4.runtime.Token.EOF;
+
+/**
+ * Classifies the queries of a script from the tokens of the TypeQL lexer, without parsing them.
+ *
+ * Define, undefine and insert queries are classified by their first token. The rest of a query is read one statement
+ * at a time: the lexer reads the leading tokens of each statement, which is where query keywords, groups, aggregates
+ * and modifiers are found, and the rest of the statement is skipped to its top-level semicolon by scanning characters,
+ * skipping strings and comments as the grammar defines them. Group, aggregate and modifier keywords are also labels,
+ * which may begin a pattern, so they are told apart by the token after them, as the grammar does.
+ */
+class QueryClassifier {
+
+    private static final int SEMICOLON = literalType(";");
+    private static final int CURLY_OPEN = literalType("{");
+    private static final int CURLY_CLOSE = literalType("}");
+
+    private final CharStream input;
+    private final TypeQLLexer lexer;
+    private Token next;
+
+    QueryClassifier(String script) {
+        input = CharStreams.fromString(script);
+        lexer = new TypeQLLexer(input);
+        lexer.removeErrorListeners();
+        next = null;
+    }
+
+    boolean hasNext() {
+        return peek() != EOF;
+    }
+
+    /**
+     * @param toEnd whether to read to the end of the query, so that the next query can be classified after it,
+     *              or only as far as is needed to classify it
+     */
+    QueryClassification next(boolean toEnd) {
+        Token first = consume();
+        switch (first.getType()) {
+            case DEFINE:
+                return write(TypeQLToken.Command.DEFINE, toEnd);
+            case UNDEFINE:
+                return write(TypeQLToken.Command.UNDEFINE, toEnd);
+            case INSERT:
+                return write(TypeQLToken.Command.INSERT, toEnd);
+            case DELETE:
+                return write(TypeQLToken.Command.DELETE, toEnd);
+            case MATCH:
+                return match(toEnd);
+            default:
+                throw TypeQLException.of(UNCLASSIFIABLE_QUERY.message(first.getLine(), first.getText()));
+        }
+    }
+
+    private QueryClassification write(TypeQLToken.Command command, boolean toEnd) {
+        // No query keyword can begin a statement within a define, undefine, insert or delete clause
+        if (toEnd) {
+            while (hasNext() && !isQueryKeyword(peek())) skipStatement();
+        }
+        return new QueryClassification(command, TypeQLArg.QueryType.WRITE, false, false);
+    }
+
+    private QueryClassification match(boolean toEnd) {
+        boolean isWrite = false;
+        boolean isDelete = false;
+        boolean hasModifiers = false;
+        boolean isGroup = false;
+        boolean isAggregate = false;
+        while (hasNext()) {
+            int type = peek();
+            if (isQueryKeyword(type)) {
+                // An insert or delete continues the query only if it follows the patterns, or the delete clause
+                boolean continues = !hasModifiers && !isGroup && !isAggregate &&
+                        ((type == INSERT && !(isWrite && !isDelete)) || (type == DELETE && !isWrite));
+                if (!continues) break;
+                isWrite = true;
+                isDelete = type == DELETE;
+                if (!toEnd) break;
+                consume();
+            } else if (isWrite) {
+                skipStatement();
+            } else {
+                consume();
+                int after = peek();
+                if (type == GROUP && after == VAR_) isGroup = true;
+                else if (isAggregateMethod(type) && (after == VAR_ || after == SEMICOLON)) isAggregate = true;
+                else if (((type == GET || type == SORT) && after == VAR_) ||
+                        ((type == OFFSET || type == LIMIT) && after == LONG_)) hasModifiers = true;
+                skipStatement(depth(type), type == SEMICOLON);
+            }
+        }
+        return new QueryClassification(
+                TypeQLToken.Command.MATCH, isWrite ? TypeQLArg.QueryType.WRITE : TypeQLArg.QueryType.READ,
+                isGroup, isAggregate
+        );
+    }
+
+    private void skipStatement() {
+        int type = consume().getType();
+        skipStatement(depth(type), type == SEMICOLON);
+    }
+
+    /**
+     * Skips to the end of a statement whose leading tokens have been read, ending after the top-level semicolon.
+     *
+     * @param depth the number of braces opened by the tokens read
+     * @param isEnded whether the tokens read end the statement
+     */
+    private void skipStatement(int depth, boolean isEnded) {
+        if (isEnded) return;
+        if (next != null) {
+            // The token after the leading token has been lexed, so the scan resumes after it
+            int type = consume().getType();
+            depth += depth(type);
+            if (type == EOF || (type == SEMICOLON && depth <= 0)) return;
+        }
+        // Only the first token of a script can fail to classify, so the lexer's line is not kept up to date
+        int c;
+        while ((c = input.LA(1)) != CharStream.EOF) {
+            input.consume();
+            if (c == '#') {
+                while ((c = input.LA(1)) != CharStream.EOF && c != '\n') input.consume();
+            } else if (c == '"' || c == '\'') {
+                int quote = c;
+                while ((c = input.LA(1)) != CharStream.EOF && c != quote) {
+                    input.consume();
+                    if (c == '\\' && input.LA(1) != CharStream.EOF) input.consume();
+                }
+                if (c == quote) input.consume();
+            } else if (c == '{') {
+                depth++;
+            } else if (c == '}') {
+                depth--;
+            } else if (c == ';' && depth <= 0) {
+                return;
+            }
+        }
+    }
+
+    private static int depth(int type) {
+        if (type == CURLY_OPEN) return 1;
+        else if (type == CURLY_CLOSE) return -1;
+        else return 0;
+    }
+
+    private static boolean isQueryKeyword(int type) {
+        return type == MATCH || type == INSERT || type == DELETE || type == DEFINE || type == UNDEFINE;
+    }
+
+    private static boolean isAggregateMethod(int type) {
+        return type == COUNT || type == MAX || type == MEAN || type == MEDIAN || type == MIN || type == STD ||
+                type == SUM;
+    }
+
+    /**
+     * @return the type of the next token, which is only lexed once it is needed
+     */
+    private int peek() {
+        if (next == null) {
+            // A lexer that has not itself reached the end of the input would simulate its ATN to find no token there
+            next = input.LA(1) == CharStream.EOF ? lexer.emitEOF() : lexer.nextToken();
+            while (next.getChannel() != Token.DEFAULT_CHANNEL) next = lexer.nextToken();
+        }
+        return next.getType();
+    }
+
+    private Token consume() {
+        peek();
+        Token token = next;
+        next = null;
+        return token;
+    }
+}
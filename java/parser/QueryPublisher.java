@@ -0,0 +1,158 @@
+/*
+ * Copyright (C) 2022 Vaticle
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.vaticle.typeql.lang.parser;
+
+import com.vaticle.typeql.lang.query.TypeQLQuery;
+
+import java.util.Spliterator;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Flow;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * A publisher of the queries parsed from a reader, which parses only as far as its subscriber has requested.
+ *
+ * Nothing is parsed ahead of demand, so at most one query is held between the parser and the subscriber, and a slow
+ * subscriber slows the parser rather than letting parsed queries accumulate. Parsing stops once the subscription is
+ * cancelled. A syntax error, or exceeding the parser's limits, is signalled with {@code onError}.
+ * The reader can only be read once, so a publisher accepts a single subscriber.
+ */
+public class QueryPublisher<T extends TypeQLQuery> implements Flow.Publisher<T> {
+
+    private final Supplier<Spliterator<T>> queries;
+    private final Executor executor;
+    private final AtomicBoolean isSubscribed;
+
+    QueryPublisher(Supplier<Spliterator<T>> queries, Executor executor) {
+        this.queries = queries;
+        this.executor = executor;
+        this.isSubscribed = new AtomicBoolean(false);
+    }
+
+    @Override
+    public void subscribe(Flow.Subscriber<? super T> subscriber) {
+        if (subscriber == null) throw new NullPointerException("Null subscriber");
+        if (!isSubscribed.compareAndSet(false, true)) {
+            subscriber.onSubscribe(new Flow.Subscription() {
+                @Override
+                public void request(long n) {}
+
+                @Override
+                public void cancel() {}
+            });
+            subscriber.onError(new IllegalStateException("The queries of a reader can only be published once"));
+            return;
+        }
+        subscriber.onSubscribe(new Subscription(subscriber));
+    }
+
+    private class Subscription implements Flow.Subscription, Runnable {
+
+        private final Flow.Subscriber<? super T> subscriber;
+        private final AtomicLong demand;
+        // Counts the signals that need draining, so that only one thread drains at a time
+        private final AtomicInteger pending;
+        private volatile boolean isCancelled;
+        private volatile IllegalArgumentException invalidRequest;
+        private Spliterator<T> spliterator;
+        private T next;
+
+        private Subscription(Flow.Subscriber<? super T> subscriber) {
+            this.subscriber = subscriber;
+            this.demand = new AtomicLong(0);
+            this.pending = new AtomicInteger(0);
+            this.isCancelled = false;
+        }
+
+        @Override
+        public void request(long n) {
+            if (n <= 0) invalidRequest = new IllegalArgumentException("Requested " + n + " queries, must be positive");
+            else demand.getAndUpdate(current -> current + n < 0 ? Long.MAX_VALUE : current + n);
+            schedule();
+        }
+
+        @Override
+        public void cancel() {
+            isCancelled = true;
+            schedule();
+        }
+
+        private void schedule() {
+            if (pending.getAndIncrement() == 0) {
+                try {
+                    executor.execute(this);
+                } catch (RuntimeException e) {
+                    isCancelled = true;
+                    subscriber.onError(e);
+                }
+            }
+        }
+
+        @Override
+        public void run() {
+            int missed = 1;
+            do {
+                drain();
+                missed = pending.addAndGet(-missed);
+            } while (missed != 0);
+        }
+
+        private void drain() {
+            while (!isCancelled) {
+                if (invalidRequest != null) {
+                    terminate();
+                    subscriber.onError(invalidRequest);
+                    return;
+                }
+                if (demand.get() == 0) return;
+                boolean hasNext;
+                try {
+                    if (spliterator == null) spliterator = queries.get();
+                    hasNext = spliterator.tryAdvance(query -> next = query);
+                } catch (RuntimeException e) {
+                    terminate();
+                    subscriber.onError(e);
+                    return;
+                }
+                if (!hasNext) {
+                    terminate();
+                    subscriber.onComplete();
+                    return;
+                }
+                T query = next;
+                next = null;
+                demand.decrementAndGet();
+                subscriber.onNext(query);
+            }
+            // Release the parser once cancelled, so that its buffers can be collected
+            spliterator = null;
+        }
+
+        private void terminate() {
+            isCancelled = true;
+            spliterator = null;
+        }
+    }
+}
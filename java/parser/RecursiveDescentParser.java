@@ -0,0 +1,682 @@
+/*
+ * Copyright (C) 2022 Vaticle
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.vaticle.typeql.lang.parser;
+
+import com.vaticle.typeql.lang.common.exception.ParseLimitException;
+import com.vaticle.typeql.lang.common.exception.TypeQLException;
+import com.vaticle.typeql.lang.query.TypeQLQuery;
+import org.antlr.v4.runtime.CharStreams;
+import org.antlr.v4.runtime.CommonTokenStream;
+import org.antlr.v4.runtime.Token;
+
+import java.util.List;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.Stream;
+
+import static com.vaticle.typeql.grammar.TypeQLLexer.VOCABULARY;
+import static com.vaticle.typeql.grammar.TypeQLParser.ABSTRACT;
+import static com.vaticle.typeql.grammar.TypeQLParser.ANNOTATION_KEY;
+import static com.vaticle.typeql.grammar.TypeQLParser.ANNOTATION_UNIQUE;
+import static com.vaticle.typeql.grammar.TypeQLParser.AS;
+import static com.vaticle.typeql.grammar.TypeQLParser.ATTRIBUTE;
+import static com.vaticle.typeql.grammar.TypeQLParser.BOOLEAN;
+import static com.vaticle.typeql.grammar.TypeQLParser.BOOLEAN_;
+import static com.vaticle.typeql.grammar.TypeQLParser.CONTAINS;
+import static com.vaticle.typeql.grammar.TypeQLParser.COUNT;
+import static com.vaticle.typeql.grammar.TypeQLParser.DATETIME;
+import static com.vaticle.typeql.grammar.TypeQLParser.DATETIME_;
+import static com.vaticle.typeql.grammar.TypeQLParser.DATE_;
+import static com.vaticle.typeql.grammar.TypeQLParser.DEFINE;
+import static com.vaticle.typeql.grammar.TypeQLParser.DELETE;
+import static com.vaticle.typeql.grammar.TypeQLParser.DOUBLE;
+import static com.vaticle.typeql.grammar.TypeQLParser.DOUBLE_;
+import static com.vaticle.typeql.grammar.TypeQLParser.ENTITY;
+import static com.vaticle.typeql.grammar.TypeQLParser.EQ;
+import static com.vaticle.typeql.grammar.TypeQLParser.GET;
+import static com.vaticle.typeql.grammar.TypeQLParser.GROUP;
+import static com.vaticle.typeql.grammar.TypeQLParser.GT;
+import static com.vaticle.typeql.grammar.TypeQLParser.GTE;
+import static com.vaticle.typeql.grammar.TypeQLParser.HAS;
+import static com.vaticle.typeql.grammar.TypeQLParser.IID;
+import static com.vaticle.typeql.grammar.TypeQLParser.IID_;
+import static com.vaticle.typeql.grammar.TypeQLParser.INSERT;
+import static com.vaticle.typeql.grammar.TypeQLParser.IS;
+import static com.vaticle.typeql.grammar.TypeQLParser.ISA_;
+import static com.vaticle.typeql.grammar.TypeQLParser.LABEL_;
+import static com.vaticle.typeql.grammar.TypeQLParser.LABEL_SCOPED_;
+import static com.vaticle.typeql.grammar.TypeQLParser.LIKE;
+import static com.vaticle.typeql.grammar.TypeQLParser.LIMIT;
+import static com.vaticle.typeql.grammar.TypeQLParser.LONG;
+import static com.vaticle.typeql.grammar.TypeQLParser.LONG_;
+import static com.vaticle.typeql.grammar.TypeQLParser.LT;
+import static com.vaticle.typeql.grammar.TypeQLParser.LTE;
+import static com.vaticle.typeql.grammar.TypeQLParser.MATCH;
+import static com.vaticle.typeql.grammar.TypeQLParser.MAX;
+import static com.vaticle.typeql.grammar.TypeQLParser.MEAN;
+import static com.vaticle.typeql.grammar.TypeQLParser.MEDIAN;
+import static com.vaticle.typeql.grammar.TypeQLParser.MIN;
+import static com.vaticle.typeql.grammar.TypeQLParser.NEQ;
+import static com.vaticle.typeql.grammar.TypeQLParser.NOT;
+import static com.vaticle.typeql.grammar.TypeQLParser.OFFSET;
+import static com.vaticle.typeql.grammar.TypeQLParser.OR;
+import static com.vaticle.typeql.grammar.TypeQLParser.ORDER_;
+import static com.vaticle.typeql.grammar.TypeQLParser.OWNS;
+import static com.vaticle.typeql.grammar.TypeQLParser.PLAYS;
+import static com.vaticle.typeql.grammar.TypeQLParser.REGEX;
+import static com.vaticle.typeql.grammar.TypeQLParser.RELATES;
+import static com.vaticle.typeql.grammar.TypeQLParser.RELATION;
+import static com.vaticle.typeql.grammar.TypeQLParser.ROLE;
+import static com.vaticle.typeql.grammar.TypeQLParser.RULE;
+import static com.vaticle.typeql.grammar.TypeQLParser.RULE_attribute;
+import static com.vaticle.typeql.grammar.TypeQLParser.RULE_attributes;
+import static com.vaticle.typeql.grammar.TypeQLParser.RULE_definables;
+import static com.vaticle.typeql.grammar.TypeQLParser.RULE_pattern_conjunction;
+import static com.vaticle.typeql.grammar.TypeQLParser.RULE_pattern_disjunction;
+import static com.vaticle.typeql.grammar.TypeQLParser.RULE_pattern_negation;
+import static com.vaticle.typeql.grammar.TypeQLParser.RULE_patterns;
+import static com.vaticle.typeql.grammar.TypeQLParser.RULE_predicate;
+import static com.vaticle.typeql.grammar.TypeQLParser.RULE_query_define;
+import static com.vaticle.typeql.grammar.TypeQLParser.RULE_query_delete;
+import static com.vaticle.typeql.grammar.TypeQLParser.RULE_query_insert;
+import static com.vaticle.typeql.grammar.TypeQLParser.RULE_query_match;
+import static com.vaticle.typeql.grammar.TypeQLParser.RULE_query_match_aggregate;
+import static com.vaticle.typeql.grammar.TypeQLParser.RULE_query_match_group;
+import static com.vaticle.typeql.grammar.TypeQLParser.RULE_query_match_group_agg;
+import static com.vaticle.typeql.grammar.TypeQLParser.RULE_query_undefine;
+import static com.vaticle.typeql.grammar.TypeQLParser.RULE_query_update;
+import static com.vaticle.typeql.grammar.TypeQLParser.RULE_relation;
+import static com.vaticle.typeql.grammar.TypeQLParser.RULE_role_player;
+import static com.vaticle.typeql.grammar.TypeQLParser.RULE_schema_rule;
+import static com.vaticle.typeql.grammar.TypeQLParser.RULE_variable_attribute;
+import static com.vaticle.typeql.grammar.TypeQLParser.RULE_variable_concept;
+import static com.vaticle.typeql.grammar.TypeQLParser.RULE_variable_relation;
+import static com.vaticle.typeql.grammar.TypeQLParser.RULE_variable_thing;
+import static com.vaticle.typeql.grammar.TypeQLParser.RULE_variable_things;
+import static com.vaticle.typeql.grammar.TypeQLParser.RULE_variable_type;
+import static com.vaticle.typeql.grammar.TypeQLParser.SORT;
+import static com.vaticle.typeql.grammar.TypeQLParser.STD;
+import static com.vaticle.typeql.grammar.TypeQLParser.STRING;
+import static com.vaticle.typeql.grammar.TypeQLParser.STRING_;
+import static com.vaticle.typeql.grammar.TypeQLParser.SUB_;
+import static com.vaticle.typeql.grammar.TypeQLParser.SUM;
+import static com.vaticle.typeql.grammar.TypeQLParser.THEN;
+import static com.vaticle.typeql.grammar.TypeQLParser.THING;
+import static com.vaticle.typeql.grammar.TypeQLParser.TYPE;
+import static com.vaticle.typeql.grammar.TypeQLParser.UNDEFINE;
+import static com.vaticle.typeql.grammar.TypeQLParser.VALUE;
+import static com.vaticle.typeql.grammar.TypeQLParser.VAR_;
+import static com.vaticle.typeql.grammar.TypeQLParser.WHEN;
+import static com.vaticle.typeql.lang.parser.DirectParser.literalType;
+
+/**
+ * A hand-written recursive descent parser of TypeQL queries, which builds the same queries as {@link Parser}
+ * without ANTLR's adaptive prediction or parse trees.
+ *
+ * The grammar is nearly LL(1), and every choice between alternatives is made from at most three tokens of
+ * lookahead. Tokens are read from the ANTLR lexer, and queries are built by the builders of {@link DirectParser},
+ * through the same frames that the rules of the grammar open. Input that does not match the grammar is parsed
+ * again by a {@link Parser}, so that syntax errors are reported exactly as they always have been.
+ */
+public class RecursiveDescentParser implements ParserBackend {
+
+    private static final int POOLED_PARSERS_PER_PROCESSOR = 2;
+    private static final int SEMICOLON = literalType(";");
+    private static final int COMMA = literalType(",");
+    private static final int COLON = literalType(":");
+    private static final int CURLY_OPEN = literalType("{");
+    private static final int CURLY_CLOSE = literalType("}");
+    private static final int PAREN_OPEN = literalType("(");
+    private static final int PAREN_CLOSE = literalType(")");
+
+    private static final boolean[] LABEL = tokenSet(
+            LABEL_, RULE, THING, ENTITY, ATTRIBUTE, RELATION, ROLE,
+            VALUE, MIN, MAX, MEDIAN, MEAN, STD, SUM, COUNT, GET, SORT, LIMIT, OFFSET, GROUP, CONTAINS
+    );
+    // Keywords that may follow the patterns of a match query, but are also labels that may start a pattern
+    private static final boolean[] MODIFIER = tokenSet(
+            GET, SORT, OFFSET, LIMIT, GROUP, COUNT, MAX, MEAN, MEDIAN, MIN, STD, SUM
+    );
+    private static final boolean[] AGGREGATE_METHOD = tokenSet(COUNT, MAX, MEAN, MEDIAN, MIN, STD, SUM);
+    private static final boolean[] TYPE_CONSTRAINT = tokenSet(ABSTRACT, SUB_, OWNS, RELATES, PLAYS, REGEX, TYPE);
+    private static final boolean[] VALUE_TYPE = tokenSet(LONG, DOUBLE, STRING, BOOLEAN, DATETIME);
+    private static final boolean[] LITERAL = tokenSet(STRING_, LONG_, DOUBLE_, BOOLEAN_, DATE_, DATETIME_);
+    private static final boolean[] EQUALITY = tokenSet(EQ, NEQ, GT, GTE, LT, LTE);
+
+    private final Parser fallback;
+    private final ParserPool pool;
+    private final LongAdder fallbacks;
+
+    public RecursiveDescentParser() {
+        this(new Parser());
+    }
+
+    /**
+     * @param fallback the parser of input that does not match the grammar, which reports its syntax errors
+     */
+    public RecursiveDescentParser(Parser fallback) {
+        this.fallback = fallback;
+        this.pool = new ParserPool(Runtime.getRuntime().availableProcessors() * POOLED_PARSERS_PER_PROCESSOR);
+        this.fallbacks = new LongAdder();
+    }
+
+    private static boolean[] tokenSet(int... types) {
+        // Token types run from EOF, which is -1, to the maximum token type
+        boolean[] set = new boolean[VOCABULARY.getMaxTokenType() + 2];
+        for (int type : types) set[type + 1] = true;
+        return set;
+    }
+
+    /**
+     * @return the number of inputs that did not match the grammar, and were parsed again by the fallback parser
+     */
+    public long fallbacks() {
+        return fallbacks.sum();
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public <T extends TypeQLQuery> T parseQueryEOF(String queryString, ParseLimits limits) {
+        List<T> queries = parse(queryString, limits, false);
+        if (queries == null) return fallback.parseQueryEOF(queryString, limits);
+        return queries.get(0);
+    }
+
+    @Override
+    public <T extends TypeQLQuery> Stream<T> parseQueriesEOF(String queryString, ParseLimits limits) {
+        List<T> queries = parse(queryString, limits, true);
+        if (queries == null) return fallback.parseQueriesEOF(queryString, limits);
+        return queries.stream();
+    }
+
+    /**
+     * @return the queries parsed, or null if the input does not match the grammar, or is not built exactly as
+     * the fallback parser would build it: when the lexer skips input, or a query fails to build
+     */
+    private <T extends TypeQLQuery> List<T> parse(String queryString, ParseLimits limits, boolean many) {
+        if (queryString == null) throw TypeQLException.of("Query String is NULL");
+        limits.checkLength(queryString.length());
+        String typeQLString = queryString.stripTrailing();
+        if (typeQLString.isEmpty()) throw TypeQLException.of("Query String is empty or blank");
+
+        ParserPool.Instance instance = pool.acquire(
+                CharStreams.fromString(typeQLString), limits.isUnlimited() ? null : limits.start()
+        );
+        try {
+            Descent descent = new Descent(instance.tokens(), instance.parser());
+            List<T> queries = many ? descent.queries() : descent.query();
+            if (!instance.hasLexerErrors()) return queries;
+        } catch (ParseLimitException e) {
+            throw e;
+        } catch (RuntimeException e) {
+            // The input does not match the grammar, or a query failed to build, which the fallback parser reports
+        } finally {
+            pool.release(instance);
+        }
+        fallbacks.increment();
+        return null;
+    }
+
+    /**
+     * Thrown when the input does not match the grammar, to unwind the descent. It has no stack trace, as it is
+     * only ever caught.
+     */
+    private static class Mismatch extends RuntimeException {
+
+        private static final long serialVersionUID = 1L;
+
+        private static final Mismatch INSTANCE = new Mismatch();
+
+        private Mismatch() {
+            super(null, null, false, false);
+        }
+    }
+
+    /**
+     * A single parse, which descends through the rules of the grammar as it consumes the tokens of the input.
+     * Each method parses the rule of the grammar it is named after.
+     */
+    private static class Descent {
+
+        private final CommonTokenStream tokens;
+        private final DirectParser builder;
+
+        private Descent(CommonTokenStream tokens, DirectParser builder) {
+            this.tokens = tokens;
+            this.builder = builder;
+        }
+
+        private int la(int i) {
+            return tokens.LA(i);
+        }
+
+        private boolean is(boolean[] set, int i) {
+            return set[la(i) + 1];
+        }
+
+        private void match(int type) {
+            match(la(1) == type);
+        }
+
+        private void match(boolean matches) {
+            if (!matches) throw Mismatch.INSTANCE;
+            Token token = tokens.LT(1);
+            tokens.consume();
+            builder.addToken(token);
+        }
+
+        private void enter() {
+            builder.enterValueRule();
+        }
+
+        private void exit(int rule) {
+            builder.exitValueRule(rule, true);
+        }
+
+        private <T extends TypeQLQuery> List<T> query() {
+            builder.startBuilding();
+            nextQuery();
+            if (la(1) != Token.EOF) throw Mismatch.INSTANCE;
+            return builder.builtValues();
+        }
+
+        private <T extends TypeQLQuery> List<T> queries() {
+            builder.startBuilding();
+            do nextQuery(); while (la(1) != Token.EOF);
+            return builder.builtValues();
+        }
+
+        private void nextQuery() {
+            int type = la(1);
+            if (type == DEFINE || type == UNDEFINE) {
+                enter();
+                match(type);
+                definables();
+                exit(type == DEFINE ? RULE_query_define : RULE_query_undefine);
+            } else if (type == INSERT) {
+                enter();
+                match(INSERT);
+                variableThings();
+                exit(RULE_query_insert);
+            } else if (type == MATCH) {
+                queryMatchAny();
+            } else {
+                throw Mismatch.INSTANCE;
+            }
+        }
+
+        /**
+         * Parses any query that starts with a match clause. Rules that enclose the query first parsed, such as
+         * an update enclosing a delete, are only entered once that query has been parsed.
+         */
+        private void queryMatchAny() {
+            enter();
+            match(MATCH);
+            patterns();
+            if (la(1) == INSERT) {
+                match(INSERT);
+                variableThings();
+                exit(RULE_query_insert);
+            } else if (la(1) == DELETE) {
+                match(DELETE);
+                variableThings();
+                exit(RULE_query_delete);
+                if (la(1) == INSERT) {
+                    builder.enterEnclosingValueRule();
+                    match(INSERT);
+                    variableThings();
+                    exit(RULE_query_update);
+                }
+            } else {
+                modifiers();
+                exit(RULE_query_match);
+                if (is(AGGREGATE_METHOD, 1)) {
+                    builder.enterEnclosingValueRule();
+                    matchAggregate();
+                    exit(RULE_query_match_aggregate);
+                } else if (la(1) == GROUP) {
+                    builder.enterEnclosingValueRule();
+                    match(GROUP);
+                    match(VAR_);
+                    match(SEMICOLON);
+                    if (is(AGGREGATE_METHOD, 1)) {
+                        matchAggregate();
+                        exit(RULE_query_match_group_agg);
+                    } else {
+                        exit(RULE_query_match_group);
+                    }
+                }
+            }
+        }
+
+        private void modifiers() {
+            if (la(1) == GET) {
+                match(GET);
+                match(VAR_);
+                while (la(1) == COMMA) {
+                    match(COMMA);
+                    match(VAR_);
+                }
+                match(SEMICOLON);
+            }
+            if (la(1) == SORT) {
+                match(SORT);
+                varOrder();
+                while (la(1) == COMMA) {
+                    match(COMMA);
+                    varOrder();
+                }
+                match(SEMICOLON);
+            }
+            if (la(1) == OFFSET) {
+                match(OFFSET);
+                match(LONG_);
+                match(SEMICOLON);
+            }
+            if (la(1) == LIMIT) {
+                match(LIMIT);
+                match(LONG_);
+                match(SEMICOLON);
+            }
+        }
+
+        private void varOrder() {
+            match(VAR_);
+            if (la(1) == ORDER_) match(ORDER_);
+        }
+
+        private void matchAggregate() {
+            match(is(AGGREGATE_METHOD, 1));
+            if (la(1) == VAR_) match(VAR_);
+            match(SEMICOLON);
+        }
+
+        private void definables() {
+            enter();
+            do {
+                if (la(1) == RULE && !startsTypeConstraint(2)) schemaRule();
+                else variableType();
+                match(SEMICOLON);
+            } while (la(1) == VAR_ || la(1) == LABEL_SCOPED_ || is(LABEL, 1));
+            exit(RULE_definables);
+        }
+
+        private void patterns() {
+            enter();
+            do {
+                pattern();
+                match(SEMICOLON);
+            } while (startsPattern());
+            exit(RULE_patterns);
+        }
+
+        private boolean startsPattern() {
+            int type = la(1);
+            if (type == CONTAINS) return true;
+            else if (is(MODIFIER, 1)) return startsTypeConstraint(2);
+            else return type == CURLY_OPEN || type == NOT || type == VAR_ || type == PAREN_OPEN ||
+                        type == LABEL_SCOPED_ || type == LIKE || is(LABEL, 1) || is(LITERAL, 1) || is(EQUALITY, 1);
+        }
+
+        private boolean startsTypeConstraint(int i) {
+            // 'value' is also a label, so is only a constraint if a value type follows
+            return is(TYPE_CONSTRAINT, i) || (la(i) == VALUE && is(VALUE_TYPE, i + 1));
+        }
+
+        private boolean startsPredicate(int i) {
+            return is(LITERAL, i) || is(EQUALITY, i) || la(i) == CONTAINS || la(i) == LIKE;
+        }
+
+        private void pattern() {
+            if (la(1) == CURLY_OPEN) {
+                // A conjunction and a disjunction start alike, and their frames open at the same point
+                enter();
+                patternBlock();
+                if (la(1) == OR) {
+                    do {
+                        match(OR);
+                        patternBlock();
+                    } while (la(1) == OR);
+                    exit(RULE_pattern_disjunction);
+                } else {
+                    exit(RULE_pattern_conjunction);
+                }
+            } else if (la(1) == NOT) {
+                enter();
+                match(NOT);
+                patternBlock();
+                exit(RULE_pattern_negation);
+            } else if (la(1) == VAR_ && la(2) == IS) {
+                enter();
+                match(VAR_);
+                match(IS);
+                match(VAR_);
+                exit(RULE_variable_concept);
+            } else if ((la(1) == VAR_ || la(1) == LABEL_SCOPED_ || is(LABEL, 1)) && startsTypeConstraint(2)) {
+                variableType();
+            } else {
+                variableThingAny();
+            }
+        }
+
+        private void patternBlock() {
+            match(CURLY_OPEN);
+            patterns();
+            match(CURLY_CLOSE);
+        }
+
+        private void variableType() {
+            enter();
+            typeAny();
+            typeConstraint();
+            while (la(1) == COMMA) {
+                match(COMMA);
+                typeConstraint();
+            }
+            exit(RULE_variable_type);
+        }
+
+        private void typeConstraint() {
+            int type = la(1);
+            if (type == ABSTRACT) {
+                match(ABSTRACT);
+            } else if (type == SUB_) {
+                match(SUB_);
+                typeAny();
+            } else if (type == OWNS) {
+                match(OWNS);
+                type();
+                asType();
+                if (la(1) == ANNOTATION_KEY) match(ANNOTATION_KEY);
+                if (la(1) == ANNOTATION_UNIQUE) match(ANNOTATION_UNIQUE);
+            } else if (type == RELATES) {
+                match(RELATES);
+                type();
+                asType();
+            } else if (type == PLAYS) {
+                match(PLAYS);
+                match(la(1) == LABEL_SCOPED_ || la(1) == VAR_);
+                asType();
+            } else if (type == VALUE) {
+                match(VALUE);
+                match(is(VALUE_TYPE, 1));
+            } else if (type == REGEX) {
+                match(REGEX);
+                match(STRING_);
+            } else if (type == TYPE) {
+                match(TYPE);
+                match(la(1) == LABEL_SCOPED_ || is(LABEL, 1));
+            } else {
+                throw Mismatch.INSTANCE;
+            }
+        }
+
+        private void asType() {
+            if (la(1) == AS) {
+                match(AS);
+                type();
+            }
+        }
+
+        private void variableThings() {
+            enter();
+            do {
+                variableThingAny();
+                match(SEMICOLON);
+            } while (la(1) == VAR_ || la(1) == PAREN_OPEN || startsPredicate(1));
+            exit(RULE_variable_things);
+        }
+
+        private void variableThingAny() {
+            boolean variable = la(1) == VAR_;
+            int next = variable ? 2 : 1;
+            if (la(next) == PAREN_OPEN) {
+                enter();
+                if (variable) match(VAR_);
+                relation();
+                isaOrAttributes();
+                exit(RULE_variable_relation);
+            } else if (variable && !startsPredicate(2)) {
+                enter();
+                match(VAR_);
+                if (la(1) == ISA_ || la(1) == IID) {
+                    if (la(1) == ISA_) {
+                        match(ISA_);
+                        type();
+                    } else {
+                        match(IID);
+                        match(IID_);
+                    }
+                    if (la(1) == COMMA) {
+                        match(COMMA);
+                        attributes();
+                    }
+                } else {
+                    attributes();
+                }
+                exit(RULE_variable_thing);
+            } else {
+                enter();
+                if (variable) match(VAR_);
+                predicate();
+                isaOrAttributes();
+                exit(RULE_variable_attribute);
+            }
+        }
+
+        private void isaOrAttributes() {
+            if (la(1) == ISA_) {
+                match(ISA_);
+                type();
+                if (la(1) == COMMA) {
+                    match(COMMA);
+                    attributes();
+                }
+            } else if (la(1) == HAS) {
+                attributes();
+            }
+        }
+
+        private void relation() {
+            enter();
+            match(PAREN_OPEN);
+            rolePlayer();
+            while (la(1) == COMMA) {
+                match(COMMA);
+                rolePlayer();
+            }
+            match(PAREN_CLOSE);
+            exit(RULE_relation);
+        }
+
+        private void rolePlayer() {
+            enter();
+            if ((la(1) == VAR_ && la(2) == COLON) || is(LABEL, 1)) {
+                type();
+                match(COLON);
+            }
+            match(VAR_);
+            exit(RULE_role_player);
+        }
+
+        private void attributes() {
+            enter();
+            attribute();
+            while (la(1) == COMMA) {
+                match(COMMA);
+                attribute();
+            }
+            exit(RULE_attributes);
+        }
+
+        private void attribute() {
+            enter();
+            match(HAS);
+            if (la(1) == VAR_) {
+                match(VAR_);
+            } else {
+                match(is(LABEL, 1));
+                if (la(1) == VAR_) match(VAR_);
+                else predicate();
+            }
+            exit(RULE_attribute);
+        }
+
+        private void predicate() {
+            enter();
+            if (is(LITERAL, 1)) {
+                match(true);
+            } else if (is(EQUALITY, 1)) {
+                match(true);
+                match(la(1) == VAR_ || is(LITERAL, 1));
+            } else {
+                match(la(1) == CONTAINS || la(1) == LIKE);
+                match(STRING_);
+            }
+            exit(RULE_predicate);
+        }
+
+        private void schemaRule() {
+            enter();
+            match(RULE);
+            match(is(LABEL, 1));
+            if (la(1) == COLON) {
+                match(COLON);
+                match(WHEN);
+                patternBlock();
+                match(THEN);
+                match(CURLY_OPEN);
+                variableThingAny();
+                match(SEMICOLON);
+                match(CURLY_CLOSE);
+            }
+            exit(RULE_schema_rule);
+        }
+
+        private void typeAny() {
+            match(la(1) == VAR_ || la(1) == LABEL_SCOPED_ || is(LABEL, 1));
+        }
+
+        private void type() {
+            match(la(1) == VAR_ || is(LABEL, 1));
+        }
+    }
+}
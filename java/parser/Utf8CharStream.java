@@ -0,0 +1,241 @@
+/*
+ * Copyright (C) 2022 Vaticle
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.vaticle.typeql.lang.parser;
+
+import org.antlr.v4.runtime.CharStream;
+import org.antlr.v4.runtime.IntStream;
+import org.antlr.v4.runtime.misc.Interval;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+/**
+ * A character stream that decodes UTF-8 lazily from a byte buffer, such as a memory-mapped file,
+ * without first copying the input into a code point array.
+ *
+ * Code points are decoded on demand as the lexer reads them. To support the lexer seeking backwards,
+ * the byte offset of every {@link #CHECKPOINT_INTERVAL}th code point is recorded as it is first passed,
+ * so any position can be reached again by decoding forward from the nearest checkpoint. The byte offsets of the last
+ * {@link #RECENT_LENGTH} code points passed are also kept, so that the parser can read the characters of the tokens
+ * that the lexer has just passed, such as to decode literals in place, without decoding from a checkpoint.
+ * Malformed input is read as U+FFFD, one byte at a time.
+ */
+public class Utf8CharStream implements CharStream {
+
+    private static final int CHECKPOINT_INTERVAL = 1024;
+    private static final int RECENT_LENGTH = 256;
+    private static final int REPLACEMENT_CHARACTER = 0xFFFD;
+
+    private final ByteBuffer bytes;
+    private final int limit;
+    private final String sourceName;
+    private int[] checkpoints;
+    private int checkpointCount;
+    // A ring of the byte offsets of the code points up to the furthest passed, indexed by code point index
+    private final int[] recent;
+    private int furthest;
+    private int index;
+    private int offset;
+    private int size;
+
+    public Utf8CharStream(ByteBuffer buffer) {
+        this(buffer, UNKNOWN_SOURCE_NAME);
+    }
+
+    public Utf8CharStream(ByteBuffer buffer, String sourceName) {
+        // The slice shares the buffer's content, and leaves the caller's position and limit untouched
+        this.bytes = buffer.slice();
+        this.limit = bytes.limit();
+        this.sourceName = sourceName;
+        this.checkpoints = new int[16];
+        this.checkpointCount = 1;
+        this.recent = new int[RECENT_LENGTH];
+        this.furthest = 0;
+        this.index = 0;
+        this.offset = 0;
+        this.size = -1;
+    }
+
+    /**
+     * @return true if the buffer contains nothing but ASCII whitespace, without decoding it
+     */
+    public static boolean isBlank(ByteBuffer buffer) {
+        for (int i = buffer.position(); i < buffer.limit(); i++) {
+            byte b = buffer.get(i);
+            if (b != ' ' && b != '\t' && b != '\n' && b != '\r' && b != '\f') return false;
+        }
+        return true;
+    }
+
+    @Override
+    public void consume() {
+        if (offset >= limit) throw new IllegalStateException("cannot consume EOF");
+        advance();
+    }
+
+    private void advance() {
+        offset += width(offset);
+        index++;
+        if (index % CHECKPOINT_INTERVAL == 0 && index / CHECKPOINT_INTERVAL == checkpointCount) {
+            if (checkpointCount == checkpoints.length) checkpoints = Arrays.copyOf(checkpoints, checkpointCount * 2);
+            checkpoints[checkpointCount++] = offset;
+        }
+        // Code points passed again after seeking back are already recorded, or have been overwritten by later ones
+        if (index > furthest) {
+            furthest = index;
+            recent[index % RECENT_LENGTH] = offset;
+        }
+    }
+
+    @Override
+    public int LA(int i) {
+        if (i == 0) return 0; // undefined
+        if (i == 1) return offset < limit ? codePointAt(offset) : IntStream.EOF;
+        int target = index + (i > 0 ? i - 1 : i);
+        if (target < 0) return IntStream.EOF;
+        int at = offsetOf(target);
+        return at < limit ? codePointAt(at) : IntStream.EOF;
+    }
+
+    @Override
+    public int mark() {
+        // The whole input is always available, so marks need not buffer anything
+        return -1;
+    }
+
+    @Override
+    public void release(int marker) {
+    }
+
+    @Override
+    public int index() {
+        return index;
+    }
+
+    @Override
+    public void seek(int target) {
+        if (target < index) {
+            int checkpoint = Math.min(target / CHECKPOINT_INTERVAL, checkpointCount - 1);
+            index = checkpoint * CHECKPOINT_INTERVAL;
+            offset = checkpoints[checkpoint];
+        }
+        while (index < target && offset < limit) advance();
+    }
+
+    @Override
+    public int size() {
+        if (size < 0) {
+            int count = index;
+            for (int at = offset; at < limit; at += width(at)) count++;
+            size = count;
+        }
+        return size;
+    }
+
+    @Override
+    public String getSourceName() {
+        return sourceName;
+    }
+
+    @Override
+    public String getText(Interval interval) {
+        if (interval.a < 0 || interval.b < interval.a - 1) {
+            throw new IllegalArgumentException("Invalid interval: " + interval);
+        }
+        int start = offsetOf(interval.a);
+        int end = offsetOf(interval.b + 1);
+        if (start >= end) return "";
+        if (bytes.hasArray()) {
+            return new String(bytes.array(), bytes.arrayOffset() + start, end - start, UTF_8);
+        } else {
+            ByteBuffer text = bytes.duplicate();
+            text.position(start).limit(end);
+            return UTF_8.decode(text).toString();
+        }
+    }
+
+    @Override
+    public String toString() {
+        return getText(Interval.of(0, size() - 1));
+    }
+
+    /**
+     * @return the byte offset of the given code point index, or the end of the input if it lies beyond
+     */
+    private int offsetOf(int target) {
+        if (target <= furthest && furthest - target < RECENT_LENGTH) return recent[target % RECENT_LENGTH];
+        int i, at;
+        if (target >= index) {
+            i = index;
+            at = offset;
+        } else {
+            int checkpoint = Math.min(target / CHECKPOINT_INTERVAL, checkpointCount - 1);
+            i = checkpoint * CHECKPOINT_INTERVAL;
+            at = checkpoints[checkpoint];
+        }
+        while (i < target && at < limit) {
+            at += width(at);
+            i++;
+        }
+        return Math.min(at, limit);
+    }
+
+    private int codePointAt(int at) {
+        int b0 = bytes.get(at) & 0xFF;
+        if (b0 < 0x80) return b0;
+        switch (width(at)) {
+            case 2:
+                return ((b0 & 0x1F) << 6) | (bytes.get(at + 1) & 0x3F);
+            case 3:
+                return ((b0 & 0x0F) << 12) | ((bytes.get(at + 1) & 0x3F) << 6) | (bytes.get(at + 2) & 0x3F);
+            case 4:
+                return ((b0 & 0x07) << 18) | ((bytes.get(at + 1) & 0x3F) << 12) |
+                        ((bytes.get(at + 2) & 0x3F) << 6) | (bytes.get(at + 3) & 0x3F);
+            default:
+                return REPLACEMENT_CHARACTER;
+        }
+    }
+
+    /**
+     * @return the number of bytes in the sequence starting at the given offset, or 1 if it is malformed
+     */
+    private int width(int at) {
+        int b0 = bytes.get(at) & 0xFF;
+        if (b0 < 0x80) return 1;
+        int width;
+        if (b0 >= 0xC2 && b0 <= 0xDF) width = 2;
+        else if (b0 >= 0xE0 && b0 <= 0xEF) width = 3;
+        else if (b0 >= 0xF0 && b0 <= 0xF4) width = 4;
+        else return 1;
+        if (at + width > limit) return 1;
+        for (int i = 1; i < width; i++) {
+            if ((bytes.get(at + i) & 0xC0) != 0x80) return 1;
+        }
+        // Reject overlong encodings, surrogates and code points beyond U+10FFFF
+        int b1 = bytes.get(at + 1) & 0xFF;
+        if ((b0 == 0xE0 && b1 < 0xA0) || (b0 == 0xED && b1 > 0x9F) ||
+                (b0 == 0xF0 && b1 < 0x90) || (b0 == 0xF4 && b1 > 0x8F)) return 1;
+        return width;
+    }
+}
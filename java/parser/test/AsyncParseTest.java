@@ -0,0 +1,102 @@
+/*
+ * Copyright (C) 2022 Vaticle
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.vaticle.typeql.lang.parser.test;
+
+import com.vaticle.typeql.lang.TypeQL;
+import com.vaticle.typeql.lang.common.exception.TypeQLException;
+import com.vaticle.typeql.lang.parser.ParseResult;
+import com.vaticle.typeql.lang.query.TypeQLMatch;
+import com.vaticle.typeql.lang.query.TypeQLQuery;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class AsyncParseTest {
+
+    private static String query(int i) {
+        return "match $x isa person, has name \"name-" + i + "\";";
+    }
+
+    @Test
+    public void testParseQueryAsync() {
+        CompletableFuture<TypeQLMatch> parse = TypeQL.parseQueryAsync(query(0));
+        assertEquals(TypeQL.parseQuery(query(0)), parse.join());
+    }
+
+    @Test
+    public void testParseQueryAsyncCompletesExceptionally() {
+        CompletableFuture<TypeQLQuery> parse = TypeQL.parseQueryAsync("match $x isa");
+        try {
+            parse.join();
+            fail();
+        } catch (CompletionException e) {
+            assertTrue(e.getCause() instanceof TypeQLException);
+        }
+    }
+
+    @Test
+    public void testParseAllKeepsOrder() {
+        List<String> queries = new ArrayList<>();
+        for (int i = 0; i < 200; i++) queries.add(query(i));
+        List<ParseResult<TypeQLMatch>> results = TypeQL.parseAll(queries);
+
+        assertEquals(queries.size(), results.size());
+        for (int i = 0; i < queries.size(); i++) {
+            assertTrue(results.get(i).isSuccess());
+            assertEquals(TypeQL.parseQuery(queries.get(i)), results.get(i).query());
+        }
+    }
+
+    @Test
+    public void testParseAllIsolatesFailures() {
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            List<String> queries = List.of(query(0), "match $x isa", query(2), "insert $x;;");
+            List<ParseResult<TypeQLQuery>> results = TypeQL.parseAll(queries, executor);
+
+            assertEquals(4, results.size());
+            assertEquals(TypeQL.parseQuery(query(0)), results.get(0).query());
+            assertFalse(results.get(1).isSuccess());
+            assertTrue(results.get(1).error().get() instanceof TypeQLException);
+            assertEquals(TypeQL.parseQuery(query(2)), results.get(2).query());
+            assertFalse(results.get(3).isSuccess());
+            try {
+                results.get(3).query();
+                fail();
+            } catch (TypeQLException e) {
+                assertTrue(e.getMessage().contains("syntax error"));
+            }
+        } finally {
+            executor.shutdown();
+        }
+    }
+}
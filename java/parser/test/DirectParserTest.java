@@ -0,0 +1,109 @@
+/*
+ * Copyright (C) 2022 Vaticle
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.vaticle.typeql.lang.parser.test;
+
+import com.vaticle.typeql.grammar.TypeQLParser;
+import com.vaticle.typeql.lang.TypeQL;
+import com.vaticle.typeql.lang.common.exception.TypeQLException;
+import com.vaticle.typeql.lang.parser.Parser;
+import com.vaticle.typeql.lang.query.TypeQLQuery;
+import org.antlr.v4.runtime.CommonTokenStream;
+import org.junit.Test;
+
+import java.util.List;
+
+import static com.vaticle.typedb.common.collection.Collections.list;
+import static java.util.stream.Collectors.toList;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+
+/**
+ * Queries are built directly while parsing, without a parse tree. This checks that they are
+ * identical to those built by visiting the parse tree.
+ */
+public class DirectParserTest {
+
+    private static final List<String> QUERIES = list(
+            "define\nperson sub entity, owns name @key, owns email @unique, plays employment:employee;\n" +
+                    "name sub attribute, value string, regex \"^[a-z\\\\-]*$\";\n" +
+                    "employment sub relation, relates employee, relates employer as partner;\n" +
+                    "abstract-type sub entity, abstract, owns nick as name;\n" +
+                    "rule a-rule: when { $x isa person; { $y isa thing; } or { $y isa entity; }; } " +
+                    "then { $x has name \"a\"; };",
+            "undefine\nperson owns name;\nrule a-rule;",
+            "match\n$x type employment:employee;\n$y sub! $z;\n$z sub employment:employee;",
+            "match\n$x isa person, has name $n, has age > 10, has email contains \"@\", has nick like \"^a.*\";\n" +
+                    "$n != \"bob\";\nnot { $x has age 5; $x has height 1.5; };\n$x is $y;\n$y iid 0x1234;",
+            "match\n$e (employee: $x, $y, employer: $x) isa! employment, has since 2020-01-01T10:20:30.456;\n" +
+                    "$d 2020-01-01;\n$b true;\n$l <= -5;\n$t isa $type;\n$type type person;",
+            "match\n$x isa person, has name $n;\nget $x, $n;\nsort $n desc, $x;\noffset 10;\nlimit 20;",
+            "match\n$x isa person, has age $a;\nget $a;\nsum $a;",
+            "match\n$x isa person, has age $a;\ncount;",
+            "match\n$x isa person, has age $a;\ngroup $a;",
+            "match\n$x isa person, has age $a;\ngroup $a; max $a;",
+            "insert\n$x isa person, has name \"a\", has age 10;\n(employee: $x) isa employment;\n\"b\" isa name;",
+            "match\n$x isa person;\ninsert\n$x has name 'c';",
+            "match\n$x isa person, has name $n;\ndelete\n$x has $n;",
+            "match\n$x isa person, has name $n;\ndelete\n$x has $n;\ninsert\n$x has name \"d\";",
+            "match\n$x isa thing;\n{ $x isa person; } or { $x isa thing; $x has name \"e\"; } or { not { $x isa entity; }; };"
+    );
+
+    private static List<TypeQLQuery> visit(String queries) {
+        TypeQLParser parser = new TypeQLParser(new CommonTokenStream(TypeQL.lexer(queries)));
+        return new Parser().visitEof_queries(parser.eof_queries()).collect(toList());
+    }
+
+    @Test
+    public void testQueriesAreIdenticalToVisitedParseTree() {
+        for (String query : QUERIES) {
+            TypeQLQuery parsed = TypeQL.parseQuery(query);
+            TypeQLQuery visited = visit(query).get(0);
+            assertEquals(visited, parsed);
+            assertEquals(visited.toString(), parsed.toString());
+            assertEquals(visited.hashCode(), parsed.hashCode());
+        }
+    }
+
+    @Test
+    public void testInvalidQueryThrowsSameError() {
+        String query = "match\n{ $x isa person; } or { $x isa thing; };";
+        String visited = null, parsed = null;
+        try {
+            visit(query);
+        } catch (TypeQLException e) {
+            visited = e.getMessage();
+        }
+        try {
+            TypeQL.parseQuery(query);
+        } catch (TypeQLException e) {
+            parsed = e.getMessage();
+        }
+        assertNotNull(visited);
+        assertEquals(visited, parsed);
+    }
+
+    @Test
+    public void testQueryListIsIdenticalToVisitedParseTree() {
+        String script = String.join("\n", QUERIES);
+        assertEquals(visit(script), TypeQL.parseQueries(script).collect(toList()));
+    }
+}
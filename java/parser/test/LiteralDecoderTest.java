@@ -0,0 +1,151 @@
+/*
+ * Copyright (C) 2022 Vaticle
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.vaticle.typeql.lang.parser.test;
+
+import com.vaticle.typeql.lang.TypeQL;
+import com.vaticle.typeql.lang.query.TypeQLMatch;
+import com.vaticle.typeql.lang.query.TypeQLQuery;
+import org.junit.Test;
+
+import java.io.StringReader;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.util.stream.Collectors.toList;
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Literals are decoded in place from the input. This checks that they decode to exactly the values that the
+ * standard library decodes from their text, from every kind of input.
+ */
+public class LiteralDecoderTest {
+
+    private static final String ERROR = "error";
+
+    private static Object outcome(Supplier<?> decode) {
+        try {
+            return decode.get();
+        } catch (RuntimeException e) {
+            return ERROR;
+        }
+    }
+
+    private static Object valueOf(TypeQLQuery query) {
+        return query.asMatch().variables().get(0).asThing().value().get().value();
+    }
+
+    /**
+     * @return the values decoded from the literal in a query given as a string, as bytes and from a reader
+     */
+    private static List<Object> decoded(String literal) {
+        String query = "match $x " + literal + ";";
+        List<Object> decoded = new ArrayList<>();
+        decoded.add(outcome(() -> valueOf(TypeQL.parseQuery(query))));
+        decoded.add(outcome(() -> valueOf(TypeQL.parseQuery(query.getBytes(UTF_8)))));
+        decoded.add(outcome(() -> valueOf(TypeQL.<TypeQLMatch>parseQueries(new StringReader(query)).collect(toList()).get(0))));
+        return decoded;
+    }
+
+    private static void assertDecodes(String literal, Function<String, ?> expected) {
+        Object value = outcome(() -> expected.apply(literal));
+        List<Object> expectedValues = new ArrayList<>();
+        for (int i = 0; i < 3; i++) expectedValues.add(value);
+        assertEquals(literal, expectedValues, decoded(literal));
+    }
+
+    private static String digits(Random random, int count) {
+        StringBuilder digits = new StringBuilder();
+        for (int i = 0; i < count; i++) digits.append((char) ('0' + random.nextInt(10)));
+        return digits.toString();
+    }
+
+    @Test
+    public void testLongs() {
+        String[] literals = {
+                "0", "-0", "+7", "42", "-123456789012345678", "123456789012345678", "9223372036854775807",
+                "-9223372036854775808", "9223372036854775808", "000000000000000000000001"
+        };
+        for (String literal : literals) assertDecodes(literal, Long::parseLong);
+        Random random = new Random(0);
+        for (int i = 0; i < 500; i++) {
+            String literal = (random.nextBoolean() ? "-" : "") + digits(random, 1 + random.nextInt(20));
+            assertDecodes(literal, Long::parseLong);
+        }
+    }
+
+    @Test
+    public void testDoubles() {
+        String[] literals = {
+                "0.0", "-0.0", "+1.5", "0.1", "0.30000000000000004", "123456789.012345", "1.23456789012345678",
+                "999999999999999.9", "0.000000000000001", "179769313486231570000000000000000000000.0"
+        };
+        for (String literal : literals) assertDecodes(literal, Double::parseDouble);
+        Random random = new Random(0);
+        for (int i = 0; i < 2000; i++) {
+            String literal = (random.nextBoolean() ? "-" : "") + digits(random, 1 + random.nextInt(10)) + "." +
+                    digits(random, 1 + random.nextInt(12));
+            assertDecodes(literal, Double::parseDouble);
+        }
+    }
+
+    @Test
+    public void testBooleans() {
+        assertDecodes("true", Boolean::parseBoolean);
+        assertDecodes("false", Boolean::parseBoolean);
+    }
+
+    @Test
+    public void testDates() {
+        String[] literals = {
+                "2020-01-01", "2020-02-29", "2021-02-29", "2021-13-01", "2021-00-10", "0000-01-01", "9999-12-31",
+                "+12345-01-01", "-0001-06-15", "+2020-01-01"
+        };
+        Function<String, LocalDateTime> expected = text ->
+                LocalDate.parse(text, DateTimeFormatter.ISO_LOCAL_DATE).atStartOfDay();
+        for (String literal : literals) assertDecodes(literal, expected);
+    }
+
+    @Test
+    public void testDateTimes() {
+        String[] literals = {
+                "2020-01-01T00:00", "2020-01-01T23:59", "2020-01-01T24:00", "2020-01-01T10:60", "2020-01-01T10:20:30",
+                "2020-01-01T10:20:60", "2020-01-01T10:20:30.1", "2020-01-01T10:20:30.12", "2020-01-01T10:20:30.123",
+                "2021-02-29T10:20", "+12345-01-01T10:20:30.5", "-0001-06-15T01:02:03"
+        };
+        Function<String, LocalDateTime> expected = text ->
+                LocalDateTime.parse(text, DateTimeFormatter.ISO_LOCAL_DATE_TIME);
+        for (String literal : literals) assertDecodes(literal, expected);
+    }
+
+    @Test
+    public void testStrings() {
+        String[] literals = {"\"\"", "''", "\"a\"", "'it\\'s'", "\"say \\\"hi\\\"\"", "\"caf\u00e9 \ud83d\ude00\""};
+        for (String literal : literals) assertDecodes(literal, text -> text.substring(1, text.length() - 1));
+    }
+}
@@ -0,0 +1,136 @@
+/*
+ * Copyright (C) 2022 Vaticle
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.vaticle.typeql.lang.parser.test;
+
+import com.vaticle.typeql.lang.TypeQL;
+import com.vaticle.typeql.lang.common.exception.ParseLimitException;
+import com.vaticle.typeql.lang.parser.ParseLimits;
+import com.vaticle.typeql.lang.parser.Parser;
+import com.vaticle.typeql.lang.query.TypeQLQuery;
+import org.junit.Test;
+
+import java.io.StringReader;
+import java.time.Duration;
+
+import static java.util.stream.Collectors.toList;
+import static org.hamcrest.CoreMatchers.containsString;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+public class ParseLimitsTest {
+
+    private static String nestedQuery(int depth) {
+        StringBuilder query = new StringBuilder("match\n$x isa thing;\n");
+        for (int i = 0; i < depth; i++) query.append("{ $x has name \"").append(i).append("\"; } or {");
+        query.append(" $x isa person; ");
+        for (int i = 0; i < depth; i++) query.append("};");
+        return query.toString();
+    }
+
+    private static String longQuery(int attributes) {
+        StringBuilder query = new StringBuilder("match\n$x isa person");
+        for (int i = 0; i < attributes; i++) query.append(", has name \"").append(i).append("\"");
+        return query.append(";").toString();
+    }
+
+    private static String limitExceeded(Runnable parse) {
+        try {
+            parse.run();
+            fail();
+            return null;
+        } catch (ParseLimitException e) {
+            return e.getMessage();
+        }
+    }
+
+    @Test
+    public void testQueryWithinLimitsIsParsed() {
+        ParseLimits limits = ParseLimits.unlimited().maxLength(10_000).maxTokens(1_000).maxDepth(10)
+                .timeout(Duration.ofMinutes(1)).cancellation(() -> false);
+        String query = nestedQuery(5);
+        assertEquals(TypeQL.parseQuery(query), TypeQL.parseQuery(query, limits));
+    }
+
+    @Test
+    public void testLengthLimit() {
+        ParseLimits limits = ParseLimits.unlimited().maxLength(100);
+        assertThat(limitExceeded(() -> TypeQL.parseQuery(longQuery(100), limits)), containsString("TQL42"));
+        assertThat(limitExceeded(() -> TypeQL.parseQueries(longQuery(100), limits)), containsString("TQL42"));
+    }
+
+    @Test
+    public void testTokenLimit() {
+        ParseLimits limits = ParseLimits.unlimited().maxTokens(100);
+        assertThat(limitExceeded(() -> TypeQL.parseQuery(longQuery(100), limits)), containsString("TQL43"));
+        TypeQL.parseQuery(longQuery(10), limits);
+    }
+
+    @Test
+    public void testDepthLimit() {
+        ParseLimits limits = ParseLimits.unlimited().maxDepth(10);
+        assertThat(limitExceeded(() -> TypeQL.parseQuery(nestedQuery(11), limits)), containsString("TQL44"));
+        assertThat(limitExceeded(() -> TypeQL.parseQuery(nestedQuery(5_000), limits)), containsString("TQL44"));
+        TypeQL.parseQuery(nestedQuery(9), limits);
+    }
+
+    @Test
+    public void testDepthLimitIsCheckedBeforeSyntax() {
+        ParseLimits limits = ParseLimits.unlimited().maxDepth(10);
+        String invalidQuery = nestedQuery(20).replace("isa person", "isa");
+        assertThat(limitExceeded(() -> TypeQL.parseQuery(invalidQuery, limits)), containsString("TQL44"));
+    }
+
+    @Test
+    public void testTimeout() {
+        ParseLimits limits = ParseLimits.unlimited().timeout(Duration.ofNanos(1));
+        assertThat(limitExceeded(() -> TypeQL.parseQuery(longQuery(1_000), limits)), containsString("TQL45"));
+    }
+
+    @Test
+    public void testCancellation() {
+        ParseLimits limits = ParseLimits.unlimited().cancellation(() -> true);
+        assertThat(limitExceeded(() -> TypeQL.parseQuery(longQuery(1_000), limits)), containsString("TQL46"));
+    }
+
+    @Test
+    public void testDefaultLimitsApplyToEveryParse() {
+        Parser parser = new Parser();
+        parser.setLimits(ParseLimits.unlimited().maxTokens(100));
+        String script = longQuery(10) + "\n" + longQuery(100);
+        assertThat(limitExceeded(() -> parser.parseQueryEOF(longQuery(100))), containsString("TQL43"));
+        assertThat(limitExceeded(() -> parser.parsePatternEOF(nestedQuery(100).substring(6))), containsString("TQL43"));
+        assertThat(limitExceeded(() -> parser.parseQueriesEOF(new StringReader(script)).collect(toList())), containsString("TQL43"));
+        assertEquals(1, parser.parseQueriesEOF(new StringReader(longQuery(10) + "\n" + longQuery(10))).limit(1).count());
+    }
+
+    @Test
+    public void testParserIsReusableAfterLimitIsExceeded() {
+        ParseLimits limits = ParseLimits.unlimited().maxTokens(50);
+        String query = longQuery(10);
+        TypeQLQuery expected = TypeQL.parseQuery(query);
+        for (int i = 0; i < 10; i++) {
+            limitExceeded(() -> TypeQL.parseQuery(nestedQuery(10), limits));
+            assertEquals(expected, TypeQL.parseQuery(query));
+        }
+    }
+}
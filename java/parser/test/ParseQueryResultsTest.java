@@ -0,0 +1,167 @@
+/*
+ * Copyright (C) 2022 Vaticle
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.vaticle.typeql.lang.parser.test;
+
+import com.vaticle.typeql.lang.TypeQL;
+import com.vaticle.typeql.lang.common.exception.ParseLimitException;
+import com.vaticle.typeql.lang.parser.ParseLimits;
+import com.vaticle.typeql.lang.parser.ParseResult;
+import com.vaticle.typeql.lang.parser.Parser;
+import com.vaticle.typeql.lang.query.TypeQLQuery;
+import org.junit.Test;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.locks.LockSupport;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class ParseQueryResultsTest {
+
+    private static String query(int i) {
+        return "insert $x isa person, has name \"name-" + i + "\";\n";
+    }
+
+    private static List<ParseResult<TypeQLQuery>> parse(String script) {
+        return TypeQL.<TypeQLQuery>parseQueryResults(script).collect(Collectors.toList());
+    }
+
+    @Test
+    public void testValidScriptParsesEveryQuery() {
+        String script = "define person sub entity;\n" +
+                "match $x isa person; get $x; limit 1;\n" +
+                "match $x isa person; delete $x isa person; insert $x isa person;\n" +
+                "match $x isa person; group $x; count;\n";
+        List<ParseResult<TypeQLQuery>> results = parse(script);
+        List<TypeQLQuery> expected = TypeQL.parseQueries(script).collect(Collectors.toList());
+        assertEquals(expected.size(), results.size());
+        for (int i = 0; i < expected.size(); i++) assertEquals(expected.get(i), results.get(i).query());
+    }
+
+    @Test
+    public void testMalformedQueryFailsOnlyItself() {
+        String script = query(0) + query(1) + "insert $x isa;\n" + query(3);
+        List<ParseResult<TypeQLQuery>> results = parse(script);
+
+        assertEquals(4, results.size());
+        assertEquals(TypeQL.parseQuery(query(0)), results.get(0).query());
+        assertEquals(TypeQL.parseQuery(query(1)), results.get(1).query());
+        assertFalse(results.get(2).isSuccess());
+        assertTrue(results.get(2).error().get().getMessage().contains("syntax error at line 3"));
+        assertEquals(TypeQL.parseQuery(query(3)), results.get(3).query());
+    }
+
+    @Test
+    public void testQueryThatFailsToBuildFailsOnlyItself() {
+        String script = query(0) + "match $x isa person; get $y;\n" + query(2);
+        List<ParseResult<TypeQLQuery>> results = parse(script);
+
+        assertEquals(3, results.size());
+        assertTrue(results.get(0).isSuccess());
+        assertFalse(results.get(1).isSuccess());
+        assertTrue(results.get(2).isSuccess());
+    }
+
+    @Test
+    public void testTextBeforeTheFirstQueryFailsAlone() {
+        List<ParseResult<TypeQLQuery>> results = parse("person sub entity;\n" + query(1));
+        assertEquals(2, results.size());
+        assertTrue(results.get(0).error().get().getMessage().contains("syntax error at line 1"));
+        assertEquals(TypeQL.parseQuery(query(1)), results.get(1).query());
+
+        results = parse("# a comment\n" + query(1));
+        assertEquals(1, results.size());
+        assertEquals(TypeQL.parseQuery(query(1)), results.get(0).query());
+    }
+
+    @Test
+    public void testErrorsInLongScriptsReportTheirLineInTheScript() {
+        StringBuilder script = new StringBuilder();
+        for (int i = 0; i < 5000; i++) {
+            script.append(i % 1000 == 999 ? "insert $x isa person, has name;\n" : query(i));
+        }
+        List<ParseResult<TypeQLQuery>> results = parse(script.toString());
+
+        assertEquals(5000, results.size());
+        for (int i = 0; i < 5000; i++) {
+            if (i % 1000 == 999) {
+                String message = results.get(i).error().get().getMessage();
+                assertTrue(message, message.contains("syntax error at line " + (i + 1) + ":"));
+            } else {
+                assertEquals(TypeQL.parseQuery(query(i)), results.get(i).query());
+            }
+        }
+    }
+
+    private static String script(int queries) {
+        StringBuilder script = new StringBuilder();
+        for (int i = 0; i < queries; i++) script.append(query(i));
+        return script.toString();
+    }
+
+    @Test
+    public void testCancelledParseStops() {
+        Parser parser = new Parser();
+        parser.setLimits(ParseLimits.unlimited().cancellation(() -> true));
+        try {
+            parser.<TypeQLQuery>parseQueryResultsEOF(script(2000)).collect(Collectors.toList());
+            fail();
+        } catch (ParseLimitException e) {
+            assertTrue(e.getMessage(), e.getMessage().contains("TQL46"));
+        }
+    }
+
+    @Test
+    public void testTimeLimitAppliesToTheWholeStream() {
+        Parser parser = new Parser();
+        parser.setLimits(ParseLimits.unlimited().timeout(Duration.ofMillis(100)));
+        // Each chunk is parsed well within the time limit, but not all of them
+        Stream<ParseResult<TypeQLQuery>> results = parser.parseQueryResultsEOF(script(2000));
+        try {
+            results.forEach(result -> {
+                assertTrue(result.isSuccess());
+                LockSupport.parkNanos(Duration.ofMillis(1).toNanos());
+            });
+            fail();
+        } catch (ParseLimitException e) {
+            assertTrue(e.getMessage(), e.getMessage().contains("TQL45"));
+        }
+    }
+
+    @Test
+    public void testChunkOverTokenLimitFallsBackToItsQueries() {
+        Parser parser = new Parser();
+        parser.setLimits(ParseLimits.unlimited().maxTokens(100));
+        List<ParseResult<TypeQLQuery>> results = parser.<TypeQLQuery>parseQueryResultsEOF(
+                script(200) + "insert $x isa person" + ", has age 1".repeat(50) + ";\n"
+        ).collect(Collectors.toList());
+
+        assertEquals(201, results.size());
+        for (int i = 0; i < 200; i++) assertEquals(TypeQL.parseQuery(query(i)), results.get(i).query());
+        assertTrue(results.get(200).error().get().getMessage().contains("TQL43"));
+    }
+}
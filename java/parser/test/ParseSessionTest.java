@@ -0,0 +1,217 @@
+/*
+ * Copyright (C) 2022 Vaticle
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.vaticle.typeql.lang.parser.test;
+
+import com.vaticle.typeql.lang.TypeQL;
+import com.vaticle.typeql.lang.common.exception.TypeQLException;
+import com.vaticle.typeql.lang.parser.ParseSession;
+import com.vaticle.typeql.lang.pattern.variable.TypeVariable;
+import com.vaticle.typeql.lang.query.TypeQLQuery;
+import org.junit.Test;
+
+import java.util.List;
+import java.util.Random;
+
+import static java.util.stream.Collectors.toList;
+import static org.hamcrest.CoreMatchers.containsString;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class ParseSessionTest {
+
+    private static String schema(int types) {
+        StringBuilder schema = new StringBuilder("# generated schema\ndefine\n\nname sub attribute, value string;\n");
+        for (int i = 0; i < types; i++) {
+            schema.append("person").append(i).append(" sub entity, owns name, plays friendship:friend;\n");
+        }
+        schema.append("friendship sub relation, relates friend;\n");
+        schema.append("rule named-friends: when { $f (friend: $x) isa friendship; $x has name \"a;b\"; } " +
+                "then { $x has name \"friend\"; };\n");
+        return schema.toString();
+    }
+
+    private static String script(int types) {
+        return schema(types) + "\ninsert $x isa person0, has name \"Alice\";\n" +
+                "match $x isa person1; get $x;\n" +
+                "match $x isa person0; insert $x has name \"Bob\";\n" +
+                "undefine person2 owns name;\n";
+    }
+
+    private static List<TypeQLQuery> parse(String script) {
+        if (script.isBlank()) return List.of();
+        return TypeQL.<TypeQLQuery>parseQueries(script).collect(toList());
+    }
+
+    @Test
+    public void testSessionParsesTheScript() {
+        String script = script(10);
+        ParseSession session = TypeQL.parseSession(script);
+        assertEquals(parse(script), session.queries());
+        assertEquals(5, session.queries().size());
+    }
+
+    @Test
+    public void testEditReusesUnchangedDefinablesAndQueries() {
+        String script = script(1000);
+        ParseSession session = TypeQL.parseSession(script);
+        List<TypeQLQuery> before = session.queries();
+        long parsed = session.parsedChars();
+
+        String definable = "person500 sub entity, owns name";
+        int offset = script.indexOf(definable) + definable.length();
+        List<TypeQLQuery> after = session.edit(offset, 0, ", owns nickname");
+        assertEquals(parse(session.script()), after);
+        assertTrue(session.parsedChars() - parsed < 100);
+
+        List<TypeVariable> definablesBefore = before.get(0).asDefine().variables();
+        List<TypeVariable> definablesAfter = after.get(0).asDefine().variables();
+        assertNotSame(before.get(0), after.get(0));
+        assertNotSame(definablesBefore.get(501), definablesAfter.get(501));
+        for (int i = 0; i < definablesBefore.size(); i++) {
+            if (i != 501) assertSame(definablesBefore.get(i), definablesAfter.get(i));
+        }
+        for (int i = 1; i < before.size(); i++) assertSame(before.get(i), after.get(i));
+    }
+
+    @Test
+    public void testEditCanAddAndRemoveQueries() {
+        String script = script(3);
+        ParseSession session = TypeQL.parseSession(script);
+        int offset = script.indexOf("insert");
+        assertEquals(6, session.edit(offset, 0, "match $y isa person2; get $y;\n").size());
+        assertEquals(parse(session.script()), session.queries());
+        assertEquals(5, session.edit(offset, "match $y isa person2; get $y;\n".length(), "").size());
+        assertEquals(parse(script), session.queries());
+    }
+
+    @Test
+    public void testSyntaxErrorIsReportedUntilCorrected() {
+        String script = script(10);
+        ParseSession session = TypeQL.parseSession(script);
+        int offset = script.indexOf("person4 sub");
+        String error = syntaxError(() -> session.edit(offset, 0, ","));
+        assertThat(error, containsString("line 9"));
+        assertEquals(error, syntaxError(session::queries));
+        assertEquals(parse(script), session.edit(offset, 1, ""));
+    }
+
+    @Test
+    public void testSyntaxErrorAtEndOfQueryIsReported() {
+        ParseSession session = TypeQL.parseSession("define\nperson sub entity;\n\nmatch $x isa person; get $x;\n");
+        String error = syntaxError(() -> session.edit("define\nperson sub entity;".length(), 0, " name sub"));
+        assertThat(error, containsString("line 4"));
+    }
+
+    @Test
+    public void testSyntaxErrorMovedByEditReportsItsLine() {
+        String script = "define\nperson sub entity;\n\nmatch $x isa person; get $x;\n\n" +
+                "insert $y isa person; match $x isa; get $x;\n";
+        ParseSession session = TypeQL.parseSession(script);
+        assertThat(syntaxError(session::queries), containsString("line 6:"));
+
+        String error = syntaxError(() -> session.edit(0, 0, "\n\n\n"));
+        assertThat(error, containsString("line 9:"));
+        assertEquals(syntaxError(() -> parse(session.script())), error);
+        // An edit earlier on the line of the error moves it along the line
+        error = syntaxError(() -> session.edit(session.script().indexOf("insert"), 0, "insert $z isa person; "));
+        assertEquals(syntaxError(() -> parse(session.script())), error);
+        error = syntaxError(() -> session.edit(session.script().indexOf("match $x isa;"), 0, "\n"));
+        assertThat(error, containsString("line 10:"));
+        assertEquals(syntaxError(() -> parse(session.script())), error);
+    }
+
+    @Test
+    public void testSyntaxErrorInDefinableMovedByEditReportsItsLine() {
+        String script = schema(10);
+        ParseSession session = TypeQL.parseSession(script);
+        String error = syntaxError(() -> session.edit(script.indexOf("person4 sub"), 0, ","));
+        assertThat(error, containsString("line 9:\n,person4 sub"));
+
+        // Edits before the definable, within the query and before it, move it down
+        error = syntaxError(() -> session.edit(script.indexOf("person2 sub"), 0, "\n"));
+        assertThat(error, containsString("line 10:\n,person4 sub"));
+        error = syntaxError(() -> session.edit(0, 0, "\n"));
+        assertThat(error, containsString("line 11:\n,person4 sub"));
+        error = syntaxError(() -> session.edit(0, 1, ""));
+        assertThat(error, containsString("line 10:\n,person4 sub"));
+        error = syntaxError(() -> session.edit(session.script().indexOf("person2 sub") - 1, 1, ""));
+        assertThat(error, containsString("line 9:\n,person4 sub"));
+    }
+
+    private static String syntaxError(Runnable parse) {
+        try {
+            parse.run();
+            fail();
+            return null;
+        } catch (TypeQLException e) {
+            return e.getMessage();
+        }
+    }
+
+    @Test
+    public void testRandomEditsParseAsTheWholeScript() {
+        String[] replacements = {
+                "", " ", "\n", ";", "{", "}", "\"", "'", "#", "$x", "x", "sub entity", ", owns name", "define",
+                "undefine", "match", "insert", "delete", "rule r: when { $x isa person0; } then { $x has name \"n\"; };",
+                "person9 sub entity;", "match $x isa person0; get;"
+        };
+        Random random = new Random(0);
+        String script = script(10);
+        ParseSession session = TypeQL.parseSession(script);
+        for (int i = 0; i < 1000; i++) {
+            int offset = random.nextInt(script.length() + 1);
+            int length = Math.min(random.nextInt(6), script.length() - offset);
+            String replacement = replacements[random.nextInt(replacements.length)];
+            String removed = script.substring(offset, offset + length);
+            script = script.substring(0, offset) + replacement + script.substring(offset + length);
+            assertParsedAsWholeScript(session, offset, length, replacement, script);
+            // Most edits are undone, so that the script stays mostly valid
+            if (random.nextInt(4) > 0) {
+                script = script.substring(0, offset) + removed + script.substring(offset + replacement.length());
+                assertParsedAsWholeScript(session, offset, replacement.length(), removed, script);
+            }
+        }
+    }
+
+    private static void assertParsedAsWholeScript(
+            ParseSession session, int offset, int length, String replacement, String script
+    ) {
+        List<TypeQLQuery> expected;
+        try {
+            expected = parse(script);
+        } catch (TypeQLException e) {
+            expected = null;
+        }
+        List<TypeQLQuery> queries;
+        try {
+            queries = session.edit(offset, length, replacement);
+        } catch (TypeQLException e) {
+            queries = null;
+        }
+        assertEquals(script, session.script());
+        assertEquals(script, expected, queries);
+    }
+}
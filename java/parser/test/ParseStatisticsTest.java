@@ -0,0 +1,115 @@
+/*
+ * Copyright (C) 2022 Vaticle
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.vaticle.typeql.lang.parser.test;
+
+import com.vaticle.typeql.lang.common.exception.TypeQLException;
+import com.vaticle.typeql.lang.parser.ParseStatistics;
+import com.vaticle.typeql.lang.parser.ParseStatistics.EntryPoint;
+import com.vaticle.typeql.lang.parser.Parser;
+import com.vaticle.typeql.lang.query.TypeQLQuery;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class ParseStatisticsTest {
+
+    private static final String VALID_QUERY = "match\n$x isa person, has name \"alice\";";
+    private static final String INVALID_QUERY = "match\n$x isa person, has name;";
+
+    private static String syntaxError(Parser parser, String query) {
+        try {
+            parser.parseQueryEOF(query);
+            fail();
+            return null;
+        } catch (TypeQLException e) {
+            return e.getMessage();
+        }
+    }
+
+    @Test
+    public void testSyntaxErrorIsCountedAsFallback() {
+        Parser parser = new Parser();
+        parser.parseQueryEOF(VALID_QUERY);
+        syntaxError(parser, INVALID_QUERY);
+
+        ParseStatistics statistics = parser.statistics(EntryPoint.QUERY);
+        assertEquals(2, statistics.parses());
+        assertEquals(1, statistics.failures());
+        assertEquals(1, statistics.fallbacks());
+        assertEquals(0, statistics.singlePassParses());
+        assertEquals(0, parser.statistics(EntryPoint.PATTERN).parses());
+    }
+
+    @Test
+    public void testAdaptiveParserSwitchesToSinglePassWhileErrorsAreFrequent() {
+        Parser parser = new Parser();
+        parser.setAdaptive(true);
+        String twoPassError = syntaxError(parser, INVALID_QUERY);
+        TypeQLQuery twoPassQuery = parser.parseQueryEOF(VALID_QUERY);
+        for (int i = 0; i < 50; i++) syntaxError(parser, INVALID_QUERY);
+
+        ParseStatistics statistics = parser.statistics(EntryPoint.QUERY);
+        assertTrue(statistics.isSinglePass());
+        long fallbacks = statistics.fallbacks();
+        long singlePassParses = statistics.singlePassParses();
+        assertEquals(twoPassError, syntaxError(parser, INVALID_QUERY));
+        assertEquals(twoPassQuery, parser.parseQueryEOF(VALID_QUERY));
+        assertEquals(fallbacks, statistics.fallbacks());
+        assertEquals(singlePassParses + 2, statistics.singlePassParses());
+
+        for (int i = 0; i < 200; i++) parser.parseQueryEOF(VALID_QUERY);
+        assertFalse(statistics.isSinglePass());
+    }
+
+    @Test
+    public void testSinglePassReportsSyntaxErrorForPatterns() {
+        Parser parser = new Parser();
+        parser.setAdaptive(true);
+        String twoPassError = null;
+        for (int i = 0; i < 50; i++) {
+            try {
+                parser.parsePatternEOF("{ $x isa person; } or { $x isa; }");
+                fail();
+            } catch (TypeQLException e) {
+                if (twoPassError == null) twoPassError = e.getMessage();
+                else assertEquals(twoPassError, e.getMessage());
+            }
+        }
+        assertTrue(parser.statistics(EntryPoint.PATTERN).singlePassParses() > 0);
+        String pattern = "{ $x isa person; } or { $x isa thing; }";
+        assertEquals(new Parser().parsePatternEOF(pattern), parser.parsePatternEOF(pattern));
+    }
+
+    @Test
+    public void testParserIsNotAdaptiveByDefault() {
+        Parser parser = new Parser();
+        for (int i = 0; i < 50; i++) syntaxError(parser, INVALID_QUERY);
+
+        ParseStatistics statistics = parser.statistics(EntryPoint.QUERY);
+        assertTrue(statistics.isSinglePass());
+        assertEquals(50, statistics.fallbacks());
+        assertEquals(0, statistics.singlePassParses());
+    }
+}
@@ -24,7 +24,10 @@ package com.vaticle.typeql.lang.parser.test;
 import com.vaticle.typeql.lang.TypeQL;
 import com.vaticle.typeql.lang.common.TypeQLArg;
 import com.vaticle.typeql.lang.common.TypeQLToken;
+import com.vaticle.typeql.lang.common.exception.ParseLimitException;
 import com.vaticle.typeql.lang.common.exception.TypeQLException;
+import com.vaticle.typeql.lang.parser.ParseLimits;
+import com.vaticle.typeql.lang.parser.Parser;
 import com.vaticle.typeql.lang.pattern.Conjunction;
 import com.vaticle.typeql.lang.pattern.Pattern;
 import com.vaticle.typeql.lang.pattern.variable.ThingVariable;
@@ -40,10 +43,16 @@ import org.junit.Rule;
 import org.junit.Test;
 import org.junit.rules.ExpectedException;
 
+import java.io.StringReader;
+import java.nio.ByteBuffer;
+import java.time.Duration;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.locks.LockSupport;
 
 import static com.vaticle.typedb.common.collection.Collections.list;
 import static com.vaticle.typedb.common.collection.Collections.pair;
@@ -62,8 +71,10 @@ import static com.vaticle.typeql.lang.TypeQL.rule;
 import static com.vaticle.typeql.lang.TypeQL.type;
 import static com.vaticle.typeql.lang.TypeQL.undefine;
 import static com.vaticle.typeql.lang.TypeQL.var;
+import static java.nio.charset.StandardCharsets.UTF_8;
 import static java.util.stream.Collectors.toList;
 import static org.hamcrest.CoreMatchers.containsString;
+import static org.hamcrest.MatcherAssert.assertThat;
 import static org.hamcrest.core.AllOf.allOf;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertTrue;
@@ -1117,6 +1128,39 @@ public class ParserTest {
         parseQuery("match\n$x of");
     }
 
+    @Test
+    public void whenParseIncorrectSyntax_AfterOutOfScopeGet_ReportSyntaxError() {
+        exception.expect(TypeQLException.class);
+        exception.expectMessage(allOf(
+                containsString("syntax error"),
+                containsString("extraneous input 'oops' expecting <EOF>")
+        ));
+        //noinspection ResultOfMethodCallIgnored
+        parseQuery("match $x isa movie; get $y; oops");
+    }
+
+    @Test
+    public void whenParseIncorrectSyntax_AfterOutOfScopeSort_ReportSyntaxError() {
+        exception.expect(TypeQLException.class);
+        exception.expectMessage(allOf(
+                containsString("syntax error"),
+                containsString("mismatched input 'oft' expecting {';', ','}")
+        ));
+        //noinspection ResultOfMethodCallIgnored
+        parseQuery("match $x isa movie; sort $esc, $x asc; oft 10;");
+    }
+
+    @Test
+    public void whenParseIncorrectSyntax_AfterOutOfScopeGroup_ReportSyntaxError() {
+        exception.expect(TypeQLException.class);
+        exception.expectMessage(allOf(
+                containsString("syntax error"),
+                containsString("extraneous input 'cou' expecting <EOF>")
+        ));
+        //noinspection ResultOfMethodCallIgnored
+        parseQuery("match $x isa movie; group $y; cou");
+    }
+
     @Test
     public void testHasVariable() {
         final String query = "match\n" +
@@ -1217,6 +1261,203 @@ public class ParserTest {
         assertEquals(Collections.nCopies(numQueries, matchInsert), queries);
     }
 
+    @Test
+    public void testParseListFromReader() {
+        final String queryString = "#hola\ninsert\n$x isa movie; match\n$y isa movie;\n" +
+                "match $x isa person; insert $x has name 'bob;';";
+        List<TypeQLQuery> queries = TypeQL.parseQueries(new StringReader(queryString)).collect(toList());
+
+        assertEquals(TypeQL.parseQueries(queryString).collect(toList()), queries);
+    }
+
+    @Test
+    public void testParseListFromReaderIsLazy() {
+        final String queryString = "insert\n$x isa movie; match\n$y isa movie; insert $z isa";
+        List<TypeQLQuery> queries = TypeQL.parseQueries(new StringReader(queryString)).limit(2).collect(toList());
+
+        assertEquals(list(insert(var("x").isa("movie")), match(var("y").isa("movie"))), queries);
+    }
+
+    @Test
+    public void testParseListFromReaderWithSyntaxError_ReportLine() {
+        final String queryString = "insert\n$x isa movie;\ndefine\nperson sub entity has name;";
+
+        exception.expect(TypeQLException.class);
+        exception.expectMessage("line 4");
+        //noinspection ResultOfMethodCallIgnored
+        TypeQL.parseQueries(new StringReader(queryString)).collect(toList());
+    }
+
+    @Test
+    public void testParseListFromReaderWithSyntaxError_ReportAsString() {
+        String[] queryStrings = {
+                "insert\n$x isa movie;\ndefine\nperson sub entity has name;",
+                "match $x isa movie; # a comment\n  get   $x,\toops;",
+                "match\n$x isa movie, has title 'a\nb' $y;\ninsert $y isa person;",
+                "insert $x isa movie;\nmatch\n$x isa",
+                "insert $x isa movie; define\nperson sub entity has name;"
+        };
+        for (String queryString : queryStrings) {
+            assertEquals(
+                    queryString,
+                    syntaxError(() -> TypeQL.parseQueries(queryString).collect(toList())),
+                    syntaxError(() -> TypeQL.parseQueries(new StringReader(queryString)).collect(toList()))
+            );
+        }
+    }
+
+    @Test
+    public void testParseListFromReaderOnOneLineWithSyntaxError_QuoteFromQuery() {
+        String queryString = "insert $x isa movie; ".repeat(1_000) + "match $x isa; get $x;";
+        String error = syntaxError(() -> TypeQL.parseQueries(new StringReader(queryString)).collect(toList()));
+        assertThat(error, containsString("line 1:\nmatch $x isa; get $x;\n            ^\n"));
+    }
+
+    private static String syntaxError(Runnable parse) {
+        try {
+            parse.run();
+        } catch (TypeQLException e) {
+            assertTrue(e.getMessage(), e.getMessage().contains("[TQL03]"));
+            return e.getMessage();
+        }
+        throw new AssertionError("No syntax error was reported");
+    }
+
+    @Test
+    public void testParseFromUtf8Bytes() {
+        final String queryString = "match\n$x isa movie, has title 'Am\u00e9lie \uD83C\uDFAC'; get $x;";
+        TypeQLQuery query = TypeQL.parseQuery(queryString.getBytes(UTF_8));
+
+        assertEquals(TypeQL.parseQuery(queryString), query);
+    }
+
+    @Test
+    public void testParseListFromDirectByteBuffer() {
+        final String queryString = "#hola\ninsert\n$x isa movie, has title '\u00c7a'; match\n$y isa movie;";
+        byte[] bytes = queryString.getBytes(UTF_8);
+        ByteBuffer buffer = ByteBuffer.allocateDirect(bytes.length).put(bytes).flip();
+        List<TypeQLQuery> queries = TypeQL.parseQueries(buffer).collect(toList());
+
+        assertEquals(TypeQL.parseQueries(queryString).collect(toList()), queries);
+        assertEquals(0, buffer.position());
+    }
+
+    @Test
+    public void testParseFromUtf8BytesWithSyntaxError_ReportLine() {
+        final String queryText = "define\nperson sub entity has name;";
+
+        exception.expect(TypeQLException.class);
+        exception.expectMessage("\nperson sub entity has name;");
+        //noinspection ResultOfMethodCallIgnored
+        TypeQL.parseQuery(queryText.getBytes(UTF_8));
+    }
+
+    private static String longScript(int numQueries) {
+        StringBuilder script = new StringBuilder("define\nperson sub entity, owns name;\n");
+        for (int i = 0; i < numQueries; i++) {
+            script.append("# insert match ").append(i).append("\n");
+            script.append("match $x isa person, has name 'bob; match $y'; insert $x has name \"").append(i).append("\";\n");
+            script.append("insert $y isa person, has name \"delete\\\" ").append(i).append("\";\n");
+            script.append("match $z isa person; delete $z isa person; insert $z has name 'z';\n");
+        }
+        return script.toString();
+    }
+
+    @Test
+    public void testParseListInParallel() {
+        final String script = longScript(5_000);
+        ForkJoinPool pool = new ForkJoinPool(4);
+        try {
+            List<TypeQLQuery> queries = TypeQL.parseQueries(script, pool).collect(toList());
+            assertEquals(TypeQL.parseQueries(script).collect(toList()), queries);
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    @Test
+    public void testParseListInParallelWithSyntaxError_ReportLine() {
+        final String script = longScript(5_000) + "insert $x isa person;\nmatch $x isa person; get $x\n" + longScript(100);
+        String expected = null;
+        try {
+            //noinspection ResultOfMethodCallIgnored
+            TypeQL.parseQueries(script).collect(toList());
+            fail();
+        } catch (TypeQLException e) {
+            expected = e.getMessage();
+        }
+        assertThat(expected, containsString("line 20005:\ndefine"));
+
+        ForkJoinPool pool = new ForkJoinPool(4);
+        try {
+            exception.expect(TypeQLException.class);
+            exception.expectMessage(expected);
+            //noinspection ResultOfMethodCallIgnored
+            TypeQL.parseQueries(script, pool).collect(toList());
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    @Test
+    public void testParseListInParallel_TimeLimitAppliesToWholeScript() {
+        final String script = longScript(1_200);
+        Parser parser = new Parser();
+        // Polling for cancellation slows each of the four segments to well within the time limit, but not all four
+        parser.setLimits(ParseLimits.unlimited().timeout(Duration.ofMillis(2_500)).cancellation(() -> {
+            LockSupport.parkNanos(Duration.ofMillis(5).toNanos());
+            return false;
+        }));
+        ForkJoinPool pool = new ForkJoinPool(1);
+        try {
+            exception.expect(ParseLimitException.class);
+            exception.expectMessage("TQL45");
+            //noinspection ResultOfMethodCallIgnored
+            parser.parseQueriesEOF(script, pool).collect(toList());
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    @Test
+    public void testParseAfterFailedParses_ReusesParserCleanly() {
+        final String query = "match\n$x isa movie, has title \"Spy\";";
+        TypeQLQuery expected = parseQuery(query);
+        for (String invalid : list("match\n$x isa movie", "match\n$x isa;", "match\n{ $x isa movie; } or { $x isa person; };")) {
+            try {
+                //noinspection ResultOfMethodCallIgnored
+                parseQuery(invalid);
+                fail();
+            } catch (TypeQLException ignored) {
+            }
+            assertEquals(expected, parseQuery(query));
+            assertEquals(expected.toString(), parseQuery(query).toString());
+        }
+    }
+
+    @Test
+    public void testParseOnManyThreads() throws InterruptedException {
+        final String script = longScript(100);
+        List<TypeQLQuery> expected = TypeQL.parseQueries(script).collect(toList());
+        List<Thread> threads = new ArrayList<>();
+        List<Throwable> failures = Collections.synchronizedList(new ArrayList<>());
+        for (int i = 0; i < 16; i++) {
+            Thread thread = new Thread(() -> {
+                try {
+                    for (int j = 0; j < 10; j++) {
+                        assertEquals(expected, TypeQL.parseQueries(script).collect(toList()));
+                    }
+                } catch (Throwable e) {
+                    failures.add(e);
+                }
+            });
+            threads.add(thread);
+            thread.start();
+        }
+        for (Thread thread : threads) thread.join();
+        assertEquals(list(), failures);
+    }
+
     @Test
     public void whenParsingAListOfQueriesWithASyntaxError_ReportError() {
         final String queryText = "define\nperson sub entity has name;"; // note no semicolon
@@ -0,0 +1,80 @@
+/*
+ * Copyright (C) 2022 Vaticle
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.vaticle.typeql.lang.parser.test;
+
+import com.vaticle.typeql.lang.TypeQL;
+import com.vaticle.typeql.lang.parser.PredictionCache;
+import com.vaticle.typeql.lang.query.TypeQLQuery;
+import org.junit.After;
+import org.junit.Test;
+
+import static com.vaticle.typedb.common.collection.Collections.list;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class PredictionCacheTest {
+
+    private static String query(int i) {
+        return "match $x isa person, has name \"name-" + i + "\", has age " + i + ";\nget $x; limit " + (i + 1) + ";";
+    }
+
+    @After
+    public void unlimitCache() {
+        PredictionCache.unlimit();
+    }
+
+    @Test
+    public void testWarmUpFillsCache() {
+        PredictionCache.clear();
+        assertEquals(0, PredictionCache.states());
+
+        int parsed = TypeQL.warmUp(list(query(0), "define\nperson sub entity, owns name;", "match $x isa"));
+        assertEquals(2, parsed);
+        assertTrue(PredictionCache.states() > 0);
+        assertTrue(PredictionCache.contexts() > 0);
+    }
+
+    @Test
+    public void testClearEmptiesCacheAndParsingRefillsIt() {
+        TypeQLQuery parsed = TypeQL.parseQuery(query(0));
+        long clears = PredictionCache.clears();
+        PredictionCache.clear();
+        assertEquals(0, PredictionCache.states());
+        assertEquals(clears + 1, PredictionCache.clears());
+
+        assertEquals(parsed, TypeQL.parseQuery(query(0)));
+        assertTrue(PredictionCache.states() > 0);
+    }
+
+    @Test
+    public void testLimitClearsCacheOnceExceeded() {
+        long clears = PredictionCache.clears();
+        PredictionCache.limit(1);
+        for (int i = 0; i < 5_000; i++) TypeQL.parseQuery(query(i));
+        assertTrue(PredictionCache.clears() > clears);
+
+        PredictionCache.unlimit();
+        clears = PredictionCache.clears();
+        for (int i = 0; i < 5_000; i++) TypeQL.parseQuery(query(i));
+        assertEquals(clears, PredictionCache.clears());
+    }
+}
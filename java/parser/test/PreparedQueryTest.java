@@ -0,0 +1,151 @@
+/*
+ * Copyright (C) 2022 Vaticle
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.vaticle.typeql.lang.parser.test;
+
+import com.vaticle.typeql.lang.TypeQL;
+import com.vaticle.typeql.lang.common.exception.TypeQLException;
+import com.vaticle.typeql.lang.parser.PreparedQuery;
+import com.vaticle.typeql.lang.query.TypeQLInsert;
+import com.vaticle.typeql.lang.query.TypeQLMatch;
+import com.vaticle.typeql.lang.query.TypeQLQuery;
+import org.junit.Test;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.Map;
+
+import static com.vaticle.typedb.common.collection.Collections.list;
+import static org.hamcrest.CoreMatchers.containsString;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+public class PreparedQueryTest {
+
+    private static String bindError(Runnable bind) {
+        try {
+            bind.run();
+            fail();
+            return null;
+        } catch (TypeQLException e) {
+            return e.getMessage();
+        }
+    }
+
+    @Test
+    public void testBindEachValueType() {
+        PreparedQuery<TypeQLMatch> prepared = TypeQL.prepare("match $x isa thing, has attribute ?value;");
+        assertEquals(list("value"), prepared.parameters());
+        assertEquals(TypeQL.parseQuery("match $x isa thing, has attribute \"Alice\";"), prepared.bind("Alice"));
+        assertEquals(TypeQL.parseQuery("match $x isa thing, has attribute 42;"), prepared.bind(42));
+        assertEquals(TypeQL.parseQuery("match $x isa thing, has attribute 42;"), prepared.bind(42L));
+        assertEquals(TypeQL.parseQuery("match $x isa thing, has attribute 4.5;"), prepared.bind(4.5));
+        assertEquals(TypeQL.parseQuery("match $x isa thing, has attribute true;"), prepared.bind(true));
+        assertEquals(
+                TypeQL.parseQuery("match $x isa thing, has attribute 2022-03-04;"),
+                prepared.bind(LocalDate.of(2022, 3, 4))
+        );
+        assertEquals(
+                TypeQL.parseQuery("match $x isa thing, has attribute 2022-03-04T05:06:07;"),
+                prepared.bind(LocalDateTime.of(2022, 3, 4, 5, 6, 7))
+        );
+    }
+
+    @Test
+    public void testBindManyTimes() {
+        PreparedQuery<TypeQLInsert> prepared = TypeQL.prepare(
+                "match $p isa person, has name ?name; insert $p has age ?age, has nickname ?name;"
+        );
+        assertEquals(list("name", "age"), prepared.parameters());
+        for (int i = 0; i < 10; i++) {
+            TypeQLQuery expected = TypeQL.parseQuery(
+                    "match $p isa person, has name \"p" + i + "\"; insert $p has age " + i + ", has nickname \"p" + i + "\";"
+            );
+            assertEquals(expected, prepared.bind("p" + i, i));
+            assertEquals(expected.toString(), prepared.bind("p" + i, i).toString());
+        }
+    }
+
+    @Test
+    public void testBindByName() {
+        PreparedQuery<TypeQLMatch> prepared = TypeQL.prepare(
+                "match $x isa person, has age > ?min, has age < ?max, has name contains ?part, has email like ?regex;"
+        );
+        Map<String, Object> values = new HashMap<>();
+        values.put("min", 18);
+        values.put("max", 65);
+        values.put("part", "li");
+        values.put("regex", ".*@vaticle\\\\.com");
+        assertEquals(
+                TypeQL.parseQuery("match $x isa person, has age > 18, has age < 65, has name contains \"li\", " +
+                        "has email like \".*@vaticle\\\\.com\";"),
+                prepared.bind(values)
+        );
+    }
+
+    @Test
+    public void testPlaceholdersInStringsAndCommentsAreIgnored() {
+        PreparedQuery<TypeQLMatch> prepared = TypeQL.prepare(
+                "match\n# find ?nothing\n$x isa person, has name \"?literal\", has age ?age;"
+        );
+        assertEquals(list("age"), prepared.parameters());
+        assertEquals(TypeQL.parseQuery("match $x isa person, has name \"?literal\", has age 30;"), prepared.bind(30));
+    }
+
+    @Test
+    public void testPlaceholderAfterSupplementaryCharacters() {
+        PreparedQuery<TypeQLMatch> prepared = TypeQL.prepare(
+                "match $x isa person, has name \"\uD83D\uDE00\uD83D\uDE00\", has age ?age;"
+        );
+        assertEquals(
+                TypeQL.parseQuery("match $x isa person, has name \"\uD83D\uDE00\uD83D\uDE00\", has age 7;"),
+                prepared.bind(7)
+        );
+    }
+
+    @Test
+    public void testInvalidBindings() {
+        PreparedQuery<TypeQLMatch> prepared = TypeQL.prepare(
+                "match $x isa person, has name contains ?part, has age ?age;"
+        );
+        assertThat(bindError(() -> prepared.bind("a")), containsString("TQL50"));
+        assertThat(bindError(() -> prepared.bind("a", null)), containsString("TQL48"));
+        assertThat(bindError(() -> prepared.bind(3, 3)), containsString("TQL51"));
+        assertThat(bindError(() -> prepared.bind("a", new Object())), containsString("TQL51"));
+
+        Map<String, Object> values = new HashMap<>();
+        values.put("part", "a");
+        assertThat(bindError(() -> prepared.bind(values)), containsString("TQL48"));
+        values.put("age", 3);
+        values.put("height", 3);
+        assertThat(bindError(() -> prepared.bind(values)), containsString("TQL49"));
+    }
+
+    @Test
+    public void testPlaceholderNotInValuePosition() {
+        assertThat(
+                bindError(() -> TypeQL.prepare("define name sub attribute, value string, regex ?pattern;")),
+                containsString("TQL47")
+        );
+    }
+}
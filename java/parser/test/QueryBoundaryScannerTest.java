@@ -0,0 +1,121 @@
+/*
+ * Copyright (C) 2022 Vaticle
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.vaticle.typeql.lang.parser.test;
+
+import com.vaticle.typeql.lang.TypeQL;
+import com.vaticle.typeql.lang.parser.QueryBoundaryScanner;
+import com.vaticle.typeql.lang.query.TypeQLQuery;
+import org.junit.Test;
+
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+public class QueryBoundaryScannerTest {
+
+    @Test
+    public void testBoundariesOfEachQueryType() {
+        final String script = "define person sub entity;\n" +
+                "undefine person sub entity;\n" +
+                "insert $x isa person;\n" +
+                "match $x isa person; insert $x has name 'a';\n" +
+                "match $x isa person; delete $x isa person; insert $y isa person;\n" +
+                "match $x isa person; delete $x isa person;\n" +
+                "match $x isa person; get $x;";
+        int[] expected = new int[]{
+                0,
+                script.indexOf("undefine"),
+                script.indexOf("insert $x isa"),
+                script.indexOf("match $x isa person; insert"),
+                script.indexOf("match $x isa person; delete $x isa person; insert"),
+                script.indexOf("match $x isa person; delete $x isa person;\n"),
+                script.indexOf("match $x isa person; get")
+        };
+
+        assertArrayEquals(expected, QueryBoundaryScanner.boundaries(script));
+    }
+
+    @Test
+    public void testKeywordsInStringsCommentsAndLabelsAreIgnored() {
+        final String script = "# match $x;\ninsert $x isa match-type, has name \"insert\\\" match\", has note 'define';\n" +
+                "insert $y isa person, has $match;";
+        int[] expected = new int[]{script.indexOf("insert $x"), script.indexOf("insert $y")};
+
+        assertArrayEquals(expected, QueryBoundaryScanner.boundaries(script));
+    }
+
+    @Test
+    public void testMatchQueriesEndedByModifiersAreSplit() {
+        final String script = "match $x isa person; get $x; insert $y isa person; insert $z isa person;\n" +
+                "match $x isa person; limit 10; delete $x isa person;\n" +
+                "match $x isa person; group $x; insert $y isa person;\n" +
+                "match $x isa person; count; insert $y isa person;\n" +
+                "match $x isa person; sort # comment\n $x; insert $y isa person;";
+        int[] expected = new int[]{
+                0,
+                script.indexOf("insert $y"),
+                script.indexOf("insert $z"),
+                script.indexOf("match $x isa person; limit"),
+                script.indexOf("delete $x"),
+                script.indexOf("match $x isa person; group"),
+                script.indexOf("insert $y", script.indexOf("group")),
+                script.indexOf("match $x isa person; count"),
+                script.indexOf("insert $y", script.indexOf("count")),
+                script.indexOf("match $x isa person; sort"),
+                script.indexOf("insert $y", script.indexOf("sort"))
+        };
+
+        assertArrayEquals(expected, QueryBoundaryScanner.boundaries(script));
+    }
+
+    @Test
+    public void testLabelsNamedAsModifiersAreNotModifiers() {
+        final String script = "match $t sub entity; count sub $t; get sub $t; limit sub $t; insert $x isa person;\n" +
+                "match $x isa person; insert $x has name \"; get $x;\";";
+        int[] expected = new int[]{0, script.indexOf("match $x")};
+
+        assertArrayEquals(expected, QueryBoundaryScanner.boundaries(script));
+    }
+
+    @Test
+    public void testEachRangeParsesAsOneQuery() {
+        final String script = "define person sub entity, owns name; name sub attribute, value string;\n" +
+                "define rule r: when { $x isa person; } then { $x has name \"n;\"; };\n" +
+                "insert $x isa person, has name 'a;#b';\n" +
+                "match $x isa person; get $x; sort $x; limit 1;\n" +
+                "insert $x isa person; # match $y;\n" +
+                "match $x isa person, has name $n; delete $x has $n; insert $x has name \"m\";\n" +
+                "match $x isa person; { $x has name \"a\"; } or { $x has name \"b\"; }; count;\n" +
+                "match $x isa person; group $x; count;\n" +
+                "undefine person owns name;";
+        int[] boundaries = TypeQL.queryBoundaries(script);
+        List<TypeQLQuery> expected = TypeQL.parseQueries(script).collect(Collectors.toList());
+
+        assertEquals(expected.size(), boundaries.length);
+        for (int i = 0; i < boundaries.length; i++) {
+            int end = i + 1 < boundaries.length ? boundaries[i + 1] : script.length();
+            assertEquals(expected.get(i), TypeQL.parseQuery(script.substring(boundaries[i], end)));
+        }
+    }
+}
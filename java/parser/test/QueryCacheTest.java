@@ -0,0 +1,175 @@
+/*
+ * Copyright (C) 2022 Vaticle
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.vaticle.typeql.lang.parser.test;
+
+import com.vaticle.typeql.lang.TypeQL;
+import com.vaticle.typeql.lang.common.exception.TypeQLException;
+import com.vaticle.typeql.lang.parser.QueryCache;
+import com.vaticle.typeql.lang.pattern.Negation;
+import com.vaticle.typeql.lang.pattern.constraint.ThingConstraint;
+import com.vaticle.typeql.lang.pattern.variable.ThingVariable;
+import com.vaticle.typeql.lang.pattern.variable.TypeVariable;
+import com.vaticle.typeql.lang.query.TypeQLInsert;
+import com.vaticle.typeql.lang.query.TypeQLMatch;
+import com.vaticle.typeql.lang.query.TypeQLQuery;
+import org.junit.After;
+import org.junit.Test;
+
+import java.util.stream.IntStream;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertThrows;
+import static org.junit.Assert.assertTrue;
+
+public class QueryCacheTest {
+
+    private static String query(int i) {
+        return String.format("match $x isa person, has name \"name-%05d\";", i);
+    }
+
+    @After
+    public void disableCache() {
+        TypeQL.disableQueryCache();
+    }
+
+    @Test
+    public void testRepeatedQueryReturnsSharedInstance() {
+        QueryCache cache = TypeQL.enableQueryCache(100, Long.MAX_VALUE);
+        TypeQLMatch first = TypeQL.parseQuery(query(0));
+        TypeQLMatch second = TypeQL.parseQuery(query(0));
+
+        assertSame(first, second);
+        assertEquals(1, cache.misses());
+        assertEquals(1, cache.hits());
+        assertEquals(1, cache.size());
+    }
+
+    @Test
+    public void testEntryBoundIsRespected() {
+        QueryCache cache = TypeQL.enableQueryCache(10, Long.MAX_VALUE);
+        for (int i = 0; i < 100; i++) TypeQL.parseQuery(query(i));
+
+        assertEquals(10, cache.size());
+        assertEquals(90, cache.evictions());
+    }
+
+    @Test
+    public void testByteBoundIsRespected() {
+        QueryCache cache = TypeQL.enableQueryCache(Long.MAX_VALUE, 10_000);
+        for (int i = 0; i < 100; i++) TypeQL.parseQuery(query(i));
+
+        assertTrue(cache.bytes() <= 10_000);
+        assertTrue(cache.evictions() > 0);
+    }
+
+    @Test
+    public void testFrequentlyUsedQuerySurvivesEviction() {
+        QueryCache cache = TypeQL.enableQueryCache(10, Long.MAX_VALUE);
+        TypeQLQuery frequent = TypeQL.parseQuery(query(0));
+        for (int i = 1; i < 100; i++) {
+            TypeQL.parseQuery(query(0));
+            TypeQL.parseQuery(query(i));
+        }
+
+        assertSame(frequent, TypeQL.parseQuery(query(0)));
+        assertEquals(100, cache.misses());
+    }
+
+    @Test
+    public void testClearDuringConcurrentParsesKeepsWeightOfRemainingEntries() throws InterruptedException {
+        QueryCache cache = new QueryCache(Long.MAX_VALUE, Long.MAX_VALUE);
+        TypeQLQuery parsed = TypeQL.parseQuery(query(0));
+        cache.get(query(0), q -> parsed);
+        long weight = cache.bytes();
+        cache.clear();
+
+        Thread clearing = new Thread(() -> {
+            for (int i = 0; i < 10_000; i++) cache.clear();
+        });
+        clearing.start();
+        IntStream.range(0, 4).parallel().forEach(thread -> {
+            for (int i = 0; i < 10_000; i++) cache.get(query(thread * 10_000 + i), q -> parsed);
+        });
+        clearing.join();
+
+        assertEquals(cache.size() * weight, cache.bytes());
+    }
+
+    @Test
+    public void testCachedQueryCannotBeConstrained() {
+        TypeQL.enableQueryCache(10, Long.MAX_VALUE);
+        String query = "insert\n$r (employee: $x) isa employment;";
+        TypeQLInsert cached = TypeQL.parseQuery(query);
+        ThingVariable.Relation relation = (ThingVariable.Relation) cached.variables().get(0);
+
+        assertThrows(TypeQLException.class, () -> relation.has("start-date", 2022));
+        assertThrows(TypeQLException.class, () -> relation.rel("employer", "y"));
+        assertThrows(TypeQLException.class, () -> relation.relation().get().addPlayers(
+                new ThingConstraint.Relation.RolePlayer("employer", TypeQL.var("y"))
+        ));
+        assertEquals(query, TypeQL.parseQuery(query).toString());
+    }
+
+    @Test
+    public void testNestedVariablesOfCachedQueryCannotBeConstrained() {
+        TypeQL.enableQueryCache(10, Long.MAX_VALUE);
+        TypeQLMatch cached = TypeQL.parseQuery("match $x isa person; not { $x has name \"a\"; };");
+        Negation<?> negation = cached.conjunction().patterns().get(1).asNegation();
+        ThingVariable.Thing negated = (ThingVariable.Thing) negation.pattern().patterns().get(0).asVariable();
+        ThingVariable<?> person = cached.conjunction().patterns().get(0).asVariable().asThing();
+
+        assertThrows(TypeQLException.class, () -> negated.has("age", 10));
+        assertThrows(TypeQLException.class, () -> person.isa().get().type().sub("thing"));
+    }
+
+    @Test
+    public void testConstraintsOfCachedQueryCannotBeModified() {
+        TypeQL.enableQueryCache(10, Long.MAX_VALUE);
+        String query = "match\n$x isa person, has name $n;\n$r (employee: $x) isa employment;\n" +
+                "$t sub entity, owns name, plays employment:employee;";
+        TypeQLMatch cached = TypeQL.parseQuery(query);
+        ThingVariable<?> person = cached.conjunction().patterns().get(0).asVariable().asThing();
+        ThingVariable<?> employment = cached.conjunction().patterns().get(1).asVariable().asThing();
+        TypeVariable type = cached.conjunction().patterns().get(2).asVariable().asType();
+        String expected = cached.toString();
+
+        assertThrows(UnsupportedOperationException.class, () -> person.has().clear());
+        assertThrows(UnsupportedOperationException.class, () -> person.constraints().removeIf(c -> c.isHas()));
+        assertThrows(UnsupportedOperationException.class, () -> employment.relation().get().players().clear());
+        assertThrows(UnsupportedOperationException.class, () -> type.constraints().clear());
+        assertThrows(UnsupportedOperationException.class, () -> type.owns().clear());
+        assertThrows(UnsupportedOperationException.class, () -> type.plays().clear());
+        assertEquals(expected, TypeQL.parseQuery(query).toString());
+        assertEquals(1, person.has().size());
+    }
+
+    @Test
+    public void testUncachedQueryIsConstrainedInPlace() {
+        TypeQLInsert parsed = TypeQL.parseQuery("insert $r (employee: $x) isa employment;");
+        ThingVariable.Relation relation = (ThingVariable.Relation) parsed.variables().get(0);
+
+        relation.has("start-date", 2022);
+
+        assertEquals(1, relation.has().size());
+    }
+}
@@ -0,0 +1,119 @@
+/*
+ * Copyright (C) 2022 Vaticle
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.vaticle.typeql.lang.parser.test;
+
+import com.vaticle.typeql.lang.TypeQL;
+import com.vaticle.typeql.lang.common.TypeQLArg;
+import com.vaticle.typeql.lang.common.TypeQLToken;
+import com.vaticle.typeql.lang.common.exception.TypeQLException;
+import com.vaticle.typeql.lang.parser.QueryClassification;
+import com.vaticle.typeql.lang.query.TypeQLDefine;
+import com.vaticle.typeql.lang.query.TypeQLInsert;
+import com.vaticle.typeql.lang.query.TypeQLMatch;
+import com.vaticle.typeql.lang.query.TypeQLQuery;
+import com.vaticle.typeql.lang.query.TypeQLUndefine;
+import org.junit.Test;
+
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class QueryClassifierTest {
+
+    private static final List<String> QUERIES = List.of(
+            "define person sub entity, owns name; name sub attribute, value string;",
+            "define rule r: when { $x isa person; } then { $x has name \"n\"; };",
+            "undefine person owns name;",
+            "insert $x isa person, has name \"match\";",
+            "match $x isa person; insert $x has name \"n\";",
+            "match $x isa person; delete $x isa person;",
+            "match $x isa person, has name $n; delete $x has $n; insert $x has name \"m\";",
+            "match $x isa person; get $x; sort $x; offset 1; limit 10;",
+            "match $x isa person; count;",
+            "match $x isa person, has age $a; mean $a;",
+            "match $x isa person, has age $a; group $x;",
+            "match $x isa person, has age $a; group $x; max $a;",
+            "match $x isa count; $y isa group; get $x, $y;",
+            "match $t sub entity; count sub $t; group sub $t; get $t;",
+            "match $x isa thing; { $x isa person; } or { $x isa company; }; not { $x has name \"a;b\"; }; count;",
+            "match $x isa person; # delete $x;\n get $x;",
+            "match $x has name \"a;\\\"}{ insert\", has name 'b#;'; # ; {\n $y isa company; get $x;",
+            "match $x isa person; insert $x has name \"; match $y; count;\";"
+    );
+
+    private static QueryClassification classification(TypeQLQuery query) {
+        TypeQLToken.Command command;
+        if (query instanceof TypeQLDefine) command = TypeQLToken.Command.DEFINE;
+        else if (query instanceof TypeQLUndefine) command = TypeQLToken.Command.UNDEFINE;
+        else if (query instanceof TypeQLInsert && ((TypeQLInsert) query).match().isEmpty()) {
+            command = TypeQLToken.Command.INSERT;
+        } else command = TypeQLToken.Command.MATCH;
+        boolean isGroup = query instanceof TypeQLMatch.Group || query instanceof TypeQLMatch.Group.Aggregate;
+        boolean isAggregate = query instanceof TypeQLMatch.Aggregate || query instanceof TypeQLMatch.Group.Aggregate;
+        return new QueryClassification(command, query.type(), isGroup, isAggregate);
+    }
+
+    @Test
+    public void testClassificationMatchesParse() {
+        for (String query : QUERIES) {
+            assertEquals(query, classification(TypeQL.parseQuery(query)), TypeQL.classifyQuery(query));
+        }
+    }
+
+    @Test
+    public void testClassifiesEachQueryOfScript() {
+        String script = String.join("\n", QUERIES);
+        List<QueryClassification> expected = TypeQL.parseQueries(script)
+                .map(QueryClassifierTest::classification).collect(Collectors.toList());
+        assertEquals(expected, TypeQL.classifyQueries(script));
+    }
+
+    @Test
+    public void testMatchFollowedByInsertAfterModifiersIsTwoQueries() {
+        String script = "match $x isa person; get $x; insert $y isa person;";
+        List<QueryClassification> classifications = TypeQL.classifyQueries(script);
+        assertEquals(2, classifications.size());
+        assertEquals(TypeQLArg.QueryType.READ, classifications.get(0).type());
+        assertEquals(TypeQLToken.Command.INSERT, classifications.get(1).command());
+    }
+
+    @Test
+    public void testClassifyDoesNotValidate() {
+        QueryClassification classification = TypeQL.classifyQuery("match $x isa person; insert $x;;");
+        assertEquals(TypeQLArg.QueryType.WRITE, classification.type());
+        assertFalse(classification.isAggregate());
+    }
+
+    @Test
+    public void testNonQueryIsRejected() {
+        try {
+            TypeQL.classifyQuery("\n$x isa person;");
+            fail();
+        } catch (TypeQLException e) {
+            assertTrue(e.getMessage().contains("line 2"));
+        }
+    }
+}
@@ -0,0 +1,218 @@
+/*
+ * Copyright (C) 2022 Vaticle
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.vaticle.typeql.lang.parser.test;
+
+import com.vaticle.typeql.lang.TypeQL;
+import com.vaticle.typeql.lang.common.exception.TypeQLException;
+import com.vaticle.typeql.lang.query.TypeQLQuery;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Flow;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class QueryPublisherTest {
+
+    private static String script(int queries) {
+        StringBuilder script = new StringBuilder();
+        for (int i = 0; i < queries; i++) {
+            script.append("match $x isa person, has name \"name-").append(i).append("\";\n");
+        }
+        return script.toString();
+    }
+
+    private static class CountingReader extends StringReader {
+
+        private long read = 0;
+
+        private CountingReader(String string) {
+            super(string);
+        }
+
+        @Override
+        public int read() throws IOException {
+            int c = super.read();
+            if (c >= 0) read++;
+            return c;
+        }
+
+        @Override
+        public int read(char[] buffer, int offset, int length) throws IOException {
+            int count = super.read(buffer, offset, length);
+            if (count > 0) read += count;
+            return count;
+        }
+    }
+
+    private static class TestSubscriber implements Flow.Subscriber<TypeQLQuery> {
+
+        private final List<TypeQLQuery> queries = new ArrayList<>();
+        private final CountDownLatch terminated = new CountDownLatch(1);
+        private Flow.Subscription subscription;
+        private Throwable error;
+        private boolean isComplete = false;
+
+        @Override
+        public void onSubscribe(Flow.Subscription subscription) {
+            this.subscription = subscription;
+        }
+
+        @Override
+        public void onNext(TypeQLQuery query) {
+            queries.add(query);
+        }
+
+        @Override
+        public void onError(Throwable error) {
+            this.error = error;
+            terminated.countDown();
+        }
+
+        @Override
+        public void onComplete() {
+            isComplete = true;
+            terminated.countDown();
+        }
+    }
+
+    @Test
+    public void testPublishesQueriesInOrder() {
+        String script = script(20);
+        TestSubscriber subscriber = new TestSubscriber();
+        TypeQL.publishQueries(new StringReader(script)).subscribe(subscriber);
+        subscriber.subscription.request(7);
+        assertEquals(7, subscriber.queries.size());
+        subscriber.subscription.request(100);
+
+        assertTrue(subscriber.isComplete);
+        assertNull(subscriber.error);
+        assertEquals(TypeQL.parseQueries(script).collect(Collectors.toList()), subscriber.queries);
+    }
+
+    @Test
+    public void testParsesOnlyAsFarAsDemand() {
+        String script = script(1000);
+        CountingReader reader = new CountingReader(script);
+        TestSubscriber subscriber = new TestSubscriber();
+        TypeQL.publishQueries(reader).subscribe(subscriber);
+        assertEquals(0, reader.read);
+
+        subscriber.subscription.request(1);
+        assertEquals(1, subscriber.queries.size());
+        assertTrue(reader.read < script.length() / 10);
+
+        subscriber.subscription.request(10);
+        assertEquals(11, subscriber.queries.size());
+        assertTrue(reader.read < script.length() / 10);
+        assertFalse(subscriber.isComplete);
+    }
+
+    @Test
+    public void testCancelStopsParsing() {
+        String script = script(100);
+        CountingReader reader = new CountingReader(script);
+        TestSubscriber subscriber = new TestSubscriber();
+        TypeQL.publishQueries(reader).subscribe(subscriber);
+        subscriber.subscription.request(2);
+        subscriber.subscription.cancel();
+        long read = reader.read;
+        subscriber.subscription.request(50);
+
+        assertEquals(2, subscriber.queries.size());
+        assertEquals(read, reader.read);
+        assertFalse(subscriber.isComplete);
+        assertNull(subscriber.error);
+    }
+
+    @Test
+    public void testSyntaxErrorIsSignalled() {
+        TestSubscriber subscriber = new TestSubscriber();
+        Reader reader = new StringReader(script(3) + "match $x isa;\n" + script(3));
+        TypeQL.publishQueries(reader).subscribe(subscriber);
+        subscriber.subscription.request(Long.MAX_VALUE);
+
+        assertEquals(3, subscriber.queries.size());
+        assertTrue(subscriber.error instanceof TypeQLException);
+        assertFalse(subscriber.isComplete);
+    }
+
+    @Test
+    public void testNonPositiveRequestIsSignalled() {
+        TestSubscriber subscriber = new TestSubscriber();
+        TypeQL.publishQueries(new StringReader(script(3))).subscribe(subscriber);
+        subscriber.subscription.request(0);
+
+        assertTrue(subscriber.error instanceof IllegalArgumentException);
+        assertTrue(subscriber.queries.isEmpty());
+    }
+
+    @Test
+    public void testSecondSubscriberIsRejected() {
+        Flow.Publisher<TypeQLQuery> publisher = TypeQL.publishQueries(new StringReader(script(3)));
+        TestSubscriber first = new TestSubscriber();
+        TestSubscriber second = new TestSubscriber();
+        publisher.subscribe(first);
+        publisher.subscribe(second);
+
+        assertTrue(second.error instanceof IllegalStateException);
+        first.subscription.request(Long.MAX_VALUE);
+        assertEquals(3, first.queries.size());
+        assertTrue(first.isComplete);
+    }
+
+    @Test
+    public void testPublishesOnExecutor() throws InterruptedException {
+        String script = script(500);
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            TestSubscriber subscriber = new TestSubscriber() {
+                @Override
+                public void onNext(TypeQLQuery query) {
+                    super.onNext(query);
+                    // Request one query at a time, as a slow subscriber would
+                    super.subscription.request(1);
+                }
+            };
+            TypeQL.publishQueries(new StringReader(script), executor).subscribe(subscriber);
+            subscriber.subscription.request(1);
+
+            assertTrue(subscriber.terminated.await(30, TimeUnit.SECONDS));
+            assertTrue(subscriber.isComplete);
+            assertEquals(TypeQL.parseQueries(script).collect(Collectors.toList()), subscriber.queries);
+        } finally {
+            executor.shutdown();
+        }
+    }
+}
@@ -0,0 +1,272 @@
+/*
+ * Copyright (C) 2022 Vaticle
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.vaticle.typeql.lang.parser.test;
+
+import com.vaticle.typeql.lang.TypeQL;
+import com.vaticle.typeql.lang.common.exception.TypeQLException;
+import com.vaticle.typeql.lang.parser.ParseLimits;
+import com.vaticle.typeql.lang.parser.Parser;
+import com.vaticle.typeql.lang.parser.ParserBackend;
+import com.vaticle.typeql.lang.parser.RecursiveDescentParser;
+import com.vaticle.typeql.lang.query.TypeQLQuery;
+import org.junit.Test;
+import org.junit.runner.JUnitCore;
+import org.junit.runner.Result;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.Random;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+
+import static java.util.stream.Collectors.toList;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests that the recursive descent parser conforms to the ANTLR parser, by parsing every query of
+ * {@link ParserTest} and a corpus of generated queries with both.
+ */
+public class RecursiveDescentParserTest {
+
+    private static final String[] LABELS = {"person", "name", "age", "employment", "thing", "value", "count", "get"};
+    private static final String[] VALUES = {
+            "\"a string\"", "'quoted'", "10", "-3", "1.5", "true", "false", "2022-01-31", "2022-01-31T10:20:30.123"
+    };
+    private static final String[] PREDICATES = {"=", "!=", ">", ">=", "<", "<="};
+
+    /**
+     * Parses with both parsers, recording every query on which they differ, and returns the ANTLR parser's outcome.
+     */
+    private static class DifferentialBackend implements ParserBackend {
+
+        private final Parser antlr = new Parser();
+        private final RecursiveDescentParser descent = new RecursiveDescentParser();
+        private final List<String> differences = new ArrayList<>();
+        private int parses = 0;
+
+        @Override
+        public <T extends TypeQLQuery> T parseQueryEOF(String queryString, ParseLimits limits) {
+            return compare(queryString,
+                    () -> antlr.parseQueryEOF(queryString, limits),
+                    () -> descent.parseQueryEOF(queryString, limits));
+        }
+
+        @Override
+        public <T extends TypeQLQuery> Stream<T> parseQueriesEOF(String queryString, ParseLimits limits) {
+            List<T> queries = compare(queryString,
+                    () -> antlr.<T>parseQueriesEOF(queryString, limits).collect(toList()),
+                    () -> descent.<T>parseQueriesEOF(queryString, limits).collect(toList()));
+            return queries.stream();
+        }
+
+        private synchronized <T> T compare(String queryString, Supplier<T> expected, Supplier<T> actual) {
+            parses++;
+            Object expectedOutcome = outcome(expected);
+            Object actualOutcome = outcome(actual);
+            if (!Objects.equals(expectedOutcome, actualOutcome) ||
+                    !Objects.equals(String.valueOf(expectedOutcome), String.valueOf(actualOutcome))) {
+                differences.add(queryString);
+            }
+            return expected.get();
+        }
+
+        private static Object outcome(Supplier<?> parse) {
+            try {
+                return parse.get();
+            } catch (RuntimeException e) {
+                return e.getClass().getName() + ": " + e.getMessage();
+            }
+        }
+    }
+
+    private static String label(Random random) {
+        return LABELS[random.nextInt(LABELS.length)];
+    }
+
+    private static String value(Random random) {
+        return VALUES[random.nextInt(VALUES.length)];
+    }
+
+    private static String attribute(Random random) {
+        switch (random.nextInt(4)) {
+            case 0:
+                return "has " + label(random) + " " + value(random);
+            case 1:
+                return "has " + label(random) + " " + PREDICATES[random.nextInt(PREDICATES.length)] + " " +
+                        (random.nextBoolean() ? value(random) : "$v" + random.nextInt(3));
+            case 2:
+                return "has " + label(random) + (random.nextBoolean() ? " contains " : " like ") + "\"x\"";
+            default:
+                return "has " + label(random) + " $a" + random.nextInt(3);
+        }
+    }
+
+    private static String statement(Random random, int depth) {
+        switch (random.nextInt(depth > 0 ? 8 : 5)) {
+            case 0:
+                return "$x isa " + label(random) + ", " + attribute(random);
+            case 1:
+                return "$r (" + label(random) + ": $x, $y) isa " + label(random);
+            case 2:
+                return "$t sub " + label(random) + (random.nextBoolean() ? ", owns " + label(random) : "");
+            case 3:
+                return "$t type " + label(random) + ", plays employment:employee";
+            case 4:
+                return "$v " + value(random) + " isa " + label(random);
+            case 5:
+                return "not { " + statements(random, depth - 1) + " }";
+            case 6:
+                return "{ " + statements(random, depth - 1) + " } or { " + statements(random, depth - 1) + " }";
+            default:
+                return "{ " + statements(random, depth - 1) + " }";
+        }
+    }
+
+    private static String statements(Random random, int depth) {
+        StringBuilder statements = new StringBuilder();
+        int count = 1 + random.nextInt(3);
+        for (int i = 0; i < count; i++) statements.append(statement(random, depth)).append("; ");
+        return statements.toString();
+    }
+
+    private static String query(Random random) {
+        String match = "match $x isa thing; " + statements(random, 2);
+        switch (random.nextInt(7)) {
+            case 0:
+                return match + "get $x; sort $x desc; offset 1; limit 2;";
+            case 1:
+                return match + "count;";
+            case 2:
+                return match + "group $x; max $v0;";
+            case 3:
+                return match + "insert $x " + attribute(random).replaceAll("has (\\w+) [^;]*", "has $1 5") + ";";
+            case 4:
+                return match + "delete $x has $a0; insert $x has name \"n\";";
+            case 5:
+                return "define " + label(random) + " sub entity, owns name @key, plays employment:employee; " +
+                        "rule r: when { $x isa person; } then { $x has name \"r\"; };";
+            default:
+                return match;
+        }
+    }
+
+    private static boolean isValid(Parser parser, String query) {
+        try {
+            parser.parseQueryEOF(query);
+            return true;
+        } catch (TypeQLException e) {
+            return false;
+        }
+    }
+
+    @Test
+    public void testParserTestCorpusConforms() {
+        DifferentialBackend backend = new DifferentialBackend();
+        TypeQL.setParserBackend(backend);
+        Result result;
+        try {
+            result = JUnitCore.runClasses(ParserTest.class);
+        } finally {
+            TypeQL.resetParserBackend();
+        }
+        assertTrue(result.getFailures().toString(), result.wasSuccessful());
+        assertTrue(backend.parses > 100);
+        assertEquals(new ArrayList<String>(), backend.differences);
+    }
+
+    @Test
+    public void testGeneratedQueriesConform() {
+        Random random = new Random(0);
+        Parser antlr = new Parser();
+        RecursiveDescentParser descent = new RecursiveDescentParser();
+        int checked = 0;
+        for (int i = 0; i < 500; i++) {
+            String query = query(random);
+            // Generated queries may be semantically invalid, which the corpus test covers
+            if (!isValid(antlr, query)) continue;
+            TypeQLQuery expected = antlr.parseQueryEOF(query);
+            TypeQLQuery actual = descent.parseQueryEOF(query, ParseLimits.unlimited());
+            assertEquals(query, expected, actual);
+            assertEquals(query, expected.toString(), actual.toString());
+            checked++;
+        }
+        assertTrue(checked > 250);
+        assertEquals(0, descent.fallbacks());
+    }
+
+    /**
+     * Truncates a query, or deletes, inserts or replaces one of its characters, so that it is likely invalid.
+     */
+    private static String mutate(Random random, String query) {
+        String characters = ";:,.{}()$'\"?+-=<>@#!x1 ";
+        int i = random.nextInt(query.length());
+        char c = characters.charAt(random.nextInt(characters.length()));
+        switch (random.nextInt(4)) {
+            case 0:
+                return query.substring(0, Math.max(1, i));
+            case 1:
+                return query.substring(0, i) + query.substring(i + 1);
+            case 2:
+                return query.substring(0, i) + c + query.substring(i);
+            default:
+                return query.substring(0, i) + c + query.substring(i + 1);
+        }
+    }
+
+    @Test
+    public void testInvalidQueriesConform() {
+        Random random = new Random(2);
+        DifferentialBackend backend = new DifferentialBackend();
+        List<String> queries = new ArrayList<>();
+        queries.add("match $x regex '(fe')?male';");
+        queries.add("match $x has a +12345-12-00:00;");
+        queries.add("match $x isa movie; get $y; oops");
+        queries.add("match $x isa movie; sort $esc, $x asc; oft 10;");
+        queries.add("match $x isa movie; group $y; cou");
+        for (int i = 0; i < 1000; i++) queries.add(mutate(random, query(random)));
+        for (String query : queries) {
+            if (query.isBlank()) continue;
+            try {
+                backend.parseQueryEOF(query, ParseLimits.unlimited());
+            } catch (TypeQLException e) {
+                // Both parsers are expected to reject most mutated queries, with the same message
+            }
+        }
+        assertEquals(new ArrayList<String>(), backend.differences);
+    }
+
+    @Test
+    public void testQueryListConforms() {
+        Random random = new Random(1);
+        Parser antlr = new Parser();
+        StringBuilder script = new StringBuilder();
+        while (script.length() < 10_000) {
+            String query = query(random);
+            if (isValid(antlr, query)) script.append(query).append("\n");
+        }
+        DifferentialBackend backend = new DifferentialBackend();
+        backend.parseQueriesEOF(script.toString(), ParseLimits.unlimited());
+        assertEquals(new ArrayList<String>(), backend.differences);
+    }
+}
@@ -0,0 +1,113 @@
+/*
+ * Copyright (C) 2022 Vaticle
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.vaticle.typeql.lang.parser.test;
+
+import com.vaticle.typeql.lang.parser.Utf8CharStream;
+import org.antlr.v4.runtime.CharStream;
+import org.antlr.v4.runtime.CharStreams;
+import org.antlr.v4.runtime.IntStream;
+import org.antlr.v4.runtime.misc.Interval;
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.junit.Assert.assertEquals;
+
+public class Utf8CharStreamTest {
+
+    private static String text() {
+        StringBuilder text = new StringBuilder();
+        for (int i = 0; i < 5_000; i++) text.append(i % 7 == 0 ? "\u00e9" : i % 11 == 0 ? "\uD83C\uDFAC" : "a");
+        return text.toString();
+    }
+
+    @Test
+    public void testReadsSameCodePointsAsStringStream() {
+        String text = text();
+        CharStream expected = CharStreams.fromString(text);
+        CharStream actual = new Utf8CharStream(ByteBuffer.wrap(text.getBytes(UTF_8)));
+
+        assertEquals(expected.size(), actual.size());
+        while (expected.LA(1) != IntStream.EOF) {
+            assertEquals(expected.LA(1), actual.LA(1));
+            assertEquals(expected.LA(3), actual.LA(3));
+            expected.consume();
+            actual.consume();
+        }
+        assertEquals(IntStream.EOF, actual.LA(1));
+    }
+
+    @Test
+    public void testSeekBackwardsAndGetText() {
+        String text = text();
+        CharStream expected = CharStreams.fromString(text);
+        CharStream actual = new Utf8CharStream(ByteBuffer.wrap(text.getBytes(UTF_8)));
+        actual.seek(4_500);
+        expected.seek(4_500);
+
+        for (int index : new int[]{3_000, 1_023, 1_024, 17, 0, 4_999}) {
+            actual.seek(index);
+            expected.seek(index);
+            assertEquals(expected.index(), actual.index());
+            assertEquals(expected.LA(1), actual.LA(1));
+            assertEquals(expected.LA(-1), actual.LA(-1));
+        }
+        Interval interval = Interval.of(1_000, 2_100);
+        assertEquals(expected.getText(interval), actual.getText(interval));
+    }
+
+    @Test
+    public void testReadBehindTheStream() {
+        String text = text();
+        CharStream expected = CharStreams.fromString(text);
+        CharStream actual = new Utf8CharStream(ByteBuffer.wrap(text.getBytes(UTF_8)));
+
+        // Moves forward as a lexer does, seeking back a little after reading ahead, and once back to the start
+        for (int index = 0; index < 4_900; index += 7) {
+            if (index == 2_002) {
+                actual.seek(0);
+                expected.seek(0);
+            }
+            actual.seek(index + 5);
+            actual.seek(index);
+            expected.seek(index);
+            for (int behind = 1; behind <= Math.min(index, 300); behind += 13) {
+                assertEquals(expected.LA(-behind), actual.LA(-behind));
+                Interval interval = Interval.of(index - behind, index - behind / 2);
+                assertEquals(expected.getText(interval), actual.getText(interval));
+            }
+        }
+    }
+
+    @Test
+    public void testMalformedBytesAreReplaced() {
+        byte[] bytes = new byte[]{'a', (byte) 0xC3, 'b', (byte) 0xED, (byte) 0xA0, (byte) 0x80};
+        CharStream stream = new Utf8CharStream(ByteBuffer.wrap(bytes));
+
+        assertEquals(6, stream.size());
+        assertEquals('a', stream.LA(1));
+        assertEquals(0xFFFD, stream.LA(2));
+        assertEquals('b', stream.LA(3));
+        assertEquals(0xFFFD, stream.LA(4));
+    }
+}
@@ -0,0 +1,85 @@
+/*
+ * Copyright (C) 2022 Vaticle
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.vaticle.typeql.lang.parser.test;
+
+import com.vaticle.typeql.lang.TypeQL;
+import com.vaticle.typeql.lang.common.exception.TypeQLException;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+public class ValidateSyntaxTest {
+
+    private static final String[] VALID = {
+            "match $x isa person, has name \"alice\"; get $x; sort $x; limit 10;",
+            "match $x isa person; { $x has age 1; } or { $x has age 2.5; }; not { $x has name 'bob'; }; count;",
+            "match ($x, $y) isa friendship; group $x; count;",
+            "insert $x isa person, has birth-date 2000-01-01T10:00;",
+            "match $x isa person; delete $x isa person; insert $x isa person;",
+            "define person sub entity, owns name, plays friendship:friend; name sub attribute, value string;",
+            "define rule r: when { $x isa person; } then { $x has name \"n\"; };",
+            "undefine person owns name;"
+    };
+
+    private static final String[] INVALID = {
+            "match $x isa",
+            "match $x isa person; get",
+            "insert $x isa person, has name;",
+            "define person sub entity",
+            "match $x isa person; limit x;",
+            "match $x isa person;\n$x has name \"a\" \"b\";"
+    };
+
+    private static String errorOf(Runnable parse) {
+        try {
+            parse.run();
+        } catch (TypeQLException e) {
+            return e.getMessage();
+        }
+        fail();
+        return null;
+    }
+
+    @Test
+    public void testValidQueriesPass() {
+        for (String query : VALID) {
+            TypeQL.validateSyntax(query);
+            TypeQL.validateSyntax(query, true);
+        }
+    }
+
+    @Test
+    public void testInvalidQueriesReportTheErrorsOfParsing() {
+        for (String query : INVALID) {
+            assertEquals(errorOf(() -> TypeQL.parseQuery(query)), errorOf(() -> TypeQL.validateSyntax(query)));
+            assertEquals(errorOf(() -> TypeQL.parseQuery(query)), errorOf(() -> TypeQL.validateSyntax(query, true)));
+        }
+    }
+
+    @Test
+    public void testSemanticsAreOnlyCheckedWhenAsked() {
+        String query = "match $x isa person; get $y;";
+        TypeQL.validateSyntax(query);
+        assertEquals(errorOf(() -> TypeQL.parseQuery(query)), errorOf(() -> TypeQL.validateSyntax(query, true)));
+    }
+}
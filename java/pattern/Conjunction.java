@@ -28,18 +28,23 @@ import com.vaticle.typeql.lang.pattern.variable.BoundVariable;
 import com.vaticle.typeql.lang.pattern.variable.UnboundVariable;
 import com.vaticle.typeql.lang.pattern.variable.Variable;
 
-import java.util.AbstractList;
 import java.util.ArrayList;
-import java.util.HashMap;
+import java.util.Collections;
 import java.util.HashSet;
+import java.util.Iterator;
 import java.util.List;
-import java.util.Map;
+import java.util.NoSuchElementException;
 import java.util.Objects;
 import java.util.Set;
+import java.util.Spliterators;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.function.Function;
+import java.util.function.Supplier;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
-import static com.vaticle.typedb.common.collection.Collections.list;
 import static com.vaticle.typeql.lang.common.TypeQLToken.Char.CURLY_CLOSE;
 import static com.vaticle.typeql.lang.common.TypeQLToken.Char.CURLY_OPEN;
 import static com.vaticle.typeql.lang.common.TypeQLToken.Char.NEW_LINE;
@@ -49,6 +54,8 @@ import static com.vaticle.typeql.lang.common.TypeQLToken.Char.SEMICOLON_SPACE;
 import static com.vaticle.typeql.lang.common.TypeQLToken.Char.SPACE;
 import static com.vaticle.typeql.lang.common.exception.ErrorMessage.MATCH_HAS_UNBOUNDED_NESTED_PATTERN;
 import static com.vaticle.typeql.lang.common.util.Strings.indent;
+import static java.util.Spliterator.NONNULL;
+import static java.util.Spliterator.ORDERED;
 import static java.util.stream.Collectors.toList;
 import static java.util.stream.Stream.concat;
 
@@ -56,7 +63,7 @@ public class Conjunction<T extends Pattern> implements Pattern {
 
     private final List<T> patterns;
     private final int hash;
-    private Disjunction<Conjunction<Conjunctable>> normalised;
+    private volatile Disjunction<Conjunction<Conjunctable>> normalised;
 
     public Conjunction(List<T> patterns) {
         if (patterns == null) throw new NullPointerException("Null patterns");
@@ -98,26 +105,142 @@ public class Conjunction<T extends Pattern> implements Pattern {
         return new Conjunction<>(conjunctions.stream().flatMap(p -> p.patterns().stream()).collect(toList()));
     }
 
+    @Override
+    public long estimateNormalisedSize() {
+        return NormalisationLimit.sizeOf(this)[0];
+    }
+
+    @Override
+    public Conjunction<Pattern> factorise() {
+        return Factorisation.factorise(this);
+    }
+
     @Override
     public Disjunction<Conjunction<Conjunctable>> normalise() {
         if (normalised == null) {
+            List<Conjunction<Conjunctable>> listOfConjunctions = new ArrayList<>();
+            // Nested patterns are normalised once, as each of their conjunctions is combined with many others
+            normalForm(pattern -> pattern.isConjunction()
+                    ? pattern.asConjunction().normalise().patterns()::iterator
+                    : pattern.asDisjunction().normalise().patterns()::iterator
+            ).forEachRemaining(listOfConjunctions::add);
+            normalised = new Disjunction<>(listOfConjunctions);
+        }
+        return normalised;
+    }
+
+    /**
+     * Normalises this conjunction, unless its normal form, or that of a negated pattern within it, would have more than
+     * the given number of conjunctions, in which case it fails with a TypeQLException before building any of them.
+     */
+    public Disjunction<Conjunction<Conjunctable>> normalise(long maxSize) {
+        if (normalised == null) NormalisationLimit.check(this, maxSize);
+        return normalise();
+    }
+
+    /**
+     * Normalises this conjunction on the given pool, which normalises nested patterns concurrently and builds the
+     * conjunctions of a large normal form in parallel slices. The result is identical to that of {@link #normalise()},
+     * in the same order.
+     */
+    public Disjunction<Conjunction<Conjunctable>> normalise(ForkJoinPool pool) {
+        return normalise(pool, Long.MAX_VALUE);
+    }
+
+    /**
+     * Normalises this conjunction on the given pool, unless its normal form would be too large. See
+     * {@link #normalise(long)} and {@link #normalise(ForkJoinPool)}.
+     */
+    public Disjunction<Conjunction<Conjunctable>> normalise(ForkJoinPool pool, long maxSize) {
+        Disjunction<Conjunction<Conjunctable>> normalised = this.normalised;
+        if (normalised != null) return normalised;
+        // The size is only estimated here, as the sizes of nested normal forms are known once they are built
+        if (NormalisationLimit.check(this, maxSize) < ParallelNormaliser.THRESHOLD) return normalise();
+        return ParallelNormaliser.invoke(pool, this::normaliseInParallel);
+    }
+
+    Disjunction<Conjunction<Conjunctable>> normaliseInParallel() {
+        if (normalised == null) {
+            List<ForkJoinTask<Negation<Disjunction<Conjunction<Conjunctable>>>>> negations = new ArrayList<>();
+            List<ForkJoinTask<Disjunction<Conjunction<Conjunctable>>>> nested = new ArrayList<>();
+            patterns.forEach(pattern -> {
+                if (pattern.isNegation()) negations.add(ParallelNormaliser.fork(pattern.asNegation()));
+                else if (!pattern.isVariable()) nested.add(ParallelNormaliser.fork(pattern));
+            });
             List<Conjunctable> conjunctables = new ArrayList<>();
-            List<List<Conjunction<Conjunctable>>> listOfDisj = new ArrayList<>();
+            Iterator<ForkJoinTask<Negation<Disjunction<Conjunction<Conjunctable>>>>> negationIter =
+                    negations.iterator();
             patterns.forEach(pattern -> {
                 if (pattern.isVariable()) conjunctables.add(pattern.asVariable().normalise());
-                else if (pattern.isNegation()) conjunctables.add(pattern.asNegation().normalise());
-                else if (pattern.isConjunction()) listOfDisj.add(pattern.asConjunction().normalise().patterns());
-                else listOfDisj.add(pattern.asDisjunction().normalise().patterns());
+                else if (pattern.isNegation()) conjunctables.add(negationIter.next().join());
             });
-            listOfDisj.add(list(new Conjunction<>(conjunctables)));
-            List<Conjunction<Conjunctable>> listOfConjunctions = new CartesianList<>(listOfDisj)
-                    .stream().map(Conjunction::merge)
-                    .collect(toList());
-            normalised = new Disjunction<>(listOfConjunctions);
+            List<List<Conjunction<Conjunctable>>> axes = new ArrayList<>();
+            nested.forEach(task -> axes.add(task.join().patterns()));
+            axes.add(Collections.singletonList(new Conjunction<>(conjunctables)));
+            long size = 1;
+            for (List<Conjunction<Conjunctable>> conjunctions : axes) {
+                size = NormalisationLimit.multiply(size, conjunctions.size());
+            }
+            // The nested patterns are already normalised, and are not normalised again
+            if (size > Integer.MAX_VALUE) return normalise();
+
+            // The combination at an index varies the last axis fastest, as the sequential normal form does
+            int[] strides = new int[axes.size()];
+            int stride = 1;
+            for (int axis = axes.size() - 1; axis >= 0; axis--) {
+                strides[axis] = stride;
+                stride *= axes.get(axis).size();
+            }
+            normalised = new Disjunction<>(ParallelNormaliser.build((int) size, index -> {
+                List<Conjunction<Conjunctable>> combination = new ArrayList<>(axes.size());
+                for (int axis = 0; axis < axes.size(); axis++) {
+                    List<Conjunction<Conjunctable>> conjunctions = axes.get(axis);
+                    combination.add(conjunctions.get(index / strides[axis] % conjunctions.size()));
+                }
+                return merge(combination);
+            }));
         }
         return normalised;
     }
 
+    /**
+     * Streams the conjunctions of this conjunction's disjunctive normal form, in the order of {@link #normalise()},
+     * building each one only as it is consumed. The conjunctions are neither memoised nor held together, so a normal
+     * form too large to hold in memory can be processed one conjunction at a time, or abandoned early.
+     */
+    public Stream<Conjunction<Conjunctable>> normaliseLazily() {
+        return StreamSupport.stream(
+                Spliterators.spliteratorUnknownSize(normalisedIterator(), ORDERED | NONNULL), false
+        );
+    }
+
+    Iterator<Conjunction<Conjunctable>> normalisedIterator() {
+        Disjunction<Conjunction<Conjunctable>> normalised = this.normalised;
+        if (normalised != null) return normalised.patterns().iterator();
+        // Nested patterns are normalised again each time their conjunctions are needed, in place of being held
+        return normalForm(pattern -> pattern.isConjunction()
+                ? pattern.asConjunction()::normalisedIterator
+                : pattern.asDisjunction()::normalisedIterator);
+    }
+
+    /**
+     * @param nested the normal form of a nested conjunction or disjunction, which can be iterated over repeatedly
+     */
+    private Iterator<Conjunction<Conjunctable>> normalForm(
+            Function<Pattern, Supplier<Iterator<Conjunction<Conjunctable>>>> nested
+    ) {
+        List<Conjunctable> conjunctables = new ArrayList<>();
+        List<Supplier<Iterator<Conjunction<Conjunctable>>>> axes = new ArrayList<>();
+        patterns.forEach(pattern -> {
+            if (pattern.isVariable()) conjunctables.add(pattern.asVariable().normalise());
+            else if (pattern.isNegation()) conjunctables.add(pattern.asNegation().normalise());
+            else axes.add(nested.apply(pattern));
+        });
+        Conjunction<Conjunctable> flat = new Conjunction<>(conjunctables);
+        axes.add(() -> Collections.singletonList(flat).iterator());
+        return new CartesianIterator(axes);
+    }
+
     @Override
     public boolean isConjunction() { return true; }
 
@@ -157,49 +280,57 @@ public class Conjunction<T extends Pattern> implements Pattern {
         return hash;
     }
 
-    private static class CartesianList<E> extends AbstractList<List<E>> {
+    /**
+     * Iterates over the merged combinations of one conjunction from each axis, varying the last axis fastest.
+     * Only the current conjunction of each axis is held, and an axis is iterated over again from its start
+     * each time the axis before it advances.
+     */
+    private static class CartesianIterator implements Iterator<Conjunction<Conjunctable>> {
 
-        private final transient List<List<E>> axes;
-        private final transient int[] axesSizeProduct;
-        private final Map<Integer, List<E>> computed;
+        private final List<Supplier<Iterator<Conjunction<Conjunctable>>>> axes;
+        private final List<Iterator<Conjunction<Conjunctable>>> iterators;
+        private final List<Conjunction<Conjunctable>> current;
+        private boolean hasNext;
 
-        CartesianList(List<List<E>> axes) {
+        CartesianIterator(List<Supplier<Iterator<Conjunction<Conjunctable>>>> axes) {
             this.axes = axes;
-            axesSizeProduct = new int[axes.size() + 1];
-            axesSizeProduct[axes.size()] = 1;
-            for (int i = axes.size() - 1; i >= 0; i--) {
-                axesSizeProduct[i] = axesSizeProduct[i + 1] * axes.get(i).size();
+            this.iterators = new ArrayList<>(axes.size());
+            this.current = new ArrayList<>(axes.size());
+            for (Supplier<Iterator<Conjunction<Conjunctable>>> axis : axes) {
+                Iterator<Conjunction<Conjunctable>> iterator = axis.get();
+                if (!iterator.hasNext()) throw TypeQLException.of(ErrorMessage.ILLEGAL_STATE);
+                current.add(iterator.next());
+                iterators.add(iterator);
             }
-            if (axesSizeProduct[0] == 0) throw TypeQLException.of(ErrorMessage.ILLEGAL_STATE);
-            computed = new HashMap<>();
+            this.hasNext = true;
         }
 
-        private int getAxisIndexForProductIndex(int index, int axis) {
-            return (index / axesSizeProduct[axis + 1]) % axes.get(axis).size();
+        @Override
+        public boolean hasNext() {
+            return hasNext;
         }
 
         @Override
-        public List<E> get(int index) {
-            if (index >= size()) throw new IndexOutOfBoundsException();
-
-            return computed.computeIfAbsent(index, i -> new AbstractList<E>() {
-
-                @Override
-                public int size() {
-                    return axes.size();
-                }
-
-                @Override
-                public E get(int axis) {
-                    if (axis >= size()) throw new IndexOutOfBoundsException();
-                    return axes.get(axis).get(getAxisIndexForProductIndex(i, axis));
-                }
-            });
+        public Conjunction<Conjunctable> next() {
+            if (!hasNext) throw new NoSuchElementException();
+            Conjunction<Conjunctable> next = merge(current);
+            advance();
+            return next;
         }
 
-        @Override
-        public int size() {
-            return axesSizeProduct[0];
+        private void advance() {
+            int axis = axes.size() - 1;
+            while (axis >= 0 && !iterators.get(axis).hasNext()) axis--;
+            if (axis < 0) {
+                hasNext = false;
+                return;
+            }
+            current.set(axis, iterators.get(axis).next());
+            for (axis++; axis < axes.size(); axis++) {
+                Iterator<Conjunction<Conjunctable>> iterator = axes.get(axis).get();
+                current.set(axis, iterator.next());
+                iterators.set(axis, iterator);
+            }
         }
     }
 }
@@ -23,11 +23,18 @@ package com.vaticle.typeql.lang.pattern;
 
 import com.vaticle.typeql.lang.pattern.variable.UnboundVariable;
 
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.Iterator;
 import java.util.List;
+import java.util.NoSuchElementException;
 import java.util.Objects;
 import java.util.Set;
+import java.util.Spliterators;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
 import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 import static com.vaticle.typedb.common.collection.Collections.list;
 import static com.vaticle.typeql.lang.common.TypeQLToken.Char.CURLY_CLOSE;
@@ -37,13 +44,15 @@ import static com.vaticle.typeql.lang.common.TypeQLToken.Char.SEMICOLON;
 import static com.vaticle.typeql.lang.common.TypeQLToken.Char.SPACE;
 import static com.vaticle.typeql.lang.common.TypeQLToken.Operator.OR;
 import static com.vaticle.typeql.lang.common.util.Strings.indent;
+import static java.util.Spliterator.NONNULL;
+import static java.util.Spliterator.ORDERED;
 import static java.util.stream.Collectors.toList;
 
 public class Disjunction<T extends Pattern> implements Pattern {
 
     private final List<T> patterns;
     private final int hash;
-    private Disjunction<Conjunction<Conjunctable>> normalised;
+    private volatile Disjunction<Conjunction<Conjunctable>> normalised;
 
     public Disjunction(List<T> patterns) {
         if (patterns == null) throw new NullPointerException("Null patterns");
@@ -61,6 +70,16 @@ public class Disjunction<T extends Pattern> implements Pattern {
         patterns.forEach(pattern -> pattern.validateIsBoundedBy(bounds));
     }
 
+    @Override
+    public long estimateNormalisedSize() {
+        return NormalisationLimit.sizeOf(this)[0];
+    }
+
+    @Override
+    public Conjunction<Pattern> factorise() {
+        return Factorisation.factorise(this);
+    }
+
     @Override
     public Disjunction<Conjunction<Conjunctable>> normalise() {
         if (normalised == null) {
@@ -76,6 +95,96 @@ public class Disjunction<T extends Pattern> implements Pattern {
         return normalised;
     }
 
+    /**
+     * Normalises this disjunction, unless its normal form would be too large. See {@link Conjunction#normalise(long)}.
+     */
+    public Disjunction<Conjunction<Conjunctable>> normalise(long maxSize) {
+        if (normalised == null) NormalisationLimit.check(this, maxSize);
+        return normalise();
+    }
+
+    /**
+     * Normalises this disjunction on the given pool. See {@link Conjunction#normalise(ForkJoinPool)}.
+     */
+    public Disjunction<Conjunction<Conjunctable>> normalise(ForkJoinPool pool) {
+        return normalise(pool, Long.MAX_VALUE);
+    }
+
+    /**
+     * Normalises this disjunction on the given pool, unless its normal form would be too large. See
+     * {@link Conjunction#normalise(ForkJoinPool, long)}.
+     */
+    public Disjunction<Conjunction<Conjunctable>> normalise(ForkJoinPool pool, long maxSize) {
+        Disjunction<Conjunction<Conjunctable>> normalised = this.normalised;
+        if (normalised != null) return normalised;
+        if (NormalisationLimit.check(this, maxSize) < ParallelNormaliser.THRESHOLD) return normalise();
+        return ParallelNormaliser.invoke(pool, this::normaliseInParallel);
+    }
+
+    Disjunction<Conjunction<Conjunctable>> normaliseInParallel() {
+        if (normalised == null) {
+            List<ForkJoinTask<Negation<Disjunction<Conjunction<Conjunctable>>>>> negations = new ArrayList<>();
+            List<ForkJoinTask<Disjunction<Conjunction<Conjunctable>>>> nested = new ArrayList<>();
+            patterns.forEach(p -> {
+                if (p.isNegation()) negations.add(ParallelNormaliser.fork(p.asNegation()));
+                else if (!p.isVariable()) nested.add(ParallelNormaliser.fork(p));
+            });
+            List<Conjunction<Conjunctable>> conjunctions = new ArrayList<>();
+            Iterator<ForkJoinTask<Negation<Disjunction<Conjunction<Conjunctable>>>>> negationIter =
+                    negations.iterator();
+            Iterator<ForkJoinTask<Disjunction<Conjunction<Conjunctable>>>> nestedIter = nested.iterator();
+            patterns.forEach(p -> {
+                if (p.isVariable()) conjunctions.add(new Conjunction<>(list(p.asConjunctable())));
+                else if (p.isNegation()) conjunctions.add(new Conjunction<>(list(negationIter.next().join())));
+                else conjunctions.addAll(nestedIter.next().join().patterns());
+            });
+            normalised = new Disjunction<>(conjunctions);
+        }
+        return normalised;
+    }
+
+    /**
+     * Streams the conjunctions of this disjunction's disjunctive normal form, in the order of {@link #normalise()},
+     * building each one only as it is consumed. See {@link Conjunction#normaliseLazily()}.
+     */
+    public Stream<Conjunction<Conjunctable>> normaliseLazily() {
+        return StreamSupport.stream(
+                Spliterators.spliteratorUnknownSize(normalisedIterator(), ORDERED | NONNULL), false
+        );
+    }
+
+    Iterator<Conjunction<Conjunctable>> normalisedIterator() {
+        Disjunction<Conjunction<Conjunctable>> normalised = this.normalised;
+        if (normalised != null) return normalised.patterns().iterator();
+        Iterator<T> patternIter = patterns.iterator();
+        return new Iterator<>() {
+
+            private Iterator<Conjunction<Conjunctable>> current = Collections.emptyIterator();
+
+            @Override
+            public boolean hasNext() {
+                while (!current.hasNext() && patternIter.hasNext()) {
+                    Pattern p = patternIter.next();
+                    if (p.isVariable()) {
+                        current = Collections.singletonList(new Conjunction<>(list(p.asConjunctable()))).iterator();
+                    } else if (p.isNegation()) {
+                        current = Collections.singletonList(
+                                new Conjunction<>(list(p.asNegation().normalise().asConjunctable()))
+                        ).iterator();
+                    } else if (p.isConjunction()) current = p.asConjunction().normalisedIterator();
+                    else current = p.asDisjunction().normalisedIterator();
+                }
+                return current.hasNext();
+            }
+
+            @Override
+            public Conjunction<Conjunctable> next() {
+                if (!hasNext()) throw new NoSuchElementException();
+                return current.next();
+            }
+        };
+    }
+
     @Override
     public boolean isDisjunction() {
         return true;
@@ -0,0 +1,169 @@
+/*
+ * Copyright (C) 2022 Vaticle
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.vaticle.typeql.lang.pattern;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * The factorised form of a pattern, an alternative to its disjunctive normal form that is not multiplied out.
+ *
+ * A factorised pattern is a conjunction of variables, negations and disjunctions, whose branches are factorised in
+ * turn. Nested conjunctions are flattened, and repeated patterns are kept once. Independent disjunctions are left
+ * as they are, rather than multiplied together, and the patterns common to every branch of a disjunction are hoisted
+ * out of it, as (A and B) or (A and C) is A and (B or C). A disjunction from which a branch is hoisted entirely is
+ * dropped, as A or (A and B) is A.
+ *
+ * The sizes of the factorised and normal forms are counted in variables and negations, across all conjunctions of
+ * the normal form, so that an engine can choose which form to evaluate. The size of the normal form is computed
+ * without normalising, and saturates at Long.MAX_VALUE.
+ */
+public class Factorisation {
+
+    private final Conjunction<Pattern> pattern;
+    private final long size;
+    private final long normalisedSize;
+    private final long normalisedConjunctions;
+
+    private Factorisation(Conjunction<Pattern> pattern, long size, long normalisedSize, long normalisedConjunctions) {
+        this.pattern = pattern;
+        this.size = size;
+        this.normalisedSize = normalisedSize;
+        this.normalisedConjunctions = normalisedConjunctions;
+    }
+
+    public static Factorisation of(Pattern pattern) {
+        if (pattern == null) throw new NullPointerException("Null pattern");
+        Conjunction<Pattern> factorised = factorise(pattern);
+        long[] normalised = NormalisationLimit.sizeOf(pattern);
+        return new Factorisation(factorised, size(factorised), normalised[1], normalised[0]);
+    }
+
+    public Conjunction<Pattern> pattern() {
+        return pattern;
+    }
+
+    /**
+     * @return the number of variables and negations in the factorised form
+     */
+    public long size() {
+        return size;
+    }
+
+    /**
+     * @return the number of variables and negations in the disjunctive normal form, summed over its conjunctions
+     */
+    public long normalisedSize() {
+        return normalisedSize;
+    }
+
+    /**
+     * @return the number of conjunctions in the disjunctive normal form, as {@link Pattern#estimateNormalisedSize()}
+     */
+    public long normalisedConjunctions() {
+        return normalisedConjunctions;
+    }
+
+    static Conjunction<Pattern> factorise(Pattern pattern) {
+        Set<Pattern> patterns = new LinkedHashSet<>();
+        addFactorised(patterns, pattern);
+        return new Conjunction<>(new ArrayList<>(patterns));
+    }
+
+    static Negation<Conjunction<Pattern>> factorise(Negation<?> negation) {
+        return new Negation<>(factorise(negation.pattern()));
+    }
+
+    private static void addFactorised(Set<Pattern> patterns, Pattern pattern) {
+        if (pattern.isVariable()) patterns.add(pattern);
+        else if (pattern.isNegation()) patterns.add(factorise(pattern.asNegation()));
+        else if (pattern.isConjunction()) pattern.asConjunction().patterns().forEach(p -> addFactorised(patterns, p));
+        else {
+            List<Conjunction<Pattern>> branches = new ArrayList<>();
+            pattern.asDisjunction().patterns().forEach(p -> branches.add(factorise(p)));
+            patterns.addAll(factoriseBranches(branches));
+        }
+    }
+
+    /**
+     * @return the patterns equivalent to a disjunction of the given factorised branches: those common to every branch,
+     * and a disjunction of the rest, if no branch is left empty
+     */
+    private static List<Pattern> factoriseBranches(List<Conjunction<Pattern>> branches) {
+        // Branches that are themselves only a disjunction are spliced in, and identical branches are kept once
+        Map<Set<Pattern>, Conjunction<Pattern>> distinct = new LinkedHashMap<>();
+        for (Conjunction<Pattern> branch : branches) {
+            if (branch.patterns().size() == 1 && branch.patterns().get(0).isDisjunction()) {
+                for (Pattern nested : branch.patterns().get(0).asDisjunction().patterns()) {
+                    Conjunction<Pattern> nestedBranch = asFactorised(nested);
+                    distinct.putIfAbsent(new HashSet<>(nestedBranch.patterns()), nestedBranch);
+                }
+            } else {
+                distinct.putIfAbsent(new HashSet<>(branch.patterns()), branch);
+            }
+        }
+        List<Conjunction<Pattern>> unique = new ArrayList<>(distinct.values());
+        if (unique.size() == 1) return unique.get(0).patterns();
+
+        Set<Pattern> common = new LinkedHashSet<>(unique.get(0).patterns());
+        for (Set<Pattern> branch : distinct.keySet()) common.retainAll(branch);
+        if (common.isEmpty()) return List.of(new Disjunction<>(unique));
+
+        List<Conjunction<Pattern>> remaining = new ArrayList<>(unique.size());
+        for (Conjunction<Pattern> branch : unique) {
+            List<Pattern> rest = new ArrayList<>(branch.patterns());
+            rest.removeAll(common);
+            if (rest.isEmpty()) return new ArrayList<>(common);
+            remaining.add(new Conjunction<>(rest));
+        }
+        List<Pattern> factorised = new ArrayList<>(common);
+        factorised.addAll(factoriseBranches(remaining));
+        return factorised;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Conjunction<Pattern> asFactorised(Pattern branch) {
+        // The branches of a factorised disjunction are factorised conjunctions
+        return (Conjunction<Pattern>) branch.asConjunction();
+    }
+
+    private static long size(Pattern pattern) {
+        if (pattern.isVariable() || pattern.isNegation()) return 1;
+        long size = 0;
+        for (Pattern nested : pattern.patterns()) size = NormalisationLimit.add(size, size(nested));
+        return size;
+    }
+
+    @Override
+    public String toString() {
+        return "Factorisation{" +
+                "size=" + size +
+                ", normalisedSize=" + normalisedSize +
+                ", normalisedConjunctions=" + normalisedConjunctions +
+                '}';
+    }
+}
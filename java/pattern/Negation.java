@@ -29,6 +29,7 @@ import com.vaticle.typeql.lang.pattern.variable.UnboundVariable;
 import java.util.List;
 import java.util.Objects;
 import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
 
 import static com.vaticle.typedb.common.collection.Collections.list;
 import static com.vaticle.typeql.lang.common.TypeQLToken.Char.CURLY_CLOSE;
@@ -46,7 +47,7 @@ import static com.vaticle.typeql.lang.common.util.Strings.indent;
 public class Negation<T extends Pattern> implements Conjunctable {
 
     private final T pattern;
-    private Negation<Disjunction<Conjunction<Conjunctable>>> normalised;
+    private volatile Negation<Disjunction<Conjunction<Conjunctable>>> normalised;
 
     public Negation(T pattern) {
         if (pattern == null) throw new NullPointerException("Null patterns");
@@ -72,6 +73,11 @@ public class Negation<T extends Pattern> implements Conjunctable {
         }
     }
 
+    @Override
+    public Negation<Conjunction<Pattern>> factorise() {
+        return Factorisation.factorise(this);
+    }
+
     @Override
     public Negation<Disjunction<Conjunction<Conjunctable>>> normalise() {
         if (normalised == null) {
@@ -87,6 +93,24 @@ public class Negation<T extends Pattern> implements Conjunctable {
         return normalised;
     }
 
+    /**
+     * Normalises this negation on the given pool. See {@link Conjunction#normalise(ForkJoinPool)}.
+     */
+    public Negation<Disjunction<Conjunction<Conjunctable>>> normalise(ForkJoinPool pool) {
+        Negation<Disjunction<Conjunction<Conjunctable>>> normalised = this.normalised;
+        if (normalised != null) return normalised;
+        if (pattern.estimateNormalisedSize() < ParallelNormaliser.THRESHOLD) return normalise();
+        return ParallelNormaliser.invoke(pool, this::normaliseInParallel);
+    }
+
+    Negation<Disjunction<Conjunction<Conjunctable>>> normaliseInParallel() {
+        if (normalised == null && (pattern.isConjunction() || pattern.isDisjunction())) {
+            if (pattern.isConjunction()) normalised = new Negation<>(pattern.asConjunction().normaliseInParallel());
+            else normalised = new Negation<>(pattern.asDisjunction().normaliseInParallel());
+        }
+        return normalise();
+    }
+
     @Override
     public boolean isNegation() {
         return true;
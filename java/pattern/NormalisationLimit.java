@@ -0,0 +1,107 @@
+/*
+ * Copyright (C) 2022 Vaticle
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.vaticle.typeql.lang.pattern;
+
+import com.vaticle.typeql.lang.common.exception.TypeQLException;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static com.vaticle.typeql.lang.common.exception.ErrorMessage.NORMALISED_SIZE_LIMIT_EXCEEDED;
+
+/**
+ * Checks the number of conjunctions that normalising a pattern would build against a limit, so that a pattern whose
+ * disjunctive normal form would exhaust memory is rejected before any of it is built. See
+ * {@link Conjunction#normalise(long)}.
+ *
+ * The sizes of normal forms are computed here without normalising, for the limit, for
+ * {@link Pattern#estimateNormalisedSize()} and for {@link Factorisation}, and saturate at Long.MAX_VALUE.
+ */
+class NormalisationLimit {
+
+    private NormalisationLimit() {}
+
+    /**
+     * Checks the normal form of the pattern, and that of every negated pattern within it, which is normalised on its
+     * own, in a single pass over the pattern.
+     *
+     * @return the size of the pattern's normal form, as {@link Pattern#estimateNormalisedSize()}
+     */
+    static long check(Pattern pattern, long maxSize) {
+        if (maxSize <= 0) throw new IllegalArgumentException("Maximum normalised size must be positive");
+        return check(sizeOf(pattern, maxSize)[0], maxSize);
+    }
+
+    private static long check(long size, long maxSize) {
+        if (size > maxSize) throw TypeQLException.of(NORMALISED_SIZE_LIMIT_EXCEEDED.message(size, maxSize));
+        return size;
+    }
+
+    /**
+     * @return the number of conjunctions in the normal form of the pattern, and the number of variables and negations
+     * summed over those conjunctions
+     */
+    static long[] sizeOf(Pattern pattern) {
+        return sizeOf(pattern, Long.MAX_VALUE);
+    }
+
+    private static long[] sizeOf(Pattern pattern, long maxSize) {
+        if (pattern.isNegation()) {
+            if (maxSize < Long.MAX_VALUE) check(sizeOf(pattern.asNegation().pattern(), maxSize)[0], maxSize);
+            return new long[]{1, 1};
+        } else if (!pattern.isConjunction() && !pattern.isDisjunction()) {
+            return new long[]{1, 1};
+        }
+        List<long[]> sizes = new ArrayList<>(pattern.patterns().size());
+        for (Pattern nested : pattern.patterns()) sizes.add(sizeOf(nested, maxSize));
+        if (pattern.isDisjunction()) {
+            long conjunctions = 0, size = 0;
+            for (long[] nested : sizes) {
+                conjunctions = add(conjunctions, nested[0]);
+                size = add(size, nested[1]);
+            }
+            return new long[]{conjunctions, size};
+        }
+        // Each conjunction of a nested pattern is combined with every conjunction of the others
+        long conjunctions = 1;
+        for (long[] nested : sizes) conjunctions = multiply(conjunctions, nested[0]);
+        if (conjunctions == 0 || conjunctions == Long.MAX_VALUE) return new long[]{conjunctions, conjunctions};
+        long size = 0;
+        for (long[] nested : sizes) size = add(size, multiply(nested[1], conjunctions / nested[0]));
+        return new long[]{conjunctions, size};
+    }
+
+    /**
+     * @return the product of two sizes, or Long.MAX_VALUE if it is larger
+     */
+    static long multiply(long size, long otherSize) {
+        if (size == 0 || otherSize == 0) return 0;
+        return size > Long.MAX_VALUE / otherSize ? Long.MAX_VALUE : size * otherSize;
+    }
+
+    /**
+     * @return the sum of two sizes, or Long.MAX_VALUE if it is larger
+     */
+    static long add(long size, long otherSize) {
+        return size > Long.MAX_VALUE - otherSize ? Long.MAX_VALUE : size + otherSize;
+    }
+}
@@ -0,0 +1,101 @@
+/*
+ * Copyright (C) 2022 Vaticle
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.vaticle.typeql.lang.pattern;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveAction;
+import java.util.function.IntFunction;
+
+/**
+ * Normalises patterns on a fork/join pool. Nested patterns are normalised as separate tasks, and the conjunctions of a
+ * large normal form are built in slices, each of which fills its own range of the result, so the result is identical
+ * to, and in the same order as, that of {@link Pattern#normalise()}. A pattern whose normal form has fewer than
+ * {@link #THRESHOLD} conjunctions is normalised sequentially, as splitting it would cost more than it saves. Its size
+ * is estimated once, for the pattern as a whole. The size of each nested normal form is only known once it is built,
+ * so nested patterns are always normalised as tasks.
+ */
+class ParallelNormaliser {
+
+    static final long THRESHOLD = 1 << 12;
+    private static final int SLICE_LENGTH = 1 << 10;
+
+    private ParallelNormaliser() {}
+
+    static <P extends Pattern> P invoke(ForkJoinPool pool, Callable<P> normalise) {
+        return pool.invoke(ForkJoinTask.adapt(normalise));
+    }
+
+    /**
+     * Starts normalising a nested conjunction or disjunction, from within a task of the pool.
+     */
+    static ForkJoinTask<Disjunction<Conjunction<Conjunctable>>> fork(Pattern pattern) {
+        if (pattern.isConjunction()) return ForkJoinTask.adapt(pattern.asConjunction()::normaliseInParallel).fork();
+        else return ForkJoinTask.adapt(pattern.asDisjunction()::normaliseInParallel).fork();
+    }
+
+    static ForkJoinTask<Negation<Disjunction<Conjunction<Conjunctable>>>> fork(Negation<?> negation) {
+        return ForkJoinTask.adapt(negation::normaliseInParallel).fork();
+    }
+
+    /**
+     * Builds a list of the given size, in slices that each build their own range of elements, from within a task of
+     * the pool.
+     */
+    static <E> List<E> build(int size, IntFunction<E> element) {
+        Object[] elements = new Object[size];
+        new Slice(elements, 0, size, element::apply).invoke();
+        @SuppressWarnings("unchecked")
+        List<E> list = (List<E>) Arrays.asList(elements);
+        return list;
+    }
+
+    private static class Slice extends RecursiveAction {
+
+        private static final long serialVersionUID = 1L;
+
+        private final Object[] elements;
+        private final int from;
+        private final int to;
+        private final IntFunction<Object> element;
+
+        private Slice(Object[] elements, int from, int to, IntFunction<Object> element) {
+            this.elements = elements;
+            this.from = from;
+            this.to = to;
+            this.element = element;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from <= SLICE_LENGTH) {
+                for (int i = from; i < to; i++) elements[i] = element.apply(i);
+            } else {
+                int middle = (from + to) >>> 1;
+                invokeAll(new Slice(elements, from, middle, element), new Slice(elements, middle, to, element));
+            }
+        }
+    }
+}
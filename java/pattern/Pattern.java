@@ -35,6 +35,18 @@ public interface Pattern {
 
     Pattern normalise();
 
+    /**
+     * @return the number of conjunctions in the disjunctive normal form of this pattern, computed without normalising
+     * it, or Long.MAX_VALUE if there are more. A variable or negation is a single conjunction.
+     */
+    default long estimateNormalisedSize() { return 1; }
+
+    /**
+     * @return an equivalent pattern in factorised form, which keeps disjunctions as they are rather than multiplying
+     * them out as {@link #normalise()} does. See {@link Factorisation}.
+     */
+    default Pattern factorise() { return this; }
+
     List<? extends Pattern> patterns();
 
     void validateIsBoundedBy(Set<UnboundVariable> bounds);
@@ -0,0 +1,226 @@
+/*
+ * Copyright (C) 2022 Vaticle
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.vaticle.typeql.lang.pattern;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Simplifies a disjunctive normal form, as built by {@link Pattern#normalise()}, into an equivalent one:
+ * <ul>
+ *     <li>a conjunctable repeated within a conjunction is kept once, which is equivalent as repeated anonymous
+ *     variables are existential, and repeated named ones are the same variable;</li>
+ *     <li>a conjunction identical to an earlier one, as a set of conjunctables, is dropped;</li>
+ *     <li>a conjunction that holds every conjunctable of another is dropped, as it is absorbed by the other;</li>
+ *     <li>the normal form of each negation is simplified in turn, and a negation of a single conjunction is collapsed
+ *     to a negation of that conjunction.</li>
+ * </ul>
+ * The order of the conjunctions and conjunctables that remain is unchanged. Each distinct conjunctable is numbered
+ * by hashing, and conjunctions are compared as sets of those numbers. Absorption counts, for each conjunction, the
+ * conjunctables it shares with those already kept, so simplifying takes time close to linear in the size of the
+ * normal form unless many kept conjunctions share conjunctables.
+ */
+public class Simplification {
+
+    private final Disjunction<Conjunction<Conjunctable>> normalForm;
+    private int duplicateConjunctables;
+    private int duplicateConjunctions;
+    private int absorbedConjunctions;
+    private int collapsedNegations;
+
+    private Simplification(Disjunction<Conjunction<Conjunctable>> normalForm) {
+        this.duplicateConjunctables = 0;
+        this.duplicateConjunctions = 0;
+        this.absorbedConjunctions = 0;
+        this.collapsedNegations = 0;
+        this.normalForm = simplify(normalForm);
+    }
+
+    public static Simplification of(Disjunction<Conjunction<Conjunctable>> normalForm) {
+        if (normalForm == null) throw new NullPointerException("Null normalForm");
+        return new Simplification(normalForm);
+    }
+
+    public Disjunction<Conjunction<Conjunctable>> normalForm() {
+        return normalForm;
+    }
+
+    public int duplicateConjunctablesRemoved() {
+        return duplicateConjunctables;
+    }
+
+    public int duplicateConjunctionsRemoved() {
+        return duplicateConjunctions;
+    }
+
+    public int absorbedConjunctionsRemoved() {
+        return absorbedConjunctions;
+    }
+
+    public int negationsCollapsed() {
+        return collapsedNegations;
+    }
+
+    /**
+     * @return true if the simplified normal form is identical to the original
+     */
+    public boolean isUnchanged() {
+        return duplicateConjunctables == 0 && duplicateConjunctions == 0 && absorbedConjunctions == 0 &&
+                collapsedNegations == 0;
+    }
+
+    private Disjunction<Conjunction<Conjunctable>> simplify(Disjunction<Conjunction<Conjunctable>> disjunction) {
+        List<Conjunction<Conjunctable>> conjunctions = disjunction.patterns();
+        // Conjunctables are compared once, when they are numbered, and conjunctions by the numbers they hold
+        Map<Conjunctable, Integer> ids = new HashMap<>();
+        List<List<Conjunctable>> distinct = new ArrayList<>(conjunctions.size());
+        List<int[]> sets = new ArrayList<>(conjunctions.size());
+        int[] lastSeenIn = new int[16];
+        for (int i = 0; i < conjunctions.size(); i++) {
+            List<Conjunctable> conjunctables = new ArrayList<>();
+            int[] set = new int[conjunctions.get(i).patterns().size()];
+            int size = 0;
+            for (Conjunctable conjunctable : conjunctions.get(i).patterns()) {
+                if (conjunctable.isNegation()) conjunctable = simplify(conjunctable.asNegation());
+                int id = ids.computeIfAbsent(conjunctable, c -> ids.size());
+                if (id >= lastSeenIn.length) lastSeenIn = Arrays.copyOf(lastSeenIn, id * 2);
+                if (lastSeenIn[id] == i + 1) {
+                    duplicateConjunctables++;
+                } else {
+                    lastSeenIn[id] = i + 1;
+                    conjunctables.add(conjunctable);
+                    set[size++] = id;
+                }
+            }
+            set = Arrays.copyOf(set, size);
+            Arrays.sort(set);
+            distinct.add(conjunctables);
+            sets.add(set);
+        }
+
+        boolean[] dropped = new boolean[sets.size()];
+        Set<IdSet> unique = new HashSet<>();
+        for (int i = 0; i < sets.size(); i++) {
+            if (!unique.add(new IdSet(sets.get(i)))) {
+                dropped[i] = true;
+                duplicateConjunctions++;
+            }
+        }
+        dropAbsorbed(sets, ids.size(), dropped);
+
+        List<Conjunction<Conjunctable>> simplified = new ArrayList<>(sets.size());
+        for (int i = 0; i < sets.size(); i++) {
+            if (!dropped[i]) simplified.add(new Conjunction<>(distinct.get(i)));
+        }
+        return new Disjunction<>(simplified);
+    }
+
+    private Negation<?> simplify(Negation<?> negation) {
+        if (!negation.pattern().isDisjunction()) return negation;
+        @SuppressWarnings("unchecked")
+        Disjunction<Conjunction<Conjunctable>> simplified = simplify(
+                (Disjunction<Conjunction<Conjunctable>>) negation.pattern().asDisjunction()
+        );
+        if (simplified.patterns().size() == 1) {
+            collapsedNegations++;
+            return new Negation<>(simplified.patterns().get(0));
+        }
+        return new Negation<>(simplified);
+    }
+
+    /**
+     * Drops each conjunction that holds every conjunctable of a smaller one that is kept. Conjunctions are visited
+     * from the smallest, and each kept conjunction is indexed by its conjunctables, so that a conjunction is absorbed
+     * if it shares as many conjunctables with a kept conjunction as that conjunction has.
+     */
+    private void dropAbsorbed(List<int[]> sets, int idCount, boolean[] dropped) {
+        Integer[] order = new Integer[sets.size()];
+        for (int i = 0; i < order.length; i++) order[i] = i;
+        Arrays.sort(order, Comparator.comparingInt(i -> sets.get(i).length));
+
+        List<List<Integer>> keptContaining = new ArrayList<>(idCount);
+        for (int id = 0; id < idCount; id++) keptContaining.add(new ArrayList<>());
+        int[] shared = new int[sets.size()];
+        List<Integer> touched = new ArrayList<>();
+        for (int i : order) {
+            if (dropped[i]) continue;
+            boolean absorbed = false;
+            for (int id : sets.get(i)) {
+                for (int kept : keptContaining.get(id)) {
+                    if (shared[kept]++ == 0) touched.add(kept);
+                    if (shared[kept] == sets.get(kept).length) absorbed = true;
+                }
+                if (absorbed) break;
+            }
+            for (int kept : touched) shared[kept] = 0;
+            touched.clear();
+            if (absorbed) {
+                dropped[i] = true;
+                absorbedConjunctions++;
+            } else {
+                for (int id : sets.get(i)) keptContaining.get(id).add(i);
+            }
+        }
+    }
+
+    /**
+     * The sorted numbers of the distinct conjunctables of a conjunction.
+     */
+    private static class IdSet {
+
+        private final int[] ids;
+        private final int hash;
+
+        private IdSet(int[] ids) {
+            this.ids = ids;
+            this.hash = Arrays.hashCode(ids);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (o == null || getClass() != o.getClass()) return false;
+            return Arrays.equals(ids, ((IdSet) o).ids);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "Simplification{" +
+                "duplicateConjunctables=" + duplicateConjunctables +
+                ", duplicateConjunctions=" + duplicateConjunctions +
+                ", absorbedConjunctions=" + absorbedConjunctions +
+                ", collapsedNegations=" + collapsedNegations +
+                '}';
+    }
+}
@@ -33,6 +33,12 @@ public abstract class Constraint<VARIABLE extends BoundVariable> {
 
     public abstract Set<VARIABLE> variables();
 
+    /**
+     * Prevents the constraint from being changed any further, if it can be changed once constructed.
+     */
+    public void freeze() {
+    }
+
     public boolean isConcept() {
         return false;
     }
@@ -35,6 +35,7 @@ import javax.annotation.Nullable;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.Collections;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
@@ -59,6 +60,7 @@ import static com.vaticle.typeql.lang.common.TypeQLToken.Constraint.ISAX;
 import static com.vaticle.typeql.lang.common.TypeQLToken.Predicate.Equality.EQ;
 import static com.vaticle.typeql.lang.common.TypeQLToken.Predicate.SubString.LIKE;
 import static com.vaticle.typeql.lang.common.TypeQLToken.Type.RELATION;
+import static com.vaticle.typeql.lang.common.exception.ErrorMessage.FROZEN_PATTERN_MODIFICATION;
 import static com.vaticle.typeql.lang.common.exception.ErrorMessage.INVALID_CASTING;
 import static com.vaticle.typeql.lang.common.exception.ErrorMessage.INVALID_CONSTRAINT_DATETIME_PRECISION;
 import static com.vaticle.typeql.lang.common.exception.ErrorMessage.INVALID_IID_STRING;
@@ -254,6 +256,7 @@ public abstract class ThingConstraint extends Constraint<BoundVariable> {
         private final Map<Pair<TypeVariable, ThingVariable<?>>, AtomicInteger> repetitions;
         private final List<RolePlayer> players;
         private String scope;
+        private boolean frozen;
 
         public Relation(RolePlayer player) {
             this(list(player));
@@ -281,18 +284,29 @@ public abstract class ThingConstraint extends Constraint<BoundVariable> {
         }
 
         public void setScope(String relationLabel) {
+            checkNotFrozen();
             this.scope = relationLabel;
             players.forEach(player -> player.setScope(scope));
         }
 
         public void addPlayers(RolePlayer player) {
+            checkNotFrozen();
             if (scope != null) player.setScope(scope);
             player.setRepetition(incrementRepetition(player));
             players.add(player);
         }
 
         public List<RolePlayer> players() {
-            return players;
+            return frozen ? Collections.unmodifiableList(players) : players;
+        }
+
+        @Override
+        public void freeze() {
+            frozen = true;
+        }
+
+        private void checkNotFrozen() {
+            if (frozen) throw TypeQLException.of(FROZEN_PATTERN_MODIFICATION.message(this));
         }
 
         @Override
@@ -27,6 +27,7 @@ import com.vaticle.typeql.lang.common.TypeQLArg;
 import com.vaticle.typeql.lang.common.TypeQLToken;
 import com.vaticle.typeql.lang.common.TypeQLToken.Annotation;
 import com.vaticle.typeql.lang.common.exception.TypeQLException;
+import com.vaticle.typeql.lang.common.util.Interner;
 import com.vaticle.typeql.lang.pattern.variable.TypeVariable;
 import com.vaticle.typeql.lang.pattern.variable.UnboundVariable;
 
@@ -37,6 +38,7 @@ import java.util.List;
 import java.util.Objects;
 import java.util.Optional;
 import java.util.Set;
+import java.util.function.Function;
 import java.util.regex.PatternSyntaxException;
 
 import static com.vaticle.typedb.common.collection.Collections.set;
@@ -53,6 +55,7 @@ import static com.vaticle.typeql.lang.common.TypeQLToken.Constraint.SUBX;
 import static com.vaticle.typeql.lang.common.TypeQLToken.Constraint.TYPE;
 import static com.vaticle.typeql.lang.common.TypeQLToken.Constraint.VALUE_TYPE;
 import static com.vaticle.typeql.lang.common.TypeQLToken.Type.RELATION;
+import static com.vaticle.typeql.lang.common.exception.ErrorMessage.FROZEN_PATTERN_MODIFICATION;
 import static com.vaticle.typeql.lang.common.exception.ErrorMessage.INVALID_ANNOTATION;
 import static com.vaticle.typeql.lang.common.exception.ErrorMessage.INVALID_ATTRIBUTE_TYPE_REGEX;
 import static com.vaticle.typeql.lang.common.exception.ErrorMessage.INVALID_CASTING;
@@ -148,6 +151,10 @@ public abstract class TypeConstraint extends Constraint<TypeVariable> {
 
     public static class Label extends TypeConstraint {
 
+        private static final int INTERNED_LABELS = 1 << 12;
+        // Labels are retained by every query that mentions them, so equal labels share one string
+        private static final Interner<String> LABELS = new Interner<>(INTERNED_LABELS, Function.identity());
+
         private final String label;
         private final String scope;
         private final int hash;
@@ -158,8 +165,8 @@ public abstract class TypeConstraint extends Constraint<TypeVariable> {
 
         public Label(@Nullable String scope, String label) {
             if (label == null) throw new NullPointerException("Null label");
-            this.scope = scope;
-            this.label = label;
+            this.scope = scope == null ? null : LABELS.intern(scope, Function.identity());
+            this.label = LABELS.intern(label, Function.identity());
             this.hash = Objects.hash(Label.class, this.scope, this.label);
         }
 
@@ -622,6 +629,7 @@ public abstract class TypeConstraint extends Constraint<TypeVariable> {
 
         private TypeVariable roleType;
         private TypeVariable overriddenRoleType;
+        private boolean frozen;
 
         public Relates(String roleType) {
             this(scopedType(roleType), null);
@@ -663,6 +671,7 @@ public abstract class TypeConstraint extends Constraint<TypeVariable> {
         }
 
         public void setScope(String relationLabel) {
+            if (frozen) throw TypeQLException.of(FROZEN_PATTERN_MODIFICATION.message(this));
             if (roleType.label().isPresent()) {
                 this.roleType = hidden().type(relationLabel, roleType.label().get().label());
             }
@@ -671,6 +680,11 @@ public abstract class TypeConstraint extends Constraint<TypeVariable> {
             }
         }
 
+        @Override
+        public void freeze() {
+            frozen = true;
+        }
+
         public TypeVariable role() {
             return roleType;
         }
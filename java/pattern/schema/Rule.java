@@ -56,12 +56,14 @@ import static com.vaticle.typeql.lang.common.util.Strings.indent;
 
 public class Rule implements Definable {
     private final String label;
-    private Conjunction<? extends Pattern> when;
-    private ThingVariable<?> then;
+    private final Conjunction<? extends Pattern> when;
+    private final ThingVariable<?> then;
     private int hash = 0;
 
     public Rule(String label) {
         this.label = label;
+        this.when = null;
+        this.then = null;
     }
 
     public Rule(String label, Conjunction<? extends Pattern> when, ThingVariable<?> variable) {
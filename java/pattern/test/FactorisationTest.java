@@ -0,0 +1,113 @@
+/*
+ * Copyright (C) 2022 Vaticle
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ *
+ */
+package com.vaticle.typeql.lang.pattern.test;
+
+import com.vaticle.typeql.lang.TypeQL;
+import com.vaticle.typeql.lang.pattern.Conjunctable;
+import com.vaticle.typeql.lang.pattern.Conjunction;
+import com.vaticle.typeql.lang.pattern.Factorisation;
+import com.vaticle.typeql.lang.pattern.Pattern;
+import com.vaticle.typeql.lang.pattern.Simplification;
+import org.junit.Test;
+
+import java.util.HashSet;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class FactorisationTest {
+
+    private static Conjunction<? extends Pattern> conjunction(String query) {
+        return TypeQL.parseQuery(query).asMatch().conjunction();
+    }
+
+    private static Set<Set<Conjunctable>> minimalNormalForm(Pattern pattern) {
+        return Simplification.of(pattern.asConjunction().normalise()).normalForm().patterns().stream()
+                .map(conjunction -> new HashSet<>(conjunction.patterns())).collect(Collectors.toSet());
+    }
+
+    @Test
+    public void independentDisjunctionsAreNotMultiplied() {
+        StringBuilder query = new StringBuilder("match $x isa person;\n");
+        for (int i = 0; i < 10; i++) {
+            for (int j = 0; j < 4; j++) {
+                query.append("{ $x has name \"").append(i).append("-").append(j).append("\"; }");
+                query.append(j < 3 ? " or " : ";\n");
+            }
+        }
+        Factorisation factorisation = Factorisation.of(conjunction(query.toString()));
+
+        assertEquals(11, factorisation.pattern().patterns().size());
+        assertEquals(41, factorisation.size());
+        assertEquals(1L << 20, factorisation.normalisedConjunctions());
+        assertEquals(11L << 20, factorisation.normalisedSize());
+    }
+
+    @Test
+    public void commonPatternsAreHoisted() {
+        Conjunction<Pattern> factorised = conjunction("match $x isa person; " +
+                "{ $x has name \"a\"; $x has age 1; } or { $x has age 2; $x has name \"a\"; };").factorise();
+        Conjunction<Pattern> expected = conjunction("match $x isa person; $x has name \"a\"; " +
+                "{ $x has age 1; } or { $x has age 2; };").factorise();
+        assertEquals(expected, factorised);
+    }
+
+    @Test
+    public void absorbedDisjunctionsAreDropped() {
+        Factorisation factorisation = Factorisation.of(conjunction("match $x isa person; " +
+                "{ $x has name \"a\"; } or { $x has name \"a\"; $x has age 1; };"));
+        assertEquals(conjunction("match $x isa person; $x has name \"a\";").factorise(), factorisation.pattern());
+        assertEquals(2, factorisation.size());
+        assertEquals(5, factorisation.normalisedSize());
+    }
+
+    @Test
+    public void negatedPatternsAreFactorised() {
+        Conjunction<Pattern> factorised = conjunction("match $x isa person; not { " +
+                "{ $x has name \"a\"; $x has age 1; } or { $x has name \"a\"; $x has age 2; }; };").factorise();
+        Conjunction<Pattern> negated = conjunction("match $x has name \"a\"; " +
+                "{ $x has age 1; } or { $x has age 2; };").factorise();
+        assertEquals(negated, factorised.patterns().get(1).asNegation().pattern());
+    }
+
+    @Test
+    public void factorisedPatternsAreEquivalent() {
+        String[] queries = {
+                "match $x isa person; " +
+                        "{ $x has name \"a\"; { $x has age 1; } or { $x has age 2; }; } or " +
+                        "{ $x has name \"a\"; $x has age 3; }; " +
+                        "{ $x has email \"e\"; } or { $x has email \"f\"; $x has name \"a\"; };",
+                "match $x isa person; { { $x has age 1; } or { $x has age 2; }; } or " +
+                        "{ $x has age 1; $x has name \"b\"; };",
+                "match ($x, $y) isa friendship; { $x has age 1; $y has age 1; } or " +
+                        "{ $y has age 1; $x has age 2; } or { $y has age 1; $x has age 1; $x has name \"c\"; };"
+        };
+        for (String query : queries) {
+            Conjunction<? extends Pattern> conjunction = conjunction(query);
+            Factorisation factorisation = Factorisation.of(conjunction);
+            assertEquals(minimalNormalForm(conjunction), minimalNormalForm(factorisation.pattern()));
+            assertTrue(factorisation.size() <= factorisation.normalisedSize());
+        }
+    }
+}
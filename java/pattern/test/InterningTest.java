@@ -0,0 +1,83 @@
+/*
+ * Copyright (C) 2022 Vaticle
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ *
+ */
+package com.vaticle.typeql.lang.pattern.test;
+
+import com.vaticle.typeql.lang.TypeQL;
+import com.vaticle.typeql.lang.common.exception.TypeQLException;
+import com.vaticle.typeql.lang.common.util.Interner;
+import com.vaticle.typeql.lang.pattern.variable.BoundVariable;
+import com.vaticle.typeql.lang.query.TypeQLMatch;
+import org.junit.Test;
+
+import java.util.function.Function;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.fail;
+
+public class InterningTest {
+
+    private static BoundVariable firstVariable(String query) {
+        TypeQLMatch match = TypeQL.parseQuery(query);
+        return match.variables().get(0);
+    }
+
+    private static String isaLabel(BoundVariable variable) {
+        return variable.asThing().isa().get().type().label().get().label();
+    }
+
+    @Test
+    public void testParsedVariablesAndLabelsAreShared() {
+        BoundVariable first = firstVariable("match $x isa person;");
+        BoundVariable second = firstVariable("match $x isa person, has name \"a\";");
+        assertSame(first.reference(), second.reference());
+        assertSame(isaLabel(first), isaLabel(second));
+    }
+
+    @Test
+    public void testBuiltVariablesAndLabelsAreSharedWithParsed() {
+        BoundVariable parsed = firstVariable("match $x isa person;");
+        assertSame(TypeQL.var("x"), TypeQL.var("x"));
+        assertSame(parsed.reference(), TypeQL.var("x").reference());
+        assertSame(isaLabel(parsed), TypeQL.type(new String("person")).label().get().label());
+    }
+
+    @Test
+    public void testInvalidNamesAreStillRejected() {
+        TypeQL.var("x");
+        try {
+            TypeQL.var("x!");
+            fail();
+        } catch (TypeQLException e) {
+            assertEquals(TypeQL.var("x"), TypeQL.var(new String("x")));
+        }
+    }
+
+    @Test
+    public void testCollidingKeysReplaceEachOther() {
+        Interner<String> interner = new Interner<>(1, Function.identity());
+        String a = interner.intern("a", Function.identity());
+        assertSame(a, interner.intern(new String("a"), Function.identity()));
+        assertEquals("b", interner.intern("b", Function.identity()));
+        assertEquals("a", interner.intern(new String("a"), Function.identity()));
+    }
+}
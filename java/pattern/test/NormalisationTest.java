@@ -23,6 +23,7 @@
 package com.vaticle.typeql.lang.pattern.test;
 
 import com.vaticle.typeql.lang.TypeQL;
+import com.vaticle.typeql.lang.common.exception.TypeQLException;
 import com.vaticle.typeql.lang.pattern.Conjunctable;
 import com.vaticle.typeql.lang.pattern.Conjunction;
 import com.vaticle.typeql.lang.pattern.Disjunction;
@@ -32,9 +33,12 @@ import com.vaticle.typeql.lang.query.TypeQLQuery;
 import org.junit.Test;
 
 import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.Collectors;
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
 
 public class NormalisationTest {
 
@@ -94,4 +98,121 @@ public class NormalisationTest {
         Disjunction<? extends Pattern> inner = expectedQuery.asMatch().conjunction().patterns().get(1).asNegation().pattern().asDisjunction();
         assertEquals(expected, expectedQuery.toString());
     }
+
+    private static String disjunctions(int count, int width) {
+        StringBuilder query = new StringBuilder("match $x isa person;\n");
+        for (int i = 0; i < count; i++) {
+            for (int j = 0; j < width; j++) {
+                query.append("{ $x has name \"").append(i).append("-").append(j).append("\"; }");
+                query.append(j + 1 < width ? " or " : ";\n");
+            }
+        }
+        return query.toString();
+    }
+
+    @Test
+    public void lazyNormalisationMatchesNormalisation() {
+        String query = "match\n" +
+                "$com isa company;\n" +
+                "{ $com has name $n1; { $n1 \"a\"; } or { $n1 \"b\"; }; } or { $com has name $n2; };\n" +
+                "not { $com has name $n3; { $n3 \"c\"; } or { $n3 \"d\"; }; };\n" +
+                "{ $com has age 1; } or { $com has age 2; } or { { $com has age 3; } or { $com has age 4; }; };" +
+                disjunctions(4, 3).substring("match $x isa person;".length()).replace("$x", "$com");
+        Conjunction<? extends Pattern> conjunction = TypeQL.parseQuery(query).asMatch().conjunction();
+        List<Conjunction<Conjunctable>> lazy = conjunction.normaliseLazily().collect(Collectors.toList());
+        assertEquals(3 * 4 * 81, lazy.size());
+        assertEquals(conjunction.normalise().patterns(), lazy);
+        assertEquals(lazy, conjunction.normaliseLazily().collect(Collectors.toList()));
+    }
+
+    @Test
+    public void lazyNormalisationBuildsConjunctionsOnDemand() {
+        // Over a million conjunctions, of which only those consumed are built
+        TypeQLMatch match = TypeQL.parseQuery(disjunctions(10, 4)).asMatch();
+        List<Conjunction<Conjunctable>> first = match.conjunction().normaliseLazily().limit(2)
+                .collect(Collectors.toList());
+
+        String firstBranches = disjunctions(10, 1);
+        assertEquals(normaliseOne(firstBranches), first.get(0));
+        assertEquals(normaliseOne(firstBranches.replace("9-0", "9-1")), first.get(1));
+    }
+
+    private static Conjunction<Conjunctable> normaliseOne(String query) {
+        List<Conjunction<Conjunctable>> normalised = TypeQL.parseQuery(query).asMatch().conjunction()
+                .normalise().patterns();
+        assertEquals(1, normalised.size());
+        return normalised.get(0);
+    }
+
+    @Test
+    public void normalisedSizeIsEstimatedWithoutNormalising() {
+        String query = "match\n" +
+                "$com isa company;\n" +
+                "{ $com has name $n1; { $n1 \"a\"; } or { $n1 \"b\"; }; } or { $com has name $n2; };\n" +
+                "not { $com has name $n3; { $n3 \"c\"; } or { $n3 \"d\"; }; };\n" +
+                "{ $com has age 1; } or { { $com has age 2; } or { $com has age 3; }; };";
+        Conjunction<? extends Pattern> conjunction = TypeQL.parseQuery(query).asMatch().conjunction();
+        assertEquals(conjunction.normalise().patterns().size(), conjunction.estimateNormalisedSize());
+        assertEquals(1L << 20, TypeQL.parseQuery(disjunctions(10, 4)).asMatch().conjunction().estimateNormalisedSize());
+        Conjunction<? extends Pattern> exploding = TypeQL.parseQuery(disjunctions(40, 4)).asMatch().conjunction();
+        assertEquals(Long.MAX_VALUE, exploding.estimateNormalisedSize());
+    }
+
+    @Test
+    public void normalisationBeyondTheLimitFails() {
+        TypeQLMatch match = TypeQL.parseQuery(disjunctions(10, 4)).asMatch();
+        try {
+            match.conjunction().normalise(1000);
+            fail();
+        } catch (TypeQLException e) {
+            assertTrue(e.getMessage().contains("1048576"));
+        }
+        try {
+            match.conjunction().normalise(ForkJoinPool.commonPool(), 1000);
+            fail();
+        } catch (TypeQLException e) {
+            assertTrue(e.getMessage().contains("1048576"));
+        }
+        assertEquals(1000, match.conjunction().normaliseLazily().limit(1000).count());
+    }
+
+    @Test
+    public void normalisationOfNegationBeyondTheLimitFails() {
+        String query = "match $x isa person; not { " + disjunctions(10, 4).substring("match ".length()) + "};";
+        Conjunction<? extends Pattern> conjunction = TypeQL.parseQuery(query).asMatch().conjunction();
+        assertEquals(1, conjunction.estimateNormalisedSize());
+        try {
+            conjunction.normalise(1000);
+            fail();
+        } catch (TypeQLException e) {
+            assertTrue(e.getMessage().contains("1048576"));
+        }
+    }
+
+    @Test
+    public void normalisationWithinTheLimitSucceeds() {
+        Conjunction<? extends Pattern> conjunction = TypeQL.parseQuery(disjunctions(3, 4)).asMatch().conjunction();
+        assertEquals(conjunction.normalise(), conjunction.normalise(64));
+    }
+
+    @Test
+    public void parallelNormalisationMatchesNormalisation() {
+        String nested = disjunctions(6, 4) +
+                "{ $x has age 1; " + disjunctions(3, 2).substring("match ".length()) + "} or { $x has age 2; };";
+        String negated = "match $x isa person; not { " + disjunctions(6, 4).substring("match ".length()) + "};";
+        for (String query : new String[]{nested, negated}) {
+            List<Conjunction<Conjunctable>> expected = TypeQL.parseQuery(query).asMatch().conjunction()
+                    .normalise().patterns();
+            for (int parallelism : new int[]{1, 4}) {
+                ForkJoinPool pool = new ForkJoinPool(parallelism);
+                try {
+                    Conjunction<? extends Pattern> conjunction = TypeQL.parseQuery(query).asMatch().conjunction();
+                    assertEquals(expected, conjunction.normalise(pool).patterns());
+                    assertEquals(expected, conjunction.normalise().patterns());
+                } finally {
+                    pool.shutdown();
+                }
+            }
+        }
+    }
 }
@@ -0,0 +1,92 @@
+/*
+ * Copyright (C) 2022 Vaticle
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ *
+ */
+package com.vaticle.typeql.lang.pattern.test;
+
+import com.vaticle.typeql.lang.TypeQL;
+import com.vaticle.typeql.lang.pattern.Conjunctable;
+import com.vaticle.typeql.lang.pattern.Conjunction;
+import com.vaticle.typeql.lang.pattern.Disjunction;
+import com.vaticle.typeql.lang.pattern.Simplification;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class SimplificationTest {
+
+    private static Disjunction<Conjunction<Conjunctable>> normalise(String query) {
+        return TypeQL.parseQuery(query).asMatch().conjunction().normalise();
+    }
+
+    @Test
+    public void simplifiedNormalFormWithNothingToRemoveIsUnchanged() {
+        Disjunction<Conjunction<Conjunctable>> normalForm = normalise(
+                "match $x isa person; { $x has name \"a\"; } or { $x has age 1; }; " +
+                        "not { { $x has age 2; } or { $x has age 3; }; };"
+        );
+        Simplification simplification = Simplification.of(normalForm);
+        assertTrue(simplification.isUnchanged());
+        assertEquals(normalForm, simplification.normalForm());
+    }
+
+    @Test
+    public void duplicatesAreRemoved() {
+        Simplification simplification = Simplification.of(normalise(
+                "match $x isa person; $x isa person; { $x has name \"a\"; } or { $x has name \"a\"; };"
+        ));
+        assertEquals(2, simplification.duplicateConjunctablesRemoved());
+        assertEquals(1, simplification.duplicateConjunctionsRemoved());
+        assertEquals(normalise("match $x has name \"a\"; $x isa person;"), simplification.normalForm());
+    }
+
+    @Test
+    public void absorbedConjunctionsAreRemoved() {
+        Simplification simplification = Simplification.of(normalise(
+                "match $x isa person; " +
+                        "{ $x has name \"a\"; $x has age 1; } or { $x has name \"a\"; } or { $x has age 2; };"
+        ));
+        assertEquals(1, simplification.absorbedConjunctionsRemoved());
+        assertEquals(
+                normalise("match $x isa person; { $x has name \"a\"; } or { $x has age 2; };"),
+                simplification.normalForm()
+        );
+    }
+
+    @Test
+    public void negationsOfOneConjunctionAreCollapsed() {
+        Simplification simplification = Simplification.of(normalise(
+                "match $x isa person; not { { $x has name \"a\"; } or { $x has name \"a\"; $x has age 1; }; };"
+        ));
+        assertEquals(1, simplification.absorbedConjunctionsRemoved());
+        assertEquals(1, simplification.negationsCollapsed());
+        assertFalse(simplification.isUnchanged());
+
+        Simplification expected = Simplification.of(normalise("match $x isa person; not { $x has name \"a\"; };"));
+        assertEquals(1, expected.negationsCollapsed());
+        assertEquals(expected.normalForm(), simplification.normalForm());
+        assertEquals(
+                "{ $x isa person; not { $x has name \"a\"; }; }",
+                simplification.normalForm().patterns().get(0).toString(false)
+        );
+    }
+}
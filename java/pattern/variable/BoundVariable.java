@@ -25,21 +25,47 @@ import com.vaticle.typeql.lang.common.exception.TypeQLException;
 import com.vaticle.typeql.lang.pattern.Conjunctable;
 import com.vaticle.typeql.lang.pattern.Pattern;
 
+import java.util.Collections;
 import java.util.List;
 import java.util.Set;
 import java.util.stream.Stream;
 
 import static com.vaticle.typedb.common.collection.Collections.list;
 import static com.vaticle.typedb.common.util.Objects.className;
+import static com.vaticle.typeql.lang.common.exception.ErrorMessage.FROZEN_PATTERN_MODIFICATION;
 import static com.vaticle.typeql.lang.common.exception.ErrorMessage.INVALID_CASTING;
 import static com.vaticle.typeql.lang.common.exception.ErrorMessage.MATCH_HAS_UNBOUNDED_NESTED_PATTERN;
 
 public abstract class BoundVariable extends Variable implements Conjunctable {
 
+    private boolean frozen;
+
     BoundVariable(Reference reference) {
         super(reference);
     }
 
+    /**
+     * Prevents the variable, and every variable and constraint nested within it, from being constrained any further,
+     * and the lists of their constraints from being modified, so that it can be shared by callers that must not see
+     * each other's changes.
+     */
+    public void freeze() {
+        if (frozen) return;
+        frozen = true;
+        constraints().forEach(constraint -> {
+            constraint.freeze();
+            constraint.variables().forEach(BoundVariable::freeze);
+        });
+    }
+
+    void checkNotFrozen() {
+        if (frozen) throw TypeQLException.of(FROZEN_PATTERN_MODIFICATION.message(this));
+    }
+
+    <C> List<C> view(List<C> constraints) {
+        return frozen ? Collections.unmodifiableList(constraints) : constraints;
+    }
+
     @Override
     public void validateIsBoundedBy(Set<UnboundVariable> bounds) {
         if (Stream.concat(Stream.of(this), variables()).noneMatch(v -> bounds.contains(v.toUnbound()))) {
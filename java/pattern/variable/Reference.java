@@ -23,6 +23,7 @@ package com.vaticle.typeql.lang.pattern.variable;
 
 import com.vaticle.typeql.lang.common.TypeQLToken;
 import com.vaticle.typeql.lang.common.exception.TypeQLException;
+import com.vaticle.typeql.lang.common.util.Interner;
 
 import java.util.Objects;
 import java.util.regex.Pattern;
@@ -33,6 +34,11 @@ import static com.vaticle.typeql.lang.common.exception.ErrorMessage.INVALID_VARI
 
 public abstract class Reference {
 
+    private static final int INTERNED_REFERENCES = 1 << 12;
+    // Queries share a small vocabulary of variable names and type labels, so their references are interned
+    private static final Interner<Name> NAMES = new Interner<>(INTERNED_REFERENCES, Name::name);
+    private static final Interner<Label> LABELS = new Interner<>(INTERNED_REFERENCES, Label::label);
+
     final Type type;
     final boolean isVisible;
 
@@ -44,11 +50,11 @@ public abstract class Reference {
     }
 
     public static Reference.Name name(String name) {
-        return new Name(name);
+        return NAMES.intern(name, Name::new);
     }
 
     public static Reference.Label label(String label) {
-        return new Label(label);
+        return LABELS.intern(label, Label::new);
     }
 
     public static Reference.Anonymous anonymous(boolean isVisible) {
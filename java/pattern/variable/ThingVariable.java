@@ -58,7 +58,7 @@ public abstract class ThingVariable<T extends ThingVariable<T>> extends BoundVar
 
     @Override
     public List<ThingConstraint> constraints() {
-        return constraints;
+        return view(constraints);
     }
 
     @Override
@@ -92,10 +92,11 @@ public abstract class ThingVariable<T extends ThingVariable<T>> extends BoundVar
     }
 
     public List<ThingConstraint.Has> has() {
-        return hasConstraints;
+        return view(hasConstraints);
     }
 
     public T constrain(ThingConstraint.Isa constraint) {
+        checkNotFrozen();
         if (isaConstraint != null) {
             throw TypeQLException.of(ILLEGAL_CONSTRAINT_REPETITION.message(reference, ThingConstraint.Isa.class, constraint));
         } else if (constraint.type().label().isPresent() && relation().isPresent()) {
@@ -107,6 +108,7 @@ public abstract class ThingVariable<T extends ThingVariable<T>> extends BoundVar
     }
 
     public T constrain(ThingConstraint.Has constraint) {
+        checkNotFrozen();
         hasConstraints.add(constraint);
         constraints.add(constraint);
         return getThis();
@@ -191,6 +193,7 @@ public abstract class ThingVariable<T extends ThingVariable<T>> extends BoundVar
 
         @Override
         public ThingVariable.Relation constrain(ThingConstraint.Relation.RolePlayer rolePlayer) {
+            checkNotFrozen();
             relationConstraint.addPlayers(rolePlayer);
             return this;
         }
@@ -64,7 +64,7 @@ public class TypeVariable extends BoundVariable implements TypeVariableBuilder,
 
     @Override
     public List<TypeConstraint> constraints() {
-        return constraints;
+        return view(constraints);
     }
 
     @Override
@@ -79,6 +79,7 @@ public class TypeVariable extends BoundVariable implements TypeVariableBuilder,
 
     @Override
     public TypeVariable constrain(TypeConstraint.Label constraint) {
+        checkNotFrozen();
         if (labelConstraint != null) {
             throw TypeQLException.of(ILLEGAL_CONSTRAINT_REPETITION.message(reference, TypeConstraint.Label.class, constraint));
         }
@@ -90,6 +91,7 @@ public class TypeVariable extends BoundVariable implements TypeVariableBuilder,
 
     @Override
     public TypeVariable constrain(TypeConstraint.Sub constraint) {
+        checkNotFrozen();
         if (subConstraint != null) {
             throw TypeQLException.of(ILLEGAL_CONSTRAINT_REPETITION.message(reference, TypeConstraint.Sub.class, constraint));
         }
@@ -100,6 +102,7 @@ public class TypeVariable extends BoundVariable implements TypeVariableBuilder,
 
     @Override
     public TypeVariable constrain(TypeConstraint.Abstract constraint) {
+        checkNotFrozen();
         if (abstractConstraint != null) {
             throw TypeQLException.of(ILLEGAL_CONSTRAINT_REPETITION.message(reference, TypeConstraint.Abstract.class, constraint));
         }
@@ -110,6 +113,7 @@ public class TypeVariable extends BoundVariable implements TypeVariableBuilder,
 
     @Override
     public TypeVariable constrain(TypeConstraint.ValueType constraint) {
+        checkNotFrozen();
         if (valueTypeConstraint != null) {
             throw TypeQLException.of(ILLEGAL_CONSTRAINT_REPETITION.message(reference, TypeConstraint.ValueType.class, constraint));
         }
@@ -120,6 +124,7 @@ public class TypeVariable extends BoundVariable implements TypeVariableBuilder,
 
     @Override
     public TypeVariable constrain(TypeConstraint.Regex constraint) {
+        checkNotFrozen();
         if (regexConstraint != null) {
             throw TypeQLException.of(ILLEGAL_CONSTRAINT_REPETITION.message(reference, TypeConstraint.Regex.class, constraint));
         }
@@ -131,6 +136,7 @@ public class TypeVariable extends BoundVariable implements TypeVariableBuilder,
 
     @Override
     public TypeVariable constrain(TypeConstraint.Owns constraint) {
+        checkNotFrozen();
         ownsConstraints.add(constraint);
         constraints.add(constraint);
         return this;
@@ -138,6 +144,7 @@ public class TypeVariable extends BoundVariable implements TypeVariableBuilder,
 
     @Override
     public TypeVariable constrain(TypeConstraint.Plays constraint) {
+        checkNotFrozen();
         playsConstraints.add(constraint);
         constraints.add(constraint);
         return this;
@@ -145,6 +152,7 @@ public class TypeVariable extends BoundVariable implements TypeVariableBuilder,
 
     @Override
     public TypeVariable constrain(TypeConstraint.Relates constraint) {
+        checkNotFrozen();
         if (label().isPresent()) {
             constraint.setScope(label().get().label());
         }
@@ -174,15 +182,15 @@ public class TypeVariable extends BoundVariable implements TypeVariableBuilder,
     }
 
     public List<TypeConstraint.Owns> owns() {
-        return ownsConstraints;
+        return view(ownsConstraints);
     }
 
     public List<TypeConstraint.Plays> plays() {
-        return playsConstraints;
+        return view(playsConstraints);
     }
 
     public List<TypeConstraint.Relates> relates() {
-        return relatesConstraints;
+        return view(relatesConstraints);
     }
 
     @Override
@@ -21,6 +21,7 @@
 
 package com.vaticle.typeql.lang.pattern.variable;
 
+import com.vaticle.typeql.lang.common.util.Interner;
 import com.vaticle.typeql.lang.pattern.constraint.ConceptConstraint;
 import com.vaticle.typeql.lang.pattern.constraint.Constraint;
 import com.vaticle.typeql.lang.pattern.constraint.ThingConstraint;
@@ -39,12 +40,15 @@ public class UnboundVariable extends Variable implements ConceptVariableBuilder,
                                                          ThingVariableBuilder.Relation,
                                                          ThingVariableBuilder.Attribute {
 
+    private static final int INTERNED_VARIABLES = 1 << 12;
+    private static final Interner<UnboundVariable> NAMED = new Interner<>(INTERNED_VARIABLES, Variable::name);
+
     UnboundVariable(Reference reference) {
         super(reference);
     }
 
     public static UnboundVariable named(String name) {
-        return new UnboundVariable(Reference.name(name));
+        return NAMED.intern(name, n -> new UnboundVariable(Reference.name(n)));
     }
 
     public static UnboundVariable anonymous() {
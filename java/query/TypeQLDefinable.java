@@ -33,10 +33,12 @@ import java.util.ArrayList;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Objects;
+import java.util.stream.Stream;
 
 import static com.vaticle.typeql.lang.common.TypeQLToken.Command.DEFINE;
 import static com.vaticle.typeql.lang.common.TypeQLToken.Command.UNDEFINE;
 import static com.vaticle.typeql.lang.common.exception.ErrorMessage.MISSING_DEFINABLES;
+import static java.util.stream.Collectors.toList;
 
 abstract class TypeQLDefinable extends TypeQLQuery {
 
@@ -44,23 +46,34 @@ abstract class TypeQLDefinable extends TypeQLQuery {
     private final List<Definable> definables;
     private final List<TypeVariable> variables = new ArrayList<>();
     private final List<Rule> rules = new ArrayList<>();
-    private final int hash;
+    private int hash = 0;
 
     TypeQLDefinable(TypeQLToken.Command command, List<Definable> definables) {
+        this(command, definables, true);
+    }
+
+    /**
+     * Creates a query of the definables of other queries of the same command, which have already been validated.
+     */
+    TypeQLDefinable(TypeQLToken.Command command, Stream<? extends TypeQLDefinable> queries) {
+        this(command, queries.flatMap(query -> ((TypeQLDefinable) query).definables.stream()).collect(toList()), false);
+    }
+
+    private TypeQLDefinable(TypeQLToken.Command command, List<Definable> definables, boolean validate) {
         assert command == DEFINE || command == UNDEFINE;
         if (definables == null || definables.isEmpty()) throw TypeQLException.of(MISSING_DEFINABLES.message());
         this.definables = new ArrayList<>(definables);
         for (Definable definable : definables) {
             if (definable.isRule()) {
                 Rule rule = definable.asRule();
-                if (command == UNDEFINE && (rule.when() != null || rule.then() != null)) {
+                if (validate && command == UNDEFINE && (rule.when() != null || rule.then() != null)) {
                     throw TypeQLException.of(ErrorMessage.INVALID_UNDEFINE_QUERY_RULE.message(rule.label()));
                 }
                 rules.add(rule);
             }
             if (definable.isTypeVariable()) variables.add(definable.asTypeVariable());
         }
-        LinkedList<TypeVariable> typeVarsToVerify = new LinkedList<>(variables);
+        LinkedList<TypeVariable> typeVarsToVerify = validate ? new LinkedList<>(variables) : new LinkedList<>();
         while (!typeVarsToVerify.isEmpty()) {
             TypeVariable v = typeVarsToVerify.removeFirst();
             if (!v.isLabelled()) throw TypeQLException.of(ErrorMessage.INVALID_DEFINE_QUERY_VARIABLE.message());
@@ -68,7 +81,6 @@ abstract class TypeQLDefinable extends TypeQLQuery {
         }
 
         this.command = command;
-        this.hash = Objects.hash(this.command, this.variables, this.rules);
     }
 
     @Override
@@ -101,6 +113,9 @@ abstract class TypeQLDefinable extends TypeQLQuery {
 
     @Override
     public final int hashCode() {
+        if (hash == 0) {
+            this.hash = Objects.hash(this.command, this.variables, this.rules);
+        }
         return hash;
     }
 }
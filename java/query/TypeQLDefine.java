@@ -25,10 +25,22 @@ import com.vaticle.typeql.lang.common.TypeQLToken;
 import com.vaticle.typeql.lang.pattern.Definable;
 
 import java.util.List;
+import java.util.stream.Stream;
 
 public class TypeQLDefine extends TypeQLDefinable {
 
     public TypeQLDefine(List<Definable> definables) {
         super(TypeQLToken.Command.DEFINE, definables);
     }
+
+    private TypeQLDefine(Stream<TypeQLDefine> queries) {
+        super(TypeQLToken.Command.DEFINE, queries);
+    }
+
+    /**
+     * @return a query of the definables of all the given queries, in order, which are not validated again
+     */
+    public static TypeQLDefine merge(List<TypeQLDefine> queries) {
+        return new TypeQLDefine(queries.stream());
+    }
 }
@@ -72,8 +72,8 @@ public class TypeQLMatch extends TypeQLQuery implements Aggregatable<TypeQLMatch
 
     private final int hash;
 
-    private List<BoundVariable> variables;
-    private List<UnboundVariable> variablesNamedUnbound;
+    private volatile List<BoundVariable> variables;
+    private volatile List<UnboundVariable> variablesNamedUnbound;
 
     TypeQLMatch(Conjunction<? extends Pattern> conjunction) {
         this(conjunction, new ArrayList<>());
@@ -25,10 +25,22 @@ import com.vaticle.typeql.lang.common.TypeQLToken;
 import com.vaticle.typeql.lang.pattern.Definable;
 
 import java.util.List;
+import java.util.stream.Stream;
 
 public class TypeQLUndefine extends TypeQLDefinable {
 
     public TypeQLUndefine(List<Definable> definables) {
         super(TypeQLToken.Command.UNDEFINE, definables);
     }
+
+    private TypeQLUndefine(Stream<TypeQLUndefine> queries) {
+        super(TypeQLToken.Command.UNDEFINE, queries);
+    }
+
+    /**
+     * @return a query of the definables of all the given queries, in order, which are not validated again
+     */
+    public static TypeQLUndefine merge(List<TypeQLUndefine> queries) {
+        return new TypeQLUndefine(queries.stream());
+    }
 }
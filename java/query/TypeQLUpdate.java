@@ -44,8 +44,8 @@ public class TypeQLUpdate extends TypeQLWritable {
     private final List<ThingVariable<?>> insertVariables;
     private final int hash;
 
-    private List<UnboundVariable> namedDeleteVariablesUnbound;
-    private List<UnboundVariable> namedInsertVariablesUnbound;
+    private volatile List<UnboundVariable> namedDeleteVariablesUnbound;
+    private volatile List<UnboundVariable> namedInsertVariablesUnbound;
 
     public TypeQLUpdate(TypeQLMatch.Unfiltered match, List<ThingVariable<?>> deleteVariables,
                         List<ThingVariable<?>> insertVariables) {
@@ -56,7 +56,7 @@ public abstract class TypeQLWritable extends TypeQLQuery {
 
     abstract static class InsertOrDelete extends TypeQLWritable {
 
-        private List<UnboundVariable> namedVariablesUnbound;
+        private volatile List<UnboundVariable> namedVariablesUnbound;
         private final TypeQLToken.Command command;
         protected final List<ThingVariable<?>> variables;
         private final int hash;